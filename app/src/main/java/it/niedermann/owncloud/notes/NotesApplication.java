@@ -10,6 +10,7 @@ import android.webkit.WebView;
 import androidx.appcompat.app.AppCompatDelegate;
 import androidx.preference.PreferenceManager;
 
+import it.niedermann.owncloud.notes.persistence.NotesRepository;
 import it.niedermann.owncloud.notes.preferences.DarkModeSetting;
 
 public class NotesApplication extends Application {
@@ -35,6 +36,17 @@ public class NotesApplication extends Application {
         }
     }
 
+    /**
+     * Pushes coalesced local changes immediately once the user interface of the app is no longer visible.
+     */
+    @Override
+    public void onTrimMemory(int level) {
+        super.onTrimMemory(level);
+        if (level == TRIM_MEMORY_UI_HIDDEN) {
+            NotesRepository.getInstance(this).flushPendingPushes();
+        }
+    }
+
     public static void setAppTheme(DarkModeSetting setting) {
         AppCompatDelegate.setDefaultNightMode(setting.getModeId());
     }
@@ -45,6 +45,7 @@ import it.niedermann.owncloud.notes.persistence.entity.Account;
 import it.niedermann.owncloud.notes.persistence.entity.Note;
 import it.niedermann.owncloud.notes.shared.model.ApiVersion;
 import it.niedermann.owncloud.notes.shared.model.DBStatus;
+import it.niedermann.owncloud.notes.shared.model.IResponseCallback;
 import it.niedermann.owncloud.notes.shared.model.ISyncCallback;
 import it.niedermann.owncloud.notes.shared.util.ApiVersionUtil;
 import it.niedermann.owncloud.notes.shared.util.NoteUtil;
@@ -107,6 +108,7 @@ public abstract class BaseNoteFragment extends BrandedFragment implements Catego
                         }
                         isNew = false;
                         note = originalNote = repo.getNoteById(id);
+                        note.setScrollY(repo.getScrollY(id));
                         requireActivity().runOnUiThread(() -> onNoteLoaded(note));
                         requireActivity().invalidateOptionsMenu();
                     } else {
@@ -157,6 +159,9 @@ public abstract class BaseNoteFragment extends BrandedFragment implements Catego
     public void onPause() {
         super.onPause();
         saveNote(null);
+        if (requireActivity().isFinishing()) {
+            repo.flushPendingPushes();
+        }
     }
 
     @Override
@@ -211,13 +216,11 @@ public abstract class BaseNoteFragment extends BrandedFragment implements Catego
     public boolean onOptionsItemSelected(MenuItem item) {
         final int itemId = item.getItemId();
         if (itemId == R.id.menu_cancel) {
-            executor.submit(() -> {
-                if (originalNote == null) {
-                    repo.deleteNoteAndSync(localAccount, note.getId());
-                } else {
-                    repo.updateNoteAndSync(localAccount, originalNote, null, null, null);
-                }
-            });
+            if (originalNote == null) {
+                repo.deleteNoteAndSync(localAccount, note.getId());
+            } else {
+                repo.saveNoteAndSync(localAccount, originalNote, null, null, null, null);
+            }
             listener.close();
             return true;
         } else if (itemId == R.id.menu_delete) {
@@ -277,7 +280,7 @@ public abstract class BaseNoteFragment extends BrandedFragment implements Catego
         if (scrollView != null) {
             scrollView.setOnScrollChangeListener((View v, int scrollX, int scrollY, int oldScrollX, int oldScrollY) -> {
                 if (scrollY > 0) {
-                    note.setScrollY(scrollY);
+                    this.note.setScrollY(scrollY);
                 }
                 onScroll(scrollY, oldScrollY);
             });
@@ -302,31 +305,64 @@ public abstract class BaseNoteFragment extends BrandedFragment implements Catego
 
     /**
      * Save the current state in the database and schedule synchronization if needed.
+     * The current content is handed over to the {@link NotesRepository} as a snapshot and saved in the background,
+     * the {@link #note} will be replaced by the saved {@link Note} as soon as the save has been finished.
      *
      * @param callback Observer which is called after save/synchronization
      */
     protected void saveNote(@Nullable ISyncCallback callback) {
         Log.d(TAG, "saveData()");
         if (note != null) {
+            if (note.getScrollY() != originalScrollY) {
+                Log.v(TAG, "... saving new scroll state");
+                repo.updateScrollY(note.getId(), note.getScrollY());
+                originalScrollY = note.getScrollY();
+            }
             final var newContent = getContent();
             if (note.getContent().equals(newContent)) {
-                if (note.getScrollY() != originalScrollY) {
-                    Log.v(TAG, "... only saving new scroll state, since content did not change");
-                    repo.updateScrollY(note.getId(), note.getScrollY());
-                } else {
-                    Log.v(TAG, "... not saving, since nothing has changed");
-                }
+                Log.v(TAG, "... not saving content, since it did not change");
             } else {
-                // FIXME requires database queries on main thread!
-                note = repo.updateNoteAndSync(localAccount, note, newContent, null, callback);
-                listener.onNoteUpdated(note);
-                requireActivity().invalidateOptionsMenu();
+                repo.saveNoteAndSync(localAccount, note, newContent, null, callback, onNoteSaved);
+                // Do not modify the current note, it might still be referenced as originalNote
+                note = new Note(note.getId(), note.getRemoteId(), note.getModified(), note.getTitle(), newContent, note.getCategory(), note.getFavorite(), note.getETag(), note.getStatus(), note.getAccountId(), note.getExcerpt(), note.getScrollY());
             }
         } else {
             Log.e(TAG, "note is null");
         }
     }
 
+    /**
+     * Takes over the saved {@link Note} unless the content has been changed again in the meantime,
+     * in which case the save of the newer content is still pending.
+     */
+    private final IResponseCallback<Note> onNoteSaved = new IResponseCallback<>() {
+        @Override
+        public void onSuccess(Note savedNote) {
+            final var activity = getActivity();
+            if (activity == null) {
+                return;
+            }
+            activity.runOnUiThread(() -> {
+                if (!isAdded() || note == null || !note.getContent().equals(savedNote.getContent())) {
+                    Log.v(TAG, "... discarding result of save, since the note has been changed in the meantime");
+                    return;
+                }
+                // The scroll position is saved separately and might have changed in the meantime
+                savedNote.setScrollY(note.getScrollY());
+                note = savedNote;
+                if (listener != null) {
+                    listener.onNoteUpdated(note);
+                }
+                activity.invalidateOptionsMenu();
+            });
+        }
+
+        @Override
+        public void onError(@NonNull Throwable t) {
+            Log.e(TAG, "Could not save note", t);
+        }
+    };
+
     protected abstract String getContent();
 
     /**
@@ -370,11 +406,9 @@ public abstract class BaseNoteFragment extends BrandedFragment implements Catego
     @Override
     public void onTitleEdited(String newTitle) {
         titleModified = true;
-        note.setTitle(newTitle);
-        executor.submit(() -> {
-            note = repo.updateNoteAndSync(localAccount, note, note.getContent(), newTitle, null);
-            requireActivity().runOnUiThread(() -> listener.onNoteUpdated(note));
-        });
+        repo.saveNoteAndSync(localAccount, note, note.getContent(), newTitle, null, onNoteSaved);
+        // Do not modify the current note, it is handed over to the save and might still be referenced as originalNote
+        note = new Note(note.getId(), note.getRemoteId(), note.getModified(), newTitle, note.getContent(), note.getCategory(), note.getFavorite(), note.getETag(), note.getStatus(), note.getAccountId(), note.getExcerpt(), note.getScrollY());
     }
 
     public void moveNote(Account account) {
@@ -14,6 +14,7 @@ import android.widget.Toast;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
+import androidx.annotation.WorkerThread;
 import androidx.fragment.app.Fragment;
 import androidx.lifecycle.ViewModelProvider;
 import androidx.preference.PreferenceManager;
@@ -28,6 +29,8 @@ import java.io.IOException;
 import java.io.InputStreamReader;
 import java.util.Calendar;
 import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import it.niedermann.android.sharedpreferences.SharedPreferenceBooleanLiveData;
 import it.niedermann.owncloud.notes.LockedActivity;
@@ -62,6 +65,7 @@ public class EditNoteActivity extends LockedActivity implements BaseNoteFragment
 
     private BaseNoteFragment fragment;
     private NotesRepository repo;
+    private final ExecutorService executor = Executors.newCachedThreadPool();
 
     @Override
     protected void onCreate(final Bundle savedInstanceState) {
@@ -99,7 +103,11 @@ public class EditNoteActivity extends LockedActivity implements BaseNoteFragment
         }
 
         setSupportActionBar(binding.toolbar);
-        binding.toolbar.setOnClickListener((v) -> fragment.showEditTitleDialog());
+        binding.toolbar.setOnClickListener((v) -> {
+            if (fragment != null) {
+                fragment.showEditTitleDialog();
+            }
+        });
     }
 
     @Override
@@ -124,6 +132,7 @@ public class EditNoteActivity extends LockedActivity implements BaseNoteFragment
         return getIntent().getLongExtra(PARAM_NOTE_ID, 0);
     }
 
+    @WorkerThread
     private long getAccountId() {
         final long idParam = getIntent().getLongExtra(PARAM_ACCOUNT_ID, 0);
         if (idParam == 0) {
@@ -146,7 +155,7 @@ public class EditNoteActivity extends LockedActivity implements BaseNoteFragment
     private void launchNoteFragment() {
         long noteId = getNoteId();
         if (noteId > 0) {
-            launchExistingNote(getAccountId(), noteId);
+            launchExistingNote(noteId);
         } else {
             if (Intent.ACTION_VIEW.equals(getIntent().getAction())) {
                 launchReadonlyNote();
@@ -162,12 +171,12 @@ public class EditNoteActivity extends LockedActivity implements BaseNoteFragment
      *
      * @param noteId ID of the existing note.
      */
-    private void launchExistingNote(long accountId, long noteId) {
-        launchExistingNote(accountId, noteId, null);
+    private void launchExistingNote(long noteId) {
+        launchExistingNote(noteId, null);
     }
 
-    private void launchExistingNote(long accountId, long noteId, @Nullable final String mode) {
-        launchExistingNote(accountId, noteId, mode, false);
+    private void launchExistingNote(long noteId, @Nullable final String mode) {
+        launchExistingNote(noteId, mode, false);
     }
 
     /**
@@ -178,18 +187,22 @@ public class EditNoteActivity extends LockedActivity implements BaseNoteFragment
      *                     user preferences.
      * @param discardState If true, the state of the fragment will be discarded and a new fragment will be created
      */
-    private void launchExistingNote(long accountId, long noteId, @Nullable final String mode, final boolean discardState) {
-        // save state of the fragment in order to resume with the same note and originalNote
-        runOnUiThread(() -> {
-            Fragment.SavedState savedState = null;
-            if (fragment != null && !discardState) {
-                savedState = getSupportFragmentManager().saveFragmentInstanceState(fragment);
-            }
-            fragment = getNoteFragment(accountId, noteId, mode);
-            if (savedState != null) {
-                fragment.setInitialSavedState(savedState);
-            }
-            replaceFragment();
+    private void launchExistingNote(long noteId, @Nullable final String mode, final boolean discardState) {
+        executor.submit(() -> {
+            final long accountId = getAccountId();
+            final var effectiveMode = mode == null ? getPreferenceMode(accountId) : mode;
+            // save state of the fragment in order to resume with the same note and originalNote
+            runOnUiThread(() -> {
+                Fragment.SavedState savedState = null;
+                if (fragment != null && !discardState) {
+                    savedState = getSupportFragmentManager().saveFragmentInstanceState(fragment);
+                }
+                fragment = getNoteFragment(accountId, noteId, effectiveMode);
+                if (savedState != null) {
+                    fragment.setInitialSavedState(savedState);
+                }
+                replaceFragment();
+            });
         });
     }
 
@@ -207,6 +220,7 @@ public class EditNoteActivity extends LockedActivity implements BaseNoteFragment
      * Returns the preferred mode for the account. If the mode is "remember last" the last mode is returned.
      * If the mode is "direct edit" and the account does not support direct edit, the default mode is returned.
      */
+    @WorkerThread
     private String getPreferenceMode(long accountId) {
 
         final var prefKeyNoteMode = getString(R.string.pref_key_note_mode);
@@ -235,9 +249,7 @@ public class EditNoteActivity extends LockedActivity implements BaseNoteFragment
         return effectiveMode;
     }
 
-    private BaseNoteFragment getNoteFragment(long accountId, long noteId, final @Nullable String modePref) {
-
-        final var effectiveMode = modePref == null ? getPreferenceMode(accountId) : modePref;
+    private BaseNoteFragment getNoteFragment(long accountId, long noteId, @NonNull final String effectiveMode) {
 
         final var prefValueEdit = getString(R.string.pref_value_mode_edit);
         final var prefValueDirectEdit = getString(R.string.pref_value_mode_direct_edit);
@@ -250,15 +262,13 @@ public class EditNoteActivity extends LockedActivity implements BaseNoteFragment
         } else if (effectiveMode.equals(prefValuePreview)) {
             return NotePreviewFragment.newInstance(accountId, noteId);
         } else {
-            throw new IllegalStateException("Unknown note modePref: " + modePref);
+            throw new IllegalStateException("Unknown note modePref: " + effectiveMode);
         }
     }
 
 
     @NonNull
-    private BaseNoteFragment getNewNoteFragment(Note newNote) {
-        final var mode = getPreferenceMode(getAccountId());
-
+    private BaseNoteFragment getNewNoteFragment(Note newNote, @NonNull String mode) {
         final var prefValueDirectEdit = getString(R.string.pref_value_mode_direct_edit);
 
         if (mode.equals(prefValueDirectEdit)) {
@@ -302,8 +312,13 @@ public class EditNoteActivity extends LockedActivity implements BaseNoteFragment
             content = "";
         }
         final var newNote = new Note(null, Calendar.getInstance(), NoteUtil.generateNonEmptyNoteTitle(content, this), content, categoryTitle, favorite, null);
-        fragment = getNewNoteFragment(newNote);
-        replaceFragment();
+        executor.submit(() -> {
+            final var mode = getPreferenceMode(getAccountId());
+            runOnUiThread(() -> {
+                fragment = getNewNoteFragment(newNote, mode);
+                replaceFragment();
+            });
+        });
     }
 
 
@@ -370,7 +385,9 @@ public class EditNoteActivity extends LockedActivity implements BaseNoteFragment
         } else if (fragment instanceof NoteDirectEditFragment) {
             preferences.edit().putString(prefKeyLastMode, getString(R.string.pref_value_mode_direct_edit)).apply();
         }
-        fragment.onCloseNote();
+        if (fragment != null) {
+            fragment.onCloseNote();
+        }
 
         if(isTaskRoot()) {
             Intent intent = new Intent(EditNoteActivity.this, MainActivity.class);
@@ -398,13 +415,13 @@ public class EditNoteActivity extends LockedActivity implements BaseNoteFragment
     public void changeMode(@NonNull Mode mode, boolean reloadNote) {
         switch (mode) {
             case EDIT:
-                launchExistingNote(getAccountId(), getNoteId(), getString(R.string.pref_value_mode_edit), reloadNote);
+                launchExistingNote(getNoteId(), getString(R.string.pref_value_mode_edit), reloadNote);
                 break;
             case PREVIEW:
-                launchExistingNote(getAccountId(), getNoteId(), getString(R.string.pref_value_mode_preview), reloadNote);
+                launchExistingNote(getNoteId(), getString(R.string.pref_value_mode_preview), reloadNote);
                 break;
             case DIRECT_EDIT:
-                launchExistingNote(getAccountId(), getNoteId(), getString(R.string.pref_value_mode_direct_edit), reloadNote);
+                launchExistingNote(getNoteId(), getString(R.string.pref_value_mode_direct_edit), reloadNote);
                 break;
             default:
                 throw new IllegalStateException("Unknown mode: " + mode);
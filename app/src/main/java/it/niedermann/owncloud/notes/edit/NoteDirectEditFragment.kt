@@ -35,6 +35,7 @@ import it.niedermann.owncloud.notes.persistence.DirectEditingRepository
 import it.niedermann.owncloud.notes.persistence.entity.Note
 import it.niedermann.owncloud.notes.persistence.sync.NotesAPI
 import it.niedermann.owncloud.notes.shared.model.ApiVersion
+import it.niedermann.owncloud.notes.shared.model.IResponseCallback
 import it.niedermann.owncloud.notes.shared.model.ISyncCallback
 import it.niedermann.owncloud.notes.shared.util.ExtendedFabUtil
 import it.niedermann.owncloud.notes.shared.util.rx.DisposableSet
@@ -326,21 +327,34 @@ class NoteDirectEditFragment : BaseNoteFragment(), Branded {
 
     private fun changeToEditMode() {
         toggleLoadingUI(true)
-        val updateDisposable = Single.just(note.remoteId)
+        val fetchDisposable = Single.just(note.remoteId)
             .map { remoteId ->
                 val newNote = notesApi.getNote(remoteId).singleOrError().blockingGet().response
-                val localAccount = repo.getAccountByName(account.name)
-                repo.updateNoteAndSync(localAccount, note, newNote.content, newNote.title, null)
+                Pair(repo.getAccountByName(account.name), newNote)
             }
             .subscribeOn(Schedulers.io())
             .observeOn(AndroidSchedulers.mainThread())
-            .subscribe({
-                listener?.changeMode(NoteFragmentListener.Mode.EDIT, true)
+            .subscribe({ (localAccount, newNote) ->
+                // Handed over to the writer of the repository, so it can not race with pending saves of the plain editor
+                repo.saveNoteAndSync(localAccount, note, newNote.content, newNote.title, null, object : IResponseCallback<Note> {
+                    override fun onSuccess(result: Note) {
+                        activity?.runOnUiThread { switchToPlainEditMode() }
+                    }
+
+                    override fun onError(t: Throwable) {
+                        Log.e(TAG, "changeToEditMode: ", t)
+                        activity?.runOnUiThread { switchToPlainEditMode() }
+                    }
+                })
             }, { throwable ->
                 Log.e(TAG, "changeToEditMode: ", throwable)
-                listener?.changeMode(NoteFragmentListener.Mode.EDIT, true)
+                switchToPlainEditMode()
             })
-        disposables.add(updateDisposable)
+        disposables.add(fetchDisposable)
+    }
+
+    private fun switchToPlainEditMode() {
+        listener?.changeMode(NoteFragmentListener.Mode.EDIT, true)
     }
 
     private fun share() {
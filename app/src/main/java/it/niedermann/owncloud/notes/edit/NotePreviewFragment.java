@@ -130,17 +130,24 @@ public class NotePreviewFragment extends SearchableBaseNoteFragment implements O
 
     protected void registerInternalNoteLinkHandler() {
         binding.singleNoteContent.registerOnLinkClickCallback((link) -> {
+            final long remoteId;
             try {
-                final long noteLocalId = repo.getLocalIdByRemoteId(this.note.getAccountId(), Long.parseLong(link));
-                Log.i(TAG, "Found note for remoteId \"" + link + "\" in account \"" + this.note.getAccountId() + "\" with localId + \"" + noteLocalId + "\". Attempt to open " + EditNoteActivity.class.getSimpleName() + " for this note.");
-                startActivity(new Intent(requireActivity().getApplicationContext(), EditNoteActivity.class).putExtra(EditNoteActivity.PARAM_NOTE_ID, noteLocalId));
-                return true;
+                remoteId = Long.parseLong(link);
             } catch (NumberFormatException e) {
                 // Clicked link is not a long and therefore can't be a remote id.
-            } catch (IllegalArgumentException e) {
-                Log.i(TAG, "It looks like \"" + link + "\" might be a remote id of a note, but a note with this remote id could not be found in account \"" + note.getAccountId() + "\" .", e);
+                return false;
             }
-            return false;
+            final long accountId = this.note.getAccountId();
+            executor.submit(() -> {
+                try {
+                    final long noteLocalId = repo.getLocalIdByRemoteId(accountId, remoteId);
+                    Log.i(TAG, "Found note for remoteId \"" + link + "\" in account \"" + accountId + "\" with localId + \"" + noteLocalId + "\". Attempt to open " + EditNoteActivity.class.getSimpleName() + " for this note.");
+                    requireActivity().runOnUiThread(() -> startActivity(new Intent(requireActivity().getApplicationContext(), EditNoteActivity.class).putExtra(EditNoteActivity.PARAM_NOTE_ID, noteLocalId)));
+                } catch (IllegalArgumentException e) {
+                    Log.i(TAG, "It looks like \"" + link + "\" might be a remote id of a note, but a note with this remote id could not be found in account \"" + accountId + "\" .", e);
+                }
+            });
+            return true;
         });
     }
 
@@ -164,7 +171,7 @@ public class NotePreviewFragment extends SearchableBaseNoteFragment implements O
             executor.submit(() -> {
                 try {
                     final var account = repo.getAccountByName(SingleAccountHelper.getCurrentSingleSignOnAccount(requireContext()).name);
-                    repo.addCallbackPull(account, () -> executor.submit(() -> {
+                    repo.refreshNote(account, note.getId(), () -> executor.submit(() -> {
                         note = repo.getNoteById(note.getId());
                         changedText = note.getContent();
                         requireActivity().runOnUiThread(() -> {
@@ -172,7 +179,6 @@ public class NotePreviewFragment extends SearchableBaseNoteFragment implements O
                             binding.swiperefreshlayout.setRefreshing(false);
                         });
                     }));
-                    repo.scheduleSync(account, false);
                 } catch (NextcloudFilesAppAccountNotFoundException | NoCurrentAccountSelectedException e) {
                     e.printStackTrace();
                 }
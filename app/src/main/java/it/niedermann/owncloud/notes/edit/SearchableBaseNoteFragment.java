@@ -13,6 +13,7 @@ import androidx.annotation.CallSuper;
 import androidx.annotation.ColorInt;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
+import androidx.annotation.WorkerThread;
 import androidx.appcompat.widget.SearchView;
 
 import com.google.android.material.floatingactionbutton.ExtendedFloatingActionButton;
@@ -76,21 +77,26 @@ public abstract class SearchableBaseNoteFragment extends BaseNoteFragment {
     @Override
     public void onViewCreated(@NonNull View view, @Nullable Bundle savedInstanceState) {
         super.onViewCreated(view, savedInstanceState);
-        checkDirectEditingAvailable();
-        if (directEditAvailable) {
-            final ExtendedFloatingActionButton directEditingButton = getDirectEditingButton();
-            directEditingButton.setExtended(false);
-            ExtendedFabUtil.toggleExtendedOnLongClick(directEditingButton);
-            directEditingButton.setOnClickListener(v -> {
-                if (listener != null) {
-                    listener.changeMode(NoteFragmentListener.Mode.DIRECT_EDIT, false);
+        executor.submit(() -> {
+            checkDirectEditingAvailable();
+            requireActivity().runOnUiThread(() -> {
+                if (directEditAvailable) {
+                    final ExtendedFloatingActionButton directEditingButton = getDirectEditingButton();
+                    directEditingButton.setExtended(false);
+                    ExtendedFabUtil.toggleExtendedOnLongClick(directEditingButton);
+                    directEditingButton.setOnClickListener(v -> {
+                        if (listener != null) {
+                            listener.changeMode(NoteFragmentListener.Mode.DIRECT_EDIT, false);
+                        }
+                    });
+                } else {
+                    getDirectEditingButton().setVisibility(View.GONE);
                 }
             });
-        } else {
-            getDirectEditingButton().setVisibility(View.GONE);
-        }
+        });
     }
 
+    @WorkerThread
     private void checkDirectEditingAvailable() {
         try {
             final SingleSignOnAccount ssoAccount = SingleAccountHelper.getCurrentSingleSignOnAccount(requireContext());
@@ -36,6 +36,7 @@ import androidx.core.splashscreen.SplashScreen;
 import androidx.core.view.GravityCompat;
 import androidx.lifecycle.Observer;
 import androidx.lifecycle.ViewModelProvider;
+import androidx.paging.LoadState;
 import androidx.recyclerview.selection.SelectionTracker;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
@@ -97,10 +98,13 @@ import it.niedermann.owncloud.notes.shared.model.CategorySortingMethod;
 import it.niedermann.owncloud.notes.shared.model.IResponseCallback;
 import it.niedermann.owncloud.notes.shared.model.NavigationCategory;
 import it.niedermann.owncloud.notes.shared.model.NoteClickListener;
+import it.niedermann.owncloud.notes.shared.util.ApiVersionUtil;
 import it.niedermann.owncloud.notes.shared.util.CustomAppGlideModule;
 import it.niedermann.owncloud.notes.shared.util.NoteUtil;
 import it.niedermann.owncloud.notes.shared.util.ShareUtil;
 
+import kotlin.Unit;
+
 public class MainActivity extends LockedActivity implements NoteClickListener, AccountPickerListener, AccountSwitcherListener, CategoryDialogFragment.CategoryDialogListener {
 
     private static final String TAG = MainActivity.class.getSimpleName();
@@ -172,7 +176,11 @@ public class MainActivity extends LockedActivity implements NoteClickListener, A
             } else {
                 executor.submit(() -> {
                     try {
-                        final var account = mainViewModel.getLocalAccountByAccountName(SingleAccountHelper.getCurrentSingleSignOnAccount(getApplicationContext()).name);
+                        final var ssoAccount = SingleAccountHelper.getCurrentSingleSignOnAccount(getApplicationContext());
+                        final var account = mainViewModel.getLocalAccountByAccountName(ssoAccount.name);
+                        if (account != null) {
+                            ApiProvider.getInstance().warmUp(getApplicationContext(), ssoAccount, ApiVersionUtil.getPreferredApiVersion(account.getApiVersion()));
+                        }
                         runOnUiThread(() -> mainViewModel.postCurrentAccount(account));
                     } catch (NextcloudFilesAppAccountNotFoundException e) {
                         // Verbose log output for https://github.com/nextcloud/notes-android/issues/1256
@@ -268,25 +276,32 @@ public class MainActivity extends LockedActivity implements NoteClickListener, A
             // https://stackoverflow.com/a/37342327
             itemTouchHelper.attachToRecyclerView(null);
             itemTouchHelper.attachToRecyclerView(listView);
-            adapter.setItemList(notes);
-            binding.activityNotesListView.progressCircular.setVisibility(GONE);
-            binding.activityNotesListView.emptyContentView.getRoot().setVisibility(notes.size() > 0 ? GONE : VISIBLE);
-            // Remove deleted notes from the selection
-            if (tracker.hasSelection()) {
-                final var deletedNotes = new LinkedList<Long>();
-                for (final var id : tracker.getSelection()) {
-                    if (notes
-                            .stream()
-                            .filter(item -> !item.isSection())
-                            .map(item -> (Note) item)
-                            .noneMatch(item -> item.getId() == id)) {
-                        deletedNotes.add(id);
+            adapter.setItemList(getLifecycle(), notes);
+        });
+        adapter.addLoadStateListener(loadStates -> {
+            final boolean endOfPaginationReached = loadStates.getPrepend().getEndOfPaginationReached() && loadStates.getAppend().getEndOfPaginationReached();
+            if (loadStates.getRefresh() instanceof LoadState.NotLoading && (adapter.getItemCount() > 0 || endOfPaginationReached)) {
+                binding.activityNotesListView.progressCircular.setVisibility(GONE);
+                binding.activityNotesListView.emptyContentView.getRoot().setVisibility(adapter.getItemCount() > 0 ? GONE : VISIBLE);
+                // Remove deleted notes from the selection, this is only possible when all pages have been loaded
+                if (endOfPaginationReached && tracker.hasSelection()) {
+                    final var notes = adapter.getLoadedItems();
+                    final var deletedNotes = new LinkedList<Long>();
+                    for (final var id : tracker.getSelection()) {
+                        if (notes
+                                .stream()
+                                .filter(item -> !item.isSection())
+                                .map(item -> (Note) item)
+                                .noneMatch(item -> item.getId() == id)) {
+                            deletedNotes.add(id);
+                        }
+                    }
+                    for (final var id : deletedNotes) {
+                        tracker.deselect(id);
                     }
-                }
-                for (final var id : deletedNotes) {
-                    tracker.deselect(id);
                 }
             }
+            return Unit.INSTANCE;
         });
         mainViewModel.getSearchTerm().observe(this, adapter::setHighlightSearchQuery);
         mainViewModel.getCategorySortingMethodOfSelectedCategory().observe(this, methodOfCategory -> {
@@ -295,6 +310,8 @@ public class MainActivity extends LockedActivity implements NoteClickListener, A
                 if (methodOfCategory.first != null) {
                     var newMethod = methodOfCategory.second;
                     if (newMethod == CategorySortingMethod.SORT_LEXICOGRAPHICAL_ASC) {
+                        newMethod = CategorySortingMethod.SORT_RELEVANCE;
+                    } else if (newMethod == CategorySortingMethod.SORT_RELEVANCE) {
                         newMethod = CategorySortingMethod.SORT_MODIFIED_DESC;
                     } else {
                         newMethod = CategorySortingMethod.SORT_LEXICOGRAPHICAL_ASC;
@@ -631,6 +648,12 @@ public class MainActivity extends LockedActivity implements NoteClickListener, A
     private void updateSortMethodIcon(CategorySortingMethod method) {
         if (method == CategorySortingMethod.SORT_LEXICOGRAPHICAL_ASC) {
             activityBinding.sortingMethod.setImageResource(R.drawable.alphabetical_asc);
+            activityBinding.sortingMethod.setContentDescription(getString(R.string.sort_by_relevance));
+            if (SDK_INT >= O) {
+                activityBinding.sortingMethod.setTooltipText(getString(R.string.sort_by_relevance));
+            }
+        } else if (method == CategorySortingMethod.SORT_RELEVANCE) {
+            activityBinding.sortingMethod.setImageResource(R.drawable.ic_search_grey600_24dp);
             activityBinding.sortingMethod.setContentDescription(getString(R.string.sort_last_modified));
             if (SDK_INT >= O) {
                 activityBinding.sortingMethod.setTooltipText(getString(R.string.sort_last_modified));
@@ -699,9 +722,10 @@ public class MainActivity extends LockedActivity implements NoteClickListener, A
                                     @Override
                                     public void onSuccess(Account result) {
                                         executor.submit(() -> {
+                                            final var importedAccount = mainViewModel.getLocalAccountByAccountName(ssoAccount.name);
                                             runOnUiThread(() -> {
                                                 importSnackbar.setText(R.string.account_imported);
-                                                importSnackbar.setAction(R.string.simple_switch, (v) -> mainViewModel.postCurrentAccount(mainViewModel.getLocalAccountByAccountName(ssoAccount.name)));
+                                                importSnackbar.setAction(R.string.simple_switch, (v) -> mainViewModel.postCurrentAccount(importedAccount));
                                             });
                                             Log.i(TAG, capabilities.toString());
                                         });
@@ -728,8 +752,9 @@ public class MainActivity extends LockedActivity implements NoteClickListener, A
                                 // Happens when importing an already existing account the second time
                                 if (e instanceof TokenMismatchException && mainViewModel.getLocalAccountByAccountName(ssoAccount.name) != null) {
                                     Log.w(TAG, "Received " + TokenMismatchException.class.getSimpleName() + " and the given ssoAccount.name (" + ssoAccount.name + ") does already exist in the database. Assume that this account has already been imported.");
+                                    final var existingAccount = mainViewModel.getLocalAccountByAccountName(ssoAccount.name);
                                     runOnUiThread(() -> {
-                                        mainViewModel.postCurrentAccount(mainViewModel.getLocalAccountByAccountName(ssoAccount.name));
+                                        mainViewModel.postCurrentAccount(existingAccount);
                                         // TODO there is already a sync in progress and results in displaying a TokenMissMatchException snackbar which conflicts with this one
                                         coordinatorLayout.post(() -> BrandedSnackbar.make(coordinatorLayout, R.string.account_already_imported, Snackbar.LENGTH_LONG)
                                                 .setAnchorView(binding.activityNotesListView.fabCreate)
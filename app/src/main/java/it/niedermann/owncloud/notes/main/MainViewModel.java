@@ -3,13 +3,15 @@ package it.niedermann.owncloud.notes.main;
 import static androidx.lifecycle.Transformations.distinctUntilChanged;
 import static androidx.lifecycle.Transformations.map;
 import static androidx.lifecycle.Transformations.switchMap;
+import static androidx.lifecycle.ViewModelKt.getViewModelScope;
 import static java.net.HttpURLConnection.HTTP_NOT_MODIFIED;
 import static it.niedermann.owncloud.notes.main.MainActivity.ADAPTER_KEY_RECENT;
 import static it.niedermann.owncloud.notes.main.MainActivity.ADAPTER_KEY_STARRED;
-import static it.niedermann.owncloud.notes.main.slots.SlotterUtil.fillListByCategory;
-import static it.niedermann.owncloud.notes.main.slots.SlotterUtil.fillListByInitials;
-import static it.niedermann.owncloud.notes.main.slots.SlotterUtil.fillListByTime;
-import static it.niedermann.owncloud.notes.shared.model.CategorySortingMethod.SORT_MODIFIED_DESC;
+import static it.niedermann.owncloud.notes.main.slots.SlotterUtil.insertSectionsByCategory;
+import static it.niedermann.owncloud.notes.main.slots.SlotterUtil.insertSectionsByInitials;
+import static it.niedermann.owncloud.notes.main.slots.SlotterUtil.insertSectionsByTime;
+import static it.niedermann.owncloud.notes.shared.model.CategorySortingMethod.SORT_LEXICOGRAPHICAL_ASC;
+import static it.niedermann.owncloud.notes.shared.model.CategorySortingMethod.SORT_RELEVANCE;
 import static it.niedermann.owncloud.notes.shared.model.ENavigationCategoryType.DEFAULT_CATEGORY;
 import static it.niedermann.owncloud.notes.shared.model.ENavigationCategoryType.FAVORITES;
 import static it.niedermann.owncloud.notes.shared.model.ENavigationCategoryType.RECENT;
@@ -31,6 +33,11 @@ import androidx.lifecycle.AndroidViewModel;
 import androidx.lifecycle.LiveData;
 import androidx.lifecycle.MutableLiveData;
 import androidx.lifecycle.SavedStateHandle;
+import androidx.paging.Pager;
+import androidx.paging.PagingConfig;
+import androidx.paging.PagingData;
+import androidx.paging.PagingLiveData;
+import androidx.paging.PagingSource;
 
 import com.nextcloud.android.sso.AccountImporter;
 import com.nextcloud.android.sso.exceptions.NextcloudFilesAppAccountNotFoundException;
@@ -66,6 +73,7 @@ import it.niedermann.owncloud.notes.shared.model.IResponseCallback;
 import it.niedermann.owncloud.notes.shared.model.ImportStatus;
 import it.niedermann.owncloud.notes.shared.model.Item;
 import it.niedermann.owncloud.notes.shared.model.NavigationCategory;
+import kotlin.jvm.functions.Function0;
 
 public class MainViewModel extends AndroidViewModel {
 
@@ -73,6 +81,13 @@ public class MainViewModel extends AndroidViewModel {
 
     private final ExecutorService executor = Executors.newCachedThreadPool();
 
+    /**
+     * Number of notes loaded at once for the notes list. At most {@link #NOTES_MAX_LOADED} notes
+     * are kept in memory, pages far away from the viewport will be dropped.
+     */
+    private static final int NOTES_PAGE_SIZE = 50;
+    private static final int NOTES_MAX_LOADED = NOTES_PAGE_SIZE * 6;
+
     private final SavedStateHandle state;
 
     private static final String KEY_CURRENT_ACCOUNT = "currentAccount";
@@ -210,9 +225,9 @@ public class MainViewModel extends AndroidViewModel {
 
     @NonNull
     @MainThread
-    public LiveData<List<Item>> getNotesListLiveData() {
-        final var insufficientInformation = new MutableLiveData<List<Item>>();
-        return distinctUntilChanged(switchMap(getCurrentAccount(), currentAccount -> {
+    public LiveData<PagingData<Item>> getNotesListLiveData() {
+        final var insufficientInformation = new MutableLiveData<PagingData<Item>>();
+        return switchMap(getCurrentAccount(), currentAccount -> {
             Log.v(TAG, "[getNotesListLiveData] - currentAccount: " + currentAccount);
             if (currentAccount == null) {
                 return insufficientInformation;
@@ -226,29 +241,32 @@ public class MainViewModel extends AndroidViewModel {
                             Log.v(TAG, "[getNotesListLiveData] - searchTerm: " + (BuildConfig.DEBUG ? "******" : searchTerm));
                             return switchMap(getCategorySortingMethodOfSelectedCategory(), sortingMethod -> {
                                 final long accountId = currentAccount.getId();
-                                final String searchQueryOrWildcard = searchTerm == null ? "%" : "%" + searchTerm.trim() + "%";
                                 Log.v(TAG, "[getNotesListLiveData] - sortMethod: " + sortingMethod.second);
-                                final LiveData<List<Note>> fromDatabase;
+                                if (isRankedByRelevance(sortingMethod.second, searchTerm)) {
+                                    return PagingLiveData.cachedIn(map(searchByRelevance(accountId, selectedCategory, searchTerm), notes -> PagingData.from(new ArrayList<Item>(notes))), getViewModelScope(this));
+                                }
+                                final boolean byModified = sortingMethod.second != SORT_LEXICOGRAPHICAL_ASC;
+                                final Function0<PagingSource<Integer, Note>> fromDatabase;
                                 switch (selectedCategory.getType()) {
                                     case RECENT: {
                                         Log.v(TAG, "[getNotesListLiveData] - category: " + RECENT);
-                                        fromDatabase = sortingMethod.second == SORT_MODIFIED_DESC
-                                                ? repo.searchRecentByModified$(accountId, searchQueryOrWildcard)
-                                                : repo.searchRecentLexicographically$(accountId, searchQueryOrWildcard);
+                                        fromDatabase = byModified
+                                                ? () -> repo.searchRecentByModifiedPaged(accountId, searchTerm)
+                                                : () -> repo.searchRecentLexicographicallyPaged(accountId, searchTerm);
                                         break;
                                     }
                                     case FAVORITES: {
                                         Log.v(TAG, "[getNotesListLiveData] - category: " + FAVORITES);
-                                        fromDatabase = sortingMethod.second == SORT_MODIFIED_DESC
-                                                ? repo.searchFavoritesByModified$(accountId, searchQueryOrWildcard)
-                                                : repo.searchFavoritesLexicographically$(accountId, searchQueryOrWildcard);
+                                        fromDatabase = byModified
+                                                ? () -> repo.searchFavoritesByModifiedPaged(accountId, searchTerm)
+                                                : () -> repo.searchFavoritesLexicographicallyPaged(accountId, searchTerm);
                                         break;
                                     }
                                     case UNCATEGORIZED: {
                                         Log.v(TAG, "[getNotesListLiveData] - category: " + UNCATEGORIZED);
-                                        fromDatabase = sortingMethod.second == SORT_MODIFIED_DESC
-                                                ? repo.searchUncategorizedByModified$(accountId, searchQueryOrWildcard)
-                                                : repo.searchUncategorizedLexicographically$(accountId, searchQueryOrWildcard);
+                                        fromDatabase = byModified
+                                                ? () -> repo.searchUncategorizedByModifiedPaged(accountId, searchTerm)
+                                                : () -> repo.searchUncategorizedLexicographicallyPaged(accountId, searchTerm);
                                         break;
                                     }
                                     case DEFAULT_CATEGORY:
@@ -258,36 +276,73 @@ public class MainViewModel extends AndroidViewModel {
                                             throw new IllegalStateException(NavigationCategory.class.getSimpleName() + " type is " + DEFAULT_CATEGORY + ", but category is null.");
                                         }
                                         Log.v(TAG, "[getNotesListLiveData] - category: " + category);
-                                        fromDatabase = sortingMethod.second == SORT_MODIFIED_DESC
-                                                ? repo.searchCategoryByModified$(accountId, searchQueryOrWildcard, category)
-                                                : repo.searchCategoryLexicographically$(accountId, searchQueryOrWildcard, category);
+                                        fromDatabase = byModified
+                                                ? () -> repo.searchCategoryByModifiedPaged(accountId, searchTerm, category)
+                                                : () -> repo.searchCategoryLexicographicallyPaged(accountId, searchTerm, category);
                                         break;
                                     }
                                 }
 
                                 Log.v(TAG, "[getNotesListLiveData] - -------------------------------------");
-                                return distinctUntilChanged(map(fromDatabase, noteList -> fromNotes(noteList, selectedCategory, sortingMethod.second)));
+                                final var pager = new Pager<>(new PagingConfig(NOTES_PAGE_SIZE, NOTES_PAGE_SIZE, false, NOTES_PAGE_SIZE * 2, NOTES_MAX_LOADED), fromDatabase);
+                                return PagingLiveData.cachedIn(map(PagingLiveData.getLiveData(pager), notes -> fromNotes(notes, selectedCategory, sortingMethod.second)), getViewModelScope(this));
                             });
                         });
                     }
                 });
             }
-        }));
+        });
+    }
+
+    /**
+     * Only searches are ranked by {@link CategorySortingMethod#SORT_RELEVANCE}, without a search term the notes are ordered by modification date.
+     */
+    private static boolean isRankedByRelevance(@Nullable CategorySortingMethod sortingMethod, @Nullable String searchTerm) {
+        return sortingMethod == SORT_RELEVANCE && searchTerm != null && !searchTerm.trim().isEmpty();
+    }
+
+    /**
+     * @return the most relevant {@link Note}s of the {@param selectedCategory} matching the {@param searchTerm}, which are not grouped into sections.
+     */
+    private LiveData<List<Note>> searchByRelevance(long accountId, @NonNull NavigationCategory selectedCategory, @Nullable String searchTerm) {
+        switch (selectedCategory.getType()) {
+            case RECENT: {
+                Log.v(TAG, "[getNotesListLiveData] - category: " + RECENT + " (ranked by relevance)");
+                return repo.searchRecentByRelevance$(accountId, searchTerm);
+            }
+            case FAVORITES: {
+                Log.v(TAG, "[getNotesListLiveData] - category: " + FAVORITES + " (ranked by relevance)");
+                return repo.searchFavoritesByRelevance$(accountId, searchTerm);
+            }
+            case UNCATEGORIZED: {
+                Log.v(TAG, "[getNotesListLiveData] - category: " + UNCATEGORIZED + " (ranked by relevance)");
+                return repo.searchUncategorizedByRelevance$(accountId, searchTerm);
+            }
+            case DEFAULT_CATEGORY:
+            default: {
+                final String category = selectedCategory.getCategory();
+                if (category == null) {
+                    throw new IllegalStateException(NavigationCategory.class.getSimpleName() + " type is " + DEFAULT_CATEGORY + ", but category is null.");
+                }
+                Log.v(TAG, "[getNotesListLiveData] - category: " + category + " (ranked by relevance)");
+                return repo.searchCategoryByRelevance$(accountId, searchTerm, category);
+            }
+        }
     }
 
-    private List<Item> fromNotes(List<Note> noteList, @NonNull NavigationCategory selectedCategory, @Nullable CategorySortingMethod sortingMethod) {
+    private PagingData<Item> fromNotes(PagingData<Note> notes, @NonNull NavigationCategory selectedCategory, @Nullable CategorySortingMethod sortingMethod) {
         if (selectedCategory.getType() == DEFAULT_CATEGORY) {
             final String category = selectedCategory.getCategory();
             if (category != null) {
-                return fillListByCategory(noteList, category);
+                return insertSectionsByCategory(notes, category, executor);
             } else {
                 throw new IllegalStateException(NavigationCategory.class.getSimpleName() + " type is " + DEFAULT_CATEGORY + ", but category is null.");
             }
         }
-        if (sortingMethod == SORT_MODIFIED_DESC) {
-            return fillListByTime(getApplication(), noteList);
+        if (sortingMethod == SORT_LEXICOGRAPHICAL_ASC) {
+            return insertSectionsByInitials(getApplication(), notes, executor);
         } else {
-            return fillListByInitials(getApplication(), noteList);
+            return insertSectionsByTime(getApplication(), notes, executor);
         }
     }
 
@@ -302,15 +357,18 @@ public class MainViewModel extends AndroidViewModel {
                 Log.v(TAG, "[getNavigationCategories] - currentAccount: " + currentAccount.getAccountName());
                 return switchMap(getExpandedCategory(), expandedCategory -> {
                     Log.v(TAG, "[getNavigationCategories] - expandedCategory: " + expandedCategory);
-                    return switchMap(repo.count$(currentAccount.getId()), (count) -> {
-                        Log.v(TAG, "[getNavigationCategories] - count: " + count);
-                        return switchMap(repo.countFavorites$(currentAccount.getId()), (favoritesCount) -> {
-                            Log.v(TAG, "[getNavigationCategories] - favoritesCount: " + favoritesCount);
-                            return distinctUntilChanged(map(repo.getCategories$(currentAccount.getId()), fromDatabase ->
-                                    fromCategoriesWithNotesCount(getApplication(), expandedCategory, fromDatabase, count, favoritesCount)
-                            ));
-                        });
-                    });
+                    return distinctUntilChanged(map(repo.getCategoryCounts$(currentAccount.getId()), categoryCounts -> {
+                        int count = 0;
+                        int favoritesCount = 0;
+                        final var fromDatabase = new ArrayList<CategoryWithNotesCount>(categoryCounts.size());
+                        for (final var categoryCount : categoryCounts) {
+                            count += categoryCount.getTotalNotes();
+                            favoritesCount += categoryCount.getFavoriteNotes();
+                            fromDatabase.add(categoryCount.toCategoryWithNotesCount());
+                        }
+                        Log.v(TAG, "[getNavigationCategories] - count: " + count + ", favoritesCount: " + favoritesCount);
+                        return fromCategoriesWithNotesCount(getApplication(), expandedCategory, fromDatabase, count, favoritesCount);
+                    }));
                 });
             }
         });
@@ -585,13 +643,24 @@ public class MainViewModel extends AndroidViewModel {
         });
     }
 
-    public LiveData<Void> updateNoteAndSync(@NonNull Note oldNote, @Nullable String newContent, @Nullable String newTitle) {
+    public LiveData<Note> updateNoteAndSync(@NonNull Note oldNote, @Nullable String newContent, @Nullable String newTitle) {
         return switchMap(getCurrentAccount(), currentAccount -> {
+            final var savedNote = new MutableLiveData<Note>();
             if (currentAccount != null) {
                 Log.v(TAG, "[updateNoteAndSync] - currentAccount: " + currentAccount.getAccountName());
-                repo.updateNoteAndSync(currentAccount, oldNote, newContent, newTitle, null);
+                repo.saveNoteAndSync(currentAccount, oldNote, newContent, newTitle, null, new IResponseCallback<>() {
+                    @Override
+                    public void onSuccess(Note result) {
+                        savedNote.postValue(result);
+                    }
+
+                    @Override
+                    public void onError(@NonNull Throwable t) {
+                        Log.e(TAG, "[updateNoteAndSync] - Could not save note", t);
+                    }
+                });
             }
-            return new MutableLiveData<>(null);
+            return savedNote;
         });
     }
 
@@ -11,11 +11,16 @@ import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.annotation.Px;
 import androidx.core.content.ContextCompat;
+import androidx.lifecycle.Lifecycle;
+import androidx.paging.AsyncPagingDataDiffer;
+import androidx.paging.CombinedLoadStates;
+import androidx.paging.PagingData;
 import androidx.preference.PreferenceManager;
 import androidx.recyclerview.selection.SelectionTracker;
+import androidx.recyclerview.widget.AdapterListUpdateCallback;
+import androidx.recyclerview.widget.DiffUtil;
 import androidx.recyclerview.widget.RecyclerView;
 
-import java.util.ArrayList;
 import java.util.List;
 
 import it.niedermann.owncloud.notes.R;
@@ -35,6 +40,9 @@ import it.niedermann.owncloud.notes.persistence.entity.Note;
 import it.niedermann.owncloud.notes.shared.model.Item;
 import it.niedermann.owncloud.notes.shared.model.NoteClickListener;
 
+import kotlin.Unit;
+import kotlin.jvm.functions.Function1;
+
 import static it.niedermann.owncloud.notes.shared.util.NoteUtil.getFontSizeFromPreferences;
 
 public class ItemAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder> implements Branded {
@@ -46,10 +54,28 @@ public class ItemAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder> i
     public static final int TYPE_NOTE_WITHOUT_EXCERPT = 2;
     public static final int TYPE_NOTE_ONLY_TITLE = 3;
 
+    private static final DiffUtil.ItemCallback<Item> DIFF_CALLBACK = new DiffUtil.ItemCallback<>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull Item oldItem, @NonNull Item newItem) {
+            if (oldItem.isSection() || newItem.isSection()) {
+                return oldItem.equals(newItem);
+            }
+            return ((Note) oldItem).getId() == ((Note) newItem).getId();
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull Item oldItem, @NonNull Item newItem) {
+            return oldItem.equals(newItem);
+        }
+    };
+
     private final NoteClickListener noteClickListener;
     private final boolean gridView;
+    /**
+     * Holds only the pages around the current viewport instead of all {@link Item}s of the list.
+     */
     @NonNull
-    private final List<Item> itemList = new ArrayList<>();
+    private final AsyncPagingDataDiffer<Item> differ = new AsyncPagingDataDiffer<>(DIFF_CALLBACK, new AdapterListUpdateCallback(this));
     private boolean showCategory = true;
     private CharSequence searchQuery;
     private SelectionTracker<Long> tracker = null;
@@ -82,14 +108,29 @@ public class ItemAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder> i
 
     /**
      * Updates the item list and notifies respective view to update.
+     * Only the changed {@link Item}s of the currently loaded pages will be rebound.
      *
-     * @param itemList List of items to be set
+     * @param lifecycle the {@link Lifecycle} which scopes the loading of the pages
+     * @param itemList  Paged list of items to be set
      */
-    public void setItemList(@NonNull List<Item> itemList) {
-        this.itemList.clear();
-        this.itemList.addAll(itemList);
+    public void setItemList(@NonNull Lifecycle lifecycle, @NonNull PagingData<Item> itemList) {
         this.swipedPosition = null;
-        notifyDataSetChanged();
+        differ.submitData(lifecycle, itemList);
+    }
+
+    /**
+     * @param listener gets notified whenever pages of the item list have been loaded
+     */
+    public void addLoadStateListener(@NonNull Function1<CombinedLoadStates, Unit> listener) {
+        differ.addLoadStateListener(listener);
+    }
+
+    /**
+     * @return the {@link Item}s of all currently loaded pages
+     */
+    @NonNull
+    public List<Item> getLoadedItems() {
+        return differ.snapshot().getItems();
     }
 
     @NonNull
@@ -143,15 +184,17 @@ public class ItemAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder> i
                 tracker.deselect(itemId);
             }
         }
+        // Accessing the item via the differ triggers loading further pages when approaching the end
+        final var item = differ.getItem(position);
         switch (getItemViewType(position)) {
             case TYPE_SECTION: {
-                ((SectionViewHolder) holder).bind((SectionItem) itemList.get(position));
+                ((SectionViewHolder) holder).bind((SectionItem) item);
                 break;
             }
             case TYPE_NOTE_WITH_EXCERPT:
             case TYPE_NOTE_WITHOUT_EXCERPT:
             case TYPE_NOTE_ONLY_TITLE: {
-                ((NoteViewHolder) holder).bind(isSelected, (Note) itemList.get(position), showCategory, color, searchQuery);
+                ((NoteViewHolder) holder).bind(isSelected, (Note) item, showCategory, color, searchQuery);
                 break;
             }
         }
@@ -161,17 +204,15 @@ public class ItemAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder> i
         this.tracker = tracker;
     }
 
+    /**
+     * @return the {@link Item} at the given position without triggering any page loads
+     */
     public Item getItem(int notePosition) {
-        return itemList.get(notePosition);
+        return differ.peek(notePosition);
     }
 
     public boolean hasItemPosition(int notePosition) {
-        return notePosition >= 0 && notePosition < itemList.size();
-    }
-
-    public void remove(@NonNull Item item) {
-        itemList.remove(item);
-        notifyDataSetChanged();
+        return notePosition >= 0 && notePosition < differ.getItemCount();
     }
 
     public void setShowCategory(boolean showCategory) {
@@ -180,7 +221,7 @@ public class ItemAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder> i
 
     @Override
     public int getItemCount() {
-        return itemList.size();
+        return differ.getItemCount();
     }
 
     @IntRange(from = 0, to = 3)
@@ -190,8 +231,13 @@ public class ItemAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder> i
         if (item == null) {
             throw new IllegalArgumentException("Item at position " + position + " must not be null");
         }
-        if (getItem(position).isSection()) return TYPE_SECTION;
-        final var note = (Note) getItem(position);
+        return getItemViewType(item);
+    }
+
+    @IntRange(from = 0, to = 3)
+    private static int getItemViewType(@NonNull Item item) {
+        if (item.isSection()) return TYPE_SECTION;
+        final var note = (Note) item;
         if (TextUtils.isEmpty(note.getExcerpt())) {
             if (TextUtils.isEmpty(note.getCategory())) {
                 return TYPE_NOTE_ONLY_TITLE;
@@ -214,12 +260,14 @@ public class ItemAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder> i
     }
 
     /**
-     * @return the position of the first {@link Item} which matches the given viewtype, -1 if not available
+     * @return the position of the first loaded {@link Item} which matches the given viewtype, -1 if not available
      */
     public int getFirstPositionOfViewType(@IntRange(from = 0, to = 3) int viewType) {
-        for (int i = 0; i < itemList.size(); i++) {
-            if (getItemViewType(i) == viewType) {
-                return i;
+        final var snapshot = differ.snapshot();
+        final var items = snapshot.getItems();
+        for (int i = 0; i < items.size(); i++) {
+            if (getItemViewType(items.get(i)) == viewType) {
+                return snapshot.getPlaceholdersBefore() + i;
             }
         }
         return -1;
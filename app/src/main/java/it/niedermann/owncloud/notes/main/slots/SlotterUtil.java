@@ -5,10 +5,13 @@ import android.text.TextUtils;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
+import androidx.paging.PagingData;
+import androidx.paging.PagingDataTransforms;
 
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.Executor;
 
 import it.niedermann.owncloud.notes.R;
 import it.niedermann.owncloud.notes.main.items.section.SectionItem;
@@ -60,14 +63,7 @@ public class SlotterUtil {
         String lastInitials = null;
         for (int i = 0; i < noteList.size(); i++) {
             final var currentNote = noteList.get(i);
-            final var title = currentNote.getTitle();
-            String initials = "";
-            if(!TextUtils.isEmpty(title)) {
-                initials = title.substring(0, 1).toUpperCase();
-                if (!initials.matches("[A-Z\\u00C0-\\u00DF]")) {
-                    initials = initials.matches("[\\u0250-\\uFFFF]") ? context.getString(R.string.simple_other) : "#";
-                }
-            }
+            final var initials = getInitials(context, currentNote);
             if (i > 0 && !initials.equals(lastInitials)) {
                 itemList.add(new SectionItem(initials));
             }
@@ -77,4 +73,62 @@ public class SlotterUtil {
 
         return itemList;
     }
+
+    /**
+     * Paged variant of {@link #fillListByCategory(List, String)}, the sections are inserted while the pages are being loaded.
+     */
+    @NonNull
+    public static PagingData<Item> insertSectionsByCategory(@NonNull PagingData<Note> notes, @Nullable String currentCategory, @NonNull Executor executor) {
+        return PagingDataTransforms.insertSeparators(notes, executor, (before, after) -> {
+            if (after == null) {
+                return null;
+            }
+            final var previousCategory = before == null ? currentCategory : before.getCategory();
+            return previousCategory != null && !previousCategory.equals(after.getCategory())
+                    ? new SectionItem(NoteUtil.extendCategory(after.getCategory()))
+                    : null;
+        });
+    }
+
+    /**
+     * Paged variant of {@link #fillListByTime(Context, List)}, the sections are inserted while the pages are being loaded.
+     */
+    @NonNull
+    public static PagingData<Item> insertSectionsByTime(@NonNull Context context, @NonNull PagingData<Note> notes, @NonNull Executor executor) {
+        final var timeslotter = new Timeslotter(context);
+        return PagingDataTransforms.insertSeparators(notes, executor, (before, after) -> {
+            if (before == null || after == null) {
+                return null;
+            }
+            final var timeslot = timeslotter.getTimeslot(after);
+            return timeslot.equals(timeslotter.getTimeslot(before)) ? null : new SectionItem(timeslot);
+        });
+    }
+
+    /**
+     * Paged variant of {@link #fillListByInitials(Context, List)}, the sections are inserted while the pages are being loaded.
+     */
+    @NonNull
+    public static PagingData<Item> insertSectionsByInitials(@NonNull Context context, @NonNull PagingData<Note> notes, @NonNull Executor executor) {
+        return PagingDataTransforms.insertSeparators(notes, executor, (before, after) -> {
+            if (before == null || after == null) {
+                return null;
+            }
+            final var initials = getInitials(context, after);
+            return initials.equals(getInitials(context, before)) ? null : new SectionItem(initials);
+        });
+    }
+
+    @NonNull
+    private static String getInitials(@NonNull Context context, @NonNull Note note) {
+        final var title = note.getTitle();
+        String initials = "";
+        if (!TextUtils.isEmpty(title)) {
+            initials = title.substring(0, 1).toUpperCase();
+            if (!initials.matches("[A-Z\\u00C0-\\u00DF]")) {
+                initials = initials.matches("[\\u0250-\\uFFFF]") ? context.getString(R.string.simple_other) : "#";
+            }
+        }
+        return initials;
+    }
 }
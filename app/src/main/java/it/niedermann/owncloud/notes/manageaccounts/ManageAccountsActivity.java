@@ -152,8 +152,7 @@ public class ManageAccountsActivity extends LockedActivity implements IManageAcc
                     final var property = binding.property.getText().toString();
                     executor.execute(() -> {
                         try {
-                            final var putSettingsCall = repository.putServerSettings(AccountImporter.getSingleSignOnAccount(this, localAccount.getAccountName()), settingsFactory.apply(property), getPreferredApiVersion(localAccount.getApiVersion()));
-                            putSettingsCall.enqueue(new Callback<>() {
+                            repository.putServerSettings(AccountImporter.getSingleSignOnAccount(this, localAccount.getAccountName()), settingsFactory.apply(property), getPreferredApiVersion(localAccount.getApiVersion()), new Callback<>() {
                                 @Override
                                 public void onResponse(@NonNull Call<NotesSettings> call, @NonNull Response<NotesSettings> response) {
                                     final var body = response.body();
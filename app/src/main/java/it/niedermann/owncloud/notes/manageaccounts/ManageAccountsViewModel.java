@@ -35,11 +35,13 @@ public class ManageAccountsViewModel extends AndroidViewModel {
     }
 
     public void getCurrentAccount(@NonNull Context context, @NonNull IResponseCallback<Account> callback) {
-        try {
-            callback.onSuccess(repo.getAccountByName((SingleAccountHelper.getCurrentSingleSignOnAccount(context).name)));
-        } catch (NextcloudFilesAppAccountNotFoundException | NoCurrentAccountSelectedException e) {
-            callback.onError(e);
-        }
+        executor.submit(() -> {
+            try {
+                callback.onSuccess(repo.getAccountByName((SingleAccountHelper.getCurrentSingleSignOnAccount(context).name)));
+            } catch (NextcloudFilesAppAccountNotFoundException | NoCurrentAccountSelectedException e) {
+                callback.onError(e);
+            }
+        });
     }
 
     public LiveData<List<Account>> getAccounts$() {
@@ -3,6 +3,7 @@ package it.niedermann.owncloud.notes.persistence;
 import android.content.Context;
 import android.util.Log;
 
+import androidx.annotation.AnyThread;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.annotation.WorkerThread;
@@ -18,9 +19,14 @@ import com.nextcloud.android.sso.model.SingleSignOnAccount;
 import java.util.Calendar;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
 
+import it.niedermann.owncloud.notes.persistence.sync.AdaptiveRequestScheduler;
 import it.niedermann.owncloud.notes.persistence.sync.CapabilitiesDeserializer;
 import it.niedermann.owncloud.notes.persistence.sync.FilesAPI;
+import it.niedermann.owncloud.notes.persistence.sync.NoteTypeAdapterFactory;
 import it.niedermann.owncloud.notes.persistence.sync.NotesAPI;
 import it.niedermann.owncloud.notes.persistence.sync.OcsAPI;
 import it.niedermann.owncloud.notes.shared.model.ApiVersion;
@@ -31,6 +37,9 @@ import retrofit2.Retrofit;
 /**
  * Since creating APIs via {@link Retrofit} uses reflection and {@link NextcloudAPI} <a href="https://github.com/nextcloud/Android-SingleSignOn/issues/120#issuecomment-540069990">is supposed to stay alive as long as possible</a>, those artifacts are going to be cached.
  * They can be invalidated by using either {@link #invalidateAPICache()} for all or {@link #invalidateAPICache(SingleSignOnAccount)} for a specific {@link SingleSignOnAccount} and will be recreated when they are queried the next time.
+ * <p>
+ * The artifacts of each {@link SingleSignOnAccount} are created lazily under the lock of its own {@link AccountApis},
+ * so threads working with different accounts or with artifacts which already exist never block each other.
  */
 @WorkerThread
 public class ApiProvider {
@@ -42,12 +51,13 @@ public class ApiProvider {
     private static final String API_ENDPOINT_OCS = "/ocs/v2.php/cloud/";
     private static final String API_ENDPOINT_FILES ="/ocs/v2.php/apps/files/api/v1/";
 
-    private static final Map<String, NextcloudAPI> API_CACHE = new ConcurrentHashMap<>();
-
-    private static final Map<String, OcsAPI> API_CACHE_OCS = new ConcurrentHashMap<>();
-    private static final Map<String, NotesAPI> API_CACHE_NOTES = new ConcurrentHashMap<>();
-    private static final Map<String, FilesAPI> API_CACHE_FILES = new ConcurrentHashMap<>();
+    private static final Map<String, AccountApis> API_CACHE = new ConcurrentHashMap<>();
+    /**
+     * Not part of the {@link #API_CACHE}, because the cache gets invalidated exactly when the server stops responding, which is when the reduced limit matters most.
+     */
+    private static final Map<String, AdaptiveRequestScheduler> SCHEDULERS = new ConcurrentHashMap<>();
 
+    private final ExecutorService warmUpExecutor = Executors.newSingleThreadExecutor();
 
     public static ApiProvider getInstance() {
         return INSTANCE;
@@ -60,57 +70,52 @@ public class ApiProvider {
     /**
      * An {@link OcsAPI} currently shares the {@link Gson} configuration with the {@link NotesAPI} and therefore divides all {@link Calendar} milliseconds by 1000 while serializing and multiplies values by 1000 during deserialization.
      */
-    public synchronized OcsAPI getOcsAPI(@NonNull Context context, @NonNull SingleSignOnAccount ssoAccount) {
-        if (API_CACHE_OCS.containsKey(ssoAccount.name)) {
-            return API_CACHE_OCS.get(ssoAccount.name);
-        }
-        final var ocsAPI = new NextcloudRetrofitApiBuilder(getNextcloudAPI(context, ssoAccount), API_ENDPOINT_OCS).create(OcsAPI.class);
-        API_CACHE_OCS.put(ssoAccount.name, ocsAPI);
-        return ocsAPI;
+    public OcsAPI getOcsAPI(@NonNull Context context, @NonNull SingleSignOnAccount ssoAccount) {
+        return getFromAccountApis(ssoAccount, accountApis -> accountApis.getOcsAPI(context));
     }
 
     /**
      * In case the {@param preferredApiVersion} changes, call {@link #invalidateAPICache(SingleSignOnAccount)} or {@link #invalidateAPICache()} to make sure that this call returns a {@link NotesAPI} that uses the correct compatibility layer.
      */
-    public synchronized NotesAPI getNotesAPI(@NonNull Context context, @NonNull SingleSignOnAccount ssoAccount, @Nullable ApiVersion preferredApiVersion) {
-        if (API_CACHE_NOTES.containsKey(ssoAccount.name)) {
-            return API_CACHE_NOTES.get(ssoAccount.name);
-        }
-        final var notesAPI = new NotesAPI(getNextcloudAPI(context, ssoAccount), preferredApiVersion);
-        API_CACHE_NOTES.put(ssoAccount.name, notesAPI);
-        return notesAPI;
+    public NotesAPI getNotesAPI(@NonNull Context context, @NonNull SingleSignOnAccount ssoAccount, @Nullable ApiVersion preferredApiVersion) {
+        return getFromAccountApis(ssoAccount, accountApis -> accountApis.getNotesAPI(context, preferredApiVersion));
     }
 
-    public synchronized FilesAPI getFilesAPI(@NonNull Context context, @NonNull SingleSignOnAccount ssoAccount) {
-        if (API_CACHE_FILES.containsKey(ssoAccount.name)) {
-            return API_CACHE_FILES.get(ssoAccount.name);
-        }
-        final var filesAPI = new NextcloudRetrofitApiBuilder(getNextcloudAPI(context, ssoAccount), API_ENDPOINT_FILES).create(FilesAPI.class);
-        API_CACHE_FILES.put(ssoAccount.name, filesAPI);
-        return filesAPI;
+    public FilesAPI getFilesAPI(@NonNull Context context, @NonNull SingleSignOnAccount ssoAccount) {
+        return getFromAccountApis(ssoAccount, accountApis -> accountApis.getFilesAPI(context));
+    }
+
+    /**
+     * Binds the SingleSignOn service and creates the APIs of the given {@param ssoAccount} in the background,
+     * so the first request does not have to pay for it on whichever thread it is made.
+     */
+    @AnyThread
+    public void warmUp(@NonNull Context context, @NonNull SingleSignOnAccount ssoAccount, @Nullable ApiVersion preferredApiVersion) {
+        final var applicationContext = context.getApplicationContext();
+        warmUpExecutor.submit(() -> {
+            Log.v(TAG, "Warming up APIs for " + ssoAccount.name);
+            try {
+                getNotesAPI(applicationContext, ssoAccount, preferredApiVersion);
+                getOcsAPI(applicationContext, ssoAccount);
+                getFilesAPI(applicationContext, ssoAccount);
+            } catch (Throwable t) {
+                Log.w(TAG, "Could not warm up APIs for " + ssoAccount.name, t);
+            }
+        });
     }
 
-    private synchronized NextcloudAPI getNextcloudAPI(@NonNull Context context, @NonNull SingleSignOnAccount ssoAccount) {
-        if (API_CACHE.containsKey(ssoAccount.name)) {
-            return API_CACHE.get(ssoAccount.name);
-        } else {
-            Log.v(TAG, "NextcloudRequest account: " + ssoAccount.name);
-            final var nextcloudAPI = new NextcloudAPI(context.getApplicationContext(), ssoAccount,
-                    new GsonBuilder()
-                            .excludeFieldsWithoutExposeAnnotation()
-                            .registerTypeHierarchyAdapter(Calendar.class, (JsonSerializer<Calendar>) (src, typeOfSrc, ctx) -> new JsonPrimitive(src.getTimeInMillis() / 1_000))
-                            .registerTypeHierarchyAdapter(Calendar.class, (JsonDeserializer<Calendar>) (src, typeOfSrc, ctx) -> {
-                                final var calendar = Calendar.getInstance();
-                                calendar.setTimeInMillis(src.getAsLong() * 1_000);
-                                return calendar;
-                            })
-                            .registerTypeAdapter(Capabilities.class, new CapabilitiesDeserializer())
-                            .create(), (e) -> {
-                invalidateAPICache(ssoAccount);
-                e.printStackTrace();
-            });
-            API_CACHE.put(ssoAccount.name, nextcloudAPI);
-            return nextcloudAPI;
+    /**
+     * The {@link AccountApis} might get invalidated between looking them up and using them.
+     * Stopped {@link AccountApis} do not create any new artifacts, in this case the lookup is repeated to get the current ones.
+     */
+    @NonNull
+    private <T> T getFromAccountApis(@NonNull SingleSignOnAccount ssoAccount, @NonNull Function<AccountApis, T> getter) {
+        while (true) {
+            final var api = getter.apply(API_CACHE.computeIfAbsent(ssoAccount.name, name -> new AccountApis(ssoAccount)));
+            if (api != null) {
+                return api;
+            }
+            Log.v(TAG, "APIs of " + ssoAccount.name + " have been invalidated in the meantime");
         }
     }
 
@@ -119,34 +124,145 @@ public class ApiProvider {
      *
      * @param ssoAccount the ssoAccount for which the API cache should be cleared.
      */
-    public synchronized void invalidateAPICache(@NonNull SingleSignOnAccount ssoAccount) {
+    @AnyThread
+    public void invalidateAPICache(@NonNull SingleSignOnAccount ssoAccount) {
         Log.v(TAG, "Invalidating API cache for " + ssoAccount.name);
-        if (API_CACHE.containsKey(ssoAccount.name)) {
-            final var nextcloudAPI = API_CACHE.get(ssoAccount.name);
-            if (nextcloudAPI != null) {
-                nextcloudAPI.stop();
-            }
-            API_CACHE.remove(ssoAccount.name);
+        final var accountApis = API_CACHE.remove(ssoAccount.name);
+        if (accountApis != null) {
+            accountApis.stop();
         }
-        API_CACHE_NOTES.remove(ssoAccount.name);
-        API_CACHE_OCS.remove(ssoAccount.name);
     }
 
     /**
      * Invalidates the whole API cache for all accounts
      */
-    public synchronized void invalidateAPICache() {
+    @AnyThread
+    public void invalidateAPICache() {
         for (final String key : API_CACHE.keySet()) {
             Log.v(TAG, "Invalidating API cache for " + key);
-            if (API_CACHE.containsKey(key)) {
-                final var nextcloudAPI = API_CACHE.get(key);
-                if (nextcloudAPI != null) {
-                    nextcloudAPI.stop();
+            final var accountApis = API_CACHE.remove(key);
+            if (accountApis != null) {
+                accountApis.stop();
+            }
+        }
+    }
+
+    /**
+     * Lazily creates and holds all APIs of one {@link SingleSignOnAccount}.
+     * Once {@link #stop()}ped, the getters return <code>null</code> instead of creating artifacts which nobody would ever stop.
+     */
+    private class AccountApis {
+
+        @NonNull
+        private final SingleSignOnAccount ssoAccount;
+        private volatile NextcloudAPI nextcloudAPI;
+        private volatile OcsAPI ocsAPI;
+        private volatile NotesAPI notesAPI;
+        private volatile FilesAPI filesAPI;
+        private boolean stopped = false;
+
+        private AccountApis(@NonNull SingleSignOnAccount ssoAccount) {
+            this.ssoAccount = ssoAccount;
+        }
+
+        @Nullable
+        private OcsAPI getOcsAPI(@NonNull Context context) {
+            var api = ocsAPI;
+            if (api == null) {
+                synchronized (this) {
+                    if (stopped) {
+                        return null;
+                    }
+                    api = ocsAPI;
+                    if (api == null) {
+                        api = new NextcloudRetrofitApiBuilder(getNextcloudAPI(context), API_ENDPOINT_OCS).create(OcsAPI.class);
+                        ocsAPI = api;
+                    }
+                }
+            }
+            return api;
+        }
+
+        @Nullable
+        private NotesAPI getNotesAPI(@NonNull Context context, @Nullable ApiVersion preferredApiVersion) {
+            var api = notesAPI;
+            if (api == null) {
+                synchronized (this) {
+                    if (stopped) {
+                        return null;
+                    }
+                    api = notesAPI;
+                    if (api == null) {
+                        api = new NotesAPI(getNextcloudAPI(context), preferredApiVersion, SCHEDULERS.computeIfAbsent(ssoAccount.name, name -> new AdaptiveRequestScheduler()));
+                        notesAPI = api;
+                    }
+                }
+            }
+            return api;
+        }
+
+        @Nullable
+        private FilesAPI getFilesAPI(@NonNull Context context) {
+            var api = filesAPI;
+            if (api == null) {
+                synchronized (this) {
+                    if (stopped) {
+                        return null;
+                    }
+                    api = filesAPI;
+                    if (api == null) {
+                        api = new NextcloudRetrofitApiBuilder(getNextcloudAPI(context), API_ENDPOINT_FILES).create(FilesAPI.class);
+                        filesAPI = api;
+                    }
+                }
+            }
+            return api;
+        }
+
+        /**
+         * Must only be called while holding the lock of these {@link AccountApis} and after checking that they have not been {@link #stop()}ped.
+         */
+        private NextcloudAPI getNextcloudAPI(@NonNull Context context) {
+            var api = nextcloudAPI;
+            if (api == null) {
+                synchronized (this) {
+                    api = nextcloudAPI;
+                    if (api == null) {
+                        Log.v(TAG, "NextcloudRequest account: " + ssoAccount.name);
+                        api = new NextcloudAPI(context.getApplicationContext(), ssoAccount,
+                                new GsonBuilder()
+                                        .excludeFieldsWithoutExposeAnnotation()
+                                        .registerTypeHierarchyAdapter(Calendar.class, (JsonSerializer<Calendar>) (src, typeOfSrc, ctx) -> new JsonPrimitive(src.getTimeInMillis() / 1_000))
+                                        .registerTypeHierarchyAdapter(Calendar.class, (JsonDeserializer<Calendar>) (src, typeOfSrc, ctx) -> {
+                                            final var calendar = Calendar.getInstance();
+                                            calendar.setTimeInMillis(src.getAsLong() * 1_000);
+                                            return calendar;
+                                        })
+                                        .registerTypeAdapter(Capabilities.class, new CapabilitiesDeserializer())
+                                        .registerTypeAdapterFactory(new NoteTypeAdapterFactory())
+                                        .create(), (e) -> {
+                            // Only drop these APIs, the account might have been registered again in the meantime
+                            if (API_CACHE.remove(ssoAccount.name, this)) {
+                                stop();
+                            }
+                            e.printStackTrace();
+                        });
+                        nextcloudAPI = api;
+                    }
                 }
-                API_CACHE.remove(key);
             }
+            return api;
+        }
+
+        private synchronized void stop() {
+            stopped = true;
+            if (nextcloudAPI != null) {
+                nextcloudAPI.stop();
+            }
+            nextcloudAPI = null;
+            ocsAPI = null;
+            notesAPI = null;
+            filesAPI = null;
         }
-        API_CACHE_NOTES.clear();
-        API_CACHE_OCS.clear();
     }
 }
@@ -5,12 +5,14 @@ import android.util.Log;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
 import androidx.annotation.WorkerThread;
 
 import com.nextcloud.android.sso.api.ParsedResponse;
 import com.nextcloud.android.sso.model.SingleSignOnAccount;
 
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 import it.niedermann.owncloud.notes.persistence.sync.OcsAPI;
 import it.niedermann.owncloud.notes.shared.model.Capabilities;
@@ -25,19 +27,26 @@ public class CapabilitiesClient {
 
     private static final String HEADER_KEY_ETAG = "ETag";
 
+    /**
+     * Capabilities and display names are requested by the {@link CapabilitiesWorker}, the account import and when opening the app, often at the same time.
+     */
+    private static final SingleFlightCache CACHE = new SingleFlightCache(TimeUnit.SECONDS.toMillis(30));
+
     @WorkerThread
     public static Capabilities getCapabilities(@NonNull Context context, @NonNull SingleSignOnAccount ssoAccount, @Nullable String lastETag, @NonNull ApiProvider apiProvider) throws Throwable {
         final var ocsAPI = apiProvider.getOcsAPI(context, ssoAccount);
         try {
-            final var response = ocsAPI.getCapabilities(lastETag).blockingSingle();
-            final var capabilities = response.getResponse().ocs.data;
-            final var headers = response.getHeaders();
-            if (headers != null) {
-                capabilities.setETag(headers.get(HEADER_KEY_ETAG));
-            } else {
-                Log.w(TAG, "Response headers of capabilities are null");
-            }
-            return capabilities;
+            return CACHE.get(ssoAccount.name + "/capabilities/" + lastETag, () -> {
+                final var response = ocsAPI.getCapabilities(lastETag).blockingSingle();
+                final var capabilities = response.getResponse().ocs.data;
+                final var headers = response.getHeaders();
+                if (headers != null) {
+                    capabilities.setETag(headers.get(HEADER_KEY_ETAG));
+                } else {
+                    Log.w(TAG, "Response headers of capabilities are null");
+                }
+                return capabilities;
+            });
         } catch (RuntimeException e) {
             final var cause = e.getCause();
             if (cause != null) {
@@ -53,20 +62,28 @@ public class CapabilitiesClient {
     public static String getDisplayName(@NonNull Context context, @NonNull SingleSignOnAccount ssoAccount, @NonNull ApiProvider apiProvider) {
         final var ocsAPI = apiProvider.getOcsAPI(context, ssoAccount);
         try {
-            final var userResponse = ocsAPI.getUser(ssoAccount.userId).execute();
-            if (userResponse.isSuccessful()) {
-                final var ocsResponse = userResponse.body();
-                if (ocsResponse != null) {
-                    return ocsResponse.ocs.data.displayName;
+            return CACHE.get(ssoAccount.name + "/user/" + ssoAccount.userId, () -> {
+                final var userResponse = ocsAPI.getUser(ssoAccount.userId).execute();
+                if (userResponse.isSuccessful()) {
+                    final var ocsResponse = userResponse.body();
+                    if (ocsResponse != null) {
+                        return ocsResponse.ocs.data.displayName;
+                    } else {
+                        Log.w(TAG, "ocsResponse is null");
+                    }
                 } else {
-                    Log.w(TAG, "ocsResponse is null");
+                    Log.w(TAG, "Fetching user was not successful.");
                 }
-            } else {
-                Log.w(TAG, "Fetching user was not successful.");
-            }
+                return null;
+            });
         } catch (Throwable t) {
             t.printStackTrace();
         }
         return null;
     }
+
+    @VisibleForTesting
+    static void clearCache() {
+        CACHE.clear();
+    }
 }
@@ -0,0 +1,124 @@
+package it.niedermann.owncloud.notes.persistence;
+
+import static android.net.NetworkCapabilities.NET_CAPABILITY_INTERNET;
+import static android.net.NetworkCapabilities.NET_CAPABILITY_NOT_METERED;
+import static android.net.NetworkCapabilities.NET_CAPABILITY_VALIDATED;
+
+import android.net.ConnectivityManager;
+import android.net.Network;
+import android.net.NetworkCapabilities;
+import android.util.Log;
+
+import androidx.annotation.AnyThread;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MutableLiveData;
+
+import java.util.function.Consumer;
+
+import it.niedermann.owncloud.notes.shared.model.ConnectivityState;
+
+/**
+ * Observes the default network of the device with a {@link ConnectivityManager.NetworkCallback} and publishes its {@link ConnectivityState}.
+ * <p>
+ * The callback is invoked by the system as soon as a network appears, is lost or its capabilities (metered, validated) change, so there is no need to poll.
+ */
+class ConnectivityMonitor extends ConnectivityManager.NetworkCallback {
+
+    private static final String TAG = ConnectivityMonitor.class.getSimpleName();
+
+    @NonNull
+    private final ConnectivityManager connectivityManager;
+    @NonNull
+    private final Consumer<ConnectivityState> onChanged;
+    @NonNull
+    private volatile ConnectivityState state;
+    @NonNull
+    private final MutableLiveData<ConnectivityState> state$;
+
+    /**
+     * @param onChanged called on a system thread whenever the {@link ConnectivityState} changes
+     */
+    ConnectivityMonitor(@NonNull ConnectivityManager connectivityManager, @NonNull Consumer<ConnectivityState> onChanged) {
+        this.connectivityManager = connectivityManager;
+        this.onChanged = onChanged;
+        this.state = readState();
+        this.state$ = new MutableLiveData<>(state);
+    }
+
+    @AnyThread
+    void register() {
+        connectivityManager.registerDefaultNetworkCallback(this);
+    }
+
+    @AnyThread
+    void unregister() {
+        connectivityManager.unregisterNetworkCallback(this);
+    }
+
+    @NonNull
+    @AnyThread
+    ConnectivityState getState() {
+        return state;
+    }
+
+    @NonNull
+    LiveData<ConnectivityState> getState$() {
+        return state$;
+    }
+
+    /**
+     * Reads the {@link ConnectivityState} of the default network directly, e.g. in case the system did not invoke the callback yet.
+     */
+    @NonNull
+    @AnyThread
+    ConnectivityState refresh() {
+        update(readState());
+        return state;
+    }
+
+    @Override
+    public void onAvailable(@NonNull Network network) {
+        // Capabilities are not guaranteed to be reported after onAvailable before API 26
+        update(toState(connectivityManager.getNetworkCapabilities(network)));
+    }
+
+    @Override
+    public void onCapabilitiesChanged(@NonNull Network network, @NonNull NetworkCapabilities networkCapabilities) {
+        update(toState(networkCapabilities));
+    }
+
+    @Override
+    public void onLost(@NonNull Network network) {
+        update(ConnectivityState.DISCONNECTED);
+    }
+
+    @NonNull
+    private ConnectivityState readState() {
+        final var network = connectivityManager.getActiveNetwork();
+        return network == null ? ConnectivityState.DISCONNECTED : toState(connectivityManager.getNetworkCapabilities(network));
+    }
+
+    @NonNull
+    private static ConnectivityState toState(@Nullable NetworkCapabilities networkCapabilities) {
+        if (networkCapabilities == null || !networkCapabilities.hasCapability(NET_CAPABILITY_INTERNET)) {
+            return ConnectivityState.DISCONNECTED;
+        }
+        return new ConnectivityState(true,
+                networkCapabilities.hasCapability(NET_CAPABILITY_NOT_METERED),
+                networkCapabilities.hasCapability(NET_CAPABILITY_VALIDATED));
+    }
+
+    private void update(@NonNull ConnectivityState newState) {
+        synchronized (this) {
+            if (state.equals(newState)) {
+                return;
+            }
+            state = newState;
+        }
+        Log.d(TAG, "Connectivity changed: " + newState);
+        state$.postValue(newState);
+        onChanged.accept(newState);
+    }
+}
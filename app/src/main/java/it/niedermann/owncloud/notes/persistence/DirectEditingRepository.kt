@@ -20,9 +20,8 @@ class DirectEditingRepository private constructor(private val applicationContext
 
     private fun getNotesPath(account: SingleSignOnAccount): Single<String> {
         return Single.fromCallable {
-            val call = notesRepository.getServerSettings(account, ApiVersion.API_VERSION_1_0)
-            val response = call.execute()
-            response.body()?.notesPath ?: throw RuntimeException("No notes path available")
+            val settings = notesRepository.fetchServerSettings(account, ApiVersion.API_VERSION_1_0)
+            settings?.notesPath ?: throw RuntimeException("No notes path available")
         }.subscribeOn(Schedulers.io())
     }
 
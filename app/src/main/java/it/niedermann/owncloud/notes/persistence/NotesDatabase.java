@@ -12,13 +12,21 @@ import androidx.sqlite.db.SupportSQLiteDatabase;
 
 import it.niedermann.owncloud.notes.persistence.dao.AccountDao;
 import it.niedermann.owncloud.notes.persistence.dao.CategoryOptionsDao;
+import it.niedermann.owncloud.notes.persistence.dao.ImportCheckpointDao;
 import it.niedermann.owncloud.notes.persistence.dao.NoteDao;
+import it.niedermann.owncloud.notes.persistence.dao.NoteUiStateDao;
 import it.niedermann.owncloud.notes.persistence.dao.WidgetNotesListDao;
 import it.niedermann.owncloud.notes.persistence.dao.WidgetSingleNoteDao;
 import it.niedermann.owncloud.notes.persistence.entity.Account;
+import it.niedermann.owncloud.notes.persistence.entity.CategoryCount;
 import it.niedermann.owncloud.notes.persistence.entity.CategoryOptions;
+import it.niedermann.owncloud.notes.persistence.entity.CompressedNoteFts;
 import it.niedermann.owncloud.notes.persistence.entity.Converters;
+import it.niedermann.owncloud.notes.persistence.entity.ImportCheckpoint;
 import it.niedermann.owncloud.notes.persistence.entity.Note;
+import it.niedermann.owncloud.notes.persistence.entity.NoteContent;
+import it.niedermann.owncloud.notes.persistence.entity.NoteFts;
+import it.niedermann.owncloud.notes.persistence.entity.NoteUiState;
 import it.niedermann.owncloud.notes.persistence.entity.NotesListWidgetData;
 import it.niedermann.owncloud.notes.persistence.entity.SingleNoteWidgetData;
 import it.niedermann.owncloud.notes.persistence.migration.*;
@@ -26,10 +34,16 @@ import it.niedermann.owncloud.notes.persistence.migration.*;
         entities = {
                 Account.class,
                 Note.class,
+                CategoryCount.class,
+                NoteContent.class,
+                NoteFts.class,
+                CompressedNoteFts.class,
+                NoteUiState.class,
                 CategoryOptions.class,
                 SingleNoteWidgetData.class,
-                NotesListWidgetData.class
-        }, version = 25
+                NotesListWidgetData.class,
+                ImportCheckpoint.class
+        }, version = 26
 )
 @TypeConverters({Converters.class})
 public abstract class NotesDatabase extends RoomDatabase {
@@ -38,6 +52,21 @@ public abstract class NotesDatabase extends RoomDatabase {
     private static final String NOTES_DB_NAME = "OWNCLOUD_NOTES";
     private static volatile NotesDatabase instance;
 
+    /**
+     * Creates the triggers which can not be declared using Room annotations.
+     */
+    static final RoomDatabase.Callback CALLBACK = new RoomDatabase.Callback() {
+        @Override
+        public void onCreate(@NonNull SupportSQLiteDatabase db) {
+            super.onCreate(db);
+            Migration_25_26.createNoteContentTitleTrigger(db);
+            Migration_25_26.createCategoryCleanupTriggers(db);
+            Migration_25_26.createCategoryCountTriggers(db);
+            Migration_25_26.createCompressedNoteFtsTriggers(db);
+            Log.v(TAG, NotesDatabase.class.getSimpleName() + " created.");
+        }
+    };
+
     public static NotesDatabase getInstance(@NonNull Context context) {
         if (instance == null) {
             instance = create(context.getApplicationContext());
@@ -66,21 +95,12 @@ public abstract class NotesDatabase extends RoomDatabase {
                         new Migration_21_22(context),
                         new Migration_22_23(),
                         new Migration_23_24(context),
-                        new Migration_24_25()
+                        new Migration_24_25(),
+                        new Migration_25_26(context)
                 )
                 .fallbackToDestructiveMigrationOnDowngrade()
                 .fallbackToDestructiveMigration()
-                .addCallback(new RoomDatabase.Callback() {
-                    @Override
-                    public void onCreate(@NonNull SupportSQLiteDatabase db) {
-                        super.onCreate(db);
-                        final String cleanUpStatement = "DELETE FROM CategoryOptions WHERE CategoryOptions.category NOT IN (SELECT Note.category FROM Note WHERE Note.accountId = CategoryOptions.accountId);";
-                        db.execSQL("CREATE TRIGGER TRG_CLEANUP_CATEGORIES_DEL AFTER DELETE ON Note BEGIN " + cleanUpStatement + " END;");
-                        db.execSQL("CREATE TRIGGER TRG_CLEANUP_CATEGORIES_UPD AFTER UPDATE ON Note BEGIN " + cleanUpStatement + " END;");
-                        Log.v(TAG, NotesDatabase.class.getSimpleName() + " created.");
-                    }
-                })
-                .allowMainThreadQueries() // FIXME Needed in BaseNoteFragment#saveNote()
+                .addCallback(CALLBACK)
                 .build();
     }
 
@@ -90,7 +110,11 @@ public abstract class NotesDatabase extends RoomDatabase {
 
     public abstract NoteDao getNoteDao();
 
+    public abstract NoteUiStateDao getNoteUiStateDao();
+
     public abstract WidgetSingleNoteDao getWidgetSingleNoteDao();
 
     public abstract WidgetNotesListDao getWidgetNotesListDao();
+
+    public abstract ImportCheckpointDao getImportCheckpointDao();
 }
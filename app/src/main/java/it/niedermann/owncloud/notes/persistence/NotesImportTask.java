@@ -1,5 +1,8 @@
 package it.niedermann.owncloud.notes.persistence;
 
+import static java.net.HttpURLConnection.HTTP_BAD_REQUEST;
+import static it.niedermann.owncloud.notes.persistence.NotesServerSyncTask.HEADER_KEY_X_NOTES_CHUNK_CURSOR;
+
 import android.content.Context;
 import android.util.Log;
 
@@ -9,22 +12,46 @@ import androidx.lifecycle.MutableLiveData;
 
 import com.nextcloud.android.sso.AccountImporter;
 import com.nextcloud.android.sso.exceptions.NextcloudFilesAppAccountNotFoundException;
+import com.nextcloud.android.sso.exceptions.NextcloudHttpRequestFailedException;
 
-import java.util.concurrent.CountDownLatch;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.function.Consumer;
 
 import it.niedermann.owncloud.notes.persistence.entity.Account;
+import it.niedermann.owncloud.notes.persistence.entity.ImportCheckpoint;
+import it.niedermann.owncloud.notes.persistence.entity.Note;
 import it.niedermann.owncloud.notes.persistence.sync.NotesAPI;
 import it.niedermann.owncloud.notes.shared.model.IResponseCallback;
 import it.niedermann.owncloud.notes.shared.model.ImportStatus;
 import it.niedermann.owncloud.notes.shared.util.ApiVersionUtil;
 
 
+/**
+ * Imports all {@link Note}s of a new {@link Account} page by page from the list endpoint instead of requesting each {@link Note} on its own.
+ * Each page is written with one transaction and reported as one progress step.
+ * Servers which do not support chunked listings deliver all {@link Note}s with a single response, which is still written page by page.
+ * <p>
+ * The progress is persisted as {@link ImportCheckpoint}, which must exist before the import starts.
+ * An interrupted import continues at the last persisted chunk and skips all {@link Note}s which have already been stored.
+ * <p>
+ * All requests are passed through the {@link it.niedermann.owncloud.notes.persistence.sync.AdaptiveRequestScheduler} of the {@link NotesAPI},
+ * so an import does not add to the load of a server which is already busy with synchronizing the same account.
+ */
 public class NotesImportTask {
 
     private static final String TAG = NotesImportTask.class.getSimpleName();
 
+    /**
+     * Amount of {@link Note}s requested and written at once
+     */
+    private static final int IMPORT_PAGE_SIZE = 100;
+
     private final NotesAPI notesAPI;
     @NonNull
     private final NotesRepository repo;
@@ -32,18 +59,14 @@ public class NotesImportTask {
     private final Account localAccount;
     @NonNull
     private final ExecutorService executor;
-    @NonNull
-    private final ExecutorService fetchExecutor;
 
+    /**
+     * @param executor owned by the {@link NotesRepository}, the import will run on one of its threads
+     */
     NotesImportTask(@NonNull Context context, @NonNull NotesRepository repo, @NonNull Account localAccount, @NonNull ExecutorService executor, @NonNull ApiProvider apiProvider) throws NextcloudFilesAppAccountNotFoundException {
-        this(context, repo, localAccount, executor, Executors.newFixedThreadPool(20), apiProvider);
-    }
-
-    private NotesImportTask(@NonNull Context context, @NonNull NotesRepository repo, @NonNull Account localAccount, @NonNull ExecutorService executor, @NonNull ExecutorService fetchExecutor, @NonNull ApiProvider apiProvider) throws NextcloudFilesAppAccountNotFoundException {
         this.repo = repo;
         this.localAccount = localAccount;
         this.executor = executor;
-        this.fetchExecutor = fetchExecutor;
         this.notesAPI = apiProvider.getNotesAPI(context, AccountImporter.getSingleSignOnAccount(context, localAccount.getAccountName()), ApiVersionUtil.getPreferredApiVersion(localAccount.getApiVersion()));
     }
 
@@ -51,45 +74,102 @@ public class NotesImportTask {
         final var status$ = new MutableLiveData<ImportStatus>();
         Log.i(TAG, "STARTING IMPORT");
         executor.submit(() -> {
-            Log.i(TAG, "… Fetching notes IDs");
             final var status = new ImportStatus();
             try {
-                final var remoteIds = notesAPI.getNotesIDs().blockingSingle();
-                status.total = remoteIds.size();
-                status$.postValue(status);
-                Log.i(TAG, "… Total count: " + remoteIds.size());
-                final var latch = new CountDownLatch(remoteIds.size());
-                for (long id : remoteIds) {
-                    fetchExecutor.submit(() -> {
-                        try {
-                            repo.addNote(localAccount.getId(), notesAPI.getNote(id).blockingSingle().getResponse());
-                        } catch (Throwable t) {
-                            Log.w(TAG, "Could not import note with remoteId " + id + ": " + t.getMessage());
-                            status.warnings.add(t);
-                        }
-                        status.count++;
-                        status$.postValue(status);
-                        latch.countDown();
-                    });
-                }
-                try {
-                    latch.await();
-                    Log.i(TAG, "IMPORT FINISHED");
+                final var checkpoint = repo.getImportCheckpoint(localAccount.getId());
+                if (checkpoint == null) {
+                    Log.i(TAG, "… Import has already been finished");
                     callback.onSuccess(null);
-                } catch (InterruptedException e) {
-                    callback.onError(e);
+                    return;
                 }
+                final Set<Long> importedRemoteIds = new HashSet<>(repo.getIdMap(localAccount.getId()).keySet());
+                if (checkpoint.getTotal() == 0) {
+                    Log.i(TAG, "… Fetching notes IDs");
+                    checkpoint.setTotal(notesAPI.getScheduler().executeStreaming(() -> notesAPI.getNotesIDs().blockingSingle()).size());
+                    repo.updateImportTotal(localAccount.getId(), checkpoint.getTotal());
+                } else {
+                    Log.i(TAG, "… Continuing after " + importedRemoteIds.size() + " imported notes");
+                }
+                status.total = checkpoint.getTotal();
+                status.count = importedRemoteIds.size();
+                status$.postValue(status);
+                Log.i(TAG, "… Total count: " + status.total);
+
+                final var page = new ArrayList<Note>(IMPORT_PAGE_SIZE);
+                final Consumer<Note> collector = note -> {
+                    if (importedRemoteIds.contains(note.getRemoteId())) {
+                        return;
+                    }
+                    page.add(note);
+                    if (page.size() >= IMPORT_PAGE_SIZE) {
+                        importPage(page, status, status$);
+                    }
+                };
+                var chunkCursor = checkpoint.getChunkCursor();
+                var headers = chunkCursor == null
+                        ? streamAllNotes(collector)
+                        : streamNotesChunk(chunkCursor, collector);
+                chunkCursor = headers.get(HEADER_KEY_X_NOTES_CHUNK_CURSOR);
+                while (chunkCursor != null) {
+                    // The cursor may only be persisted after all notes of the previous chunks have been stored
+                    importPage(page, status, status$);
+                    repo.updateImportChunkCursor(localAccount.getId(), chunkCursor);
+                    Log.v(TAG, "… Fetching next page");
+                    final var nextChunkCursor = chunkCursor;
+                    headers = notesAPI.getScheduler().executeStreaming(() -> notesAPI.streamNotesChunk(IMPORT_PAGE_SIZE, nextChunkCursor, collector));
+                    chunkCursor = headers.get(HEADER_KEY_X_NOTES_CHUNK_CURSOR);
+                }
+                importPage(page, status, status$);
+                repo.finishImport(localAccount.getId());
+                Log.i(TAG, "IMPORT FINISHED");
+                callback.onSuccess(null);
             } catch (Throwable t) {
                 final Throwable cause = t.getCause();
                 if (t.getClass() == RuntimeException.class && cause != null) {
-                    Log.e(TAG, "Could not fetch list of note IDs: " + cause.getMessage());
+                    Log.e(TAG, "Could not fetch notes: " + cause.getMessage());
                     callback.onError(cause);
                 } else {
-                    Log.e(TAG, "Could not fetch list of note IDs: " + t.getMessage());
+                    Log.e(TAG, "Could not fetch notes: " + t.getMessage());
                     callback.onError(t);
                 }
             }
         });
         return status$;
     }
+
+    private Map<String, String> streamAllNotes(@NonNull Consumer<Note> consumer) throws Exception {
+        final var everything = Calendar.getInstance();
+        everything.setTimeInMillis(0);
+        return notesAPI.getScheduler().executeStreaming(() -> notesAPI.streamNotes(everything, null, IMPORT_PAGE_SIZE, false, consumer));
+    }
+
+    /**
+     * Starts over with the whole listing in case the server rejects the persisted {@param chunkCursor}, e.g. because it has expired.
+     */
+    private Map<String, String> streamNotesChunk(@NonNull String chunkCursor, @NonNull Consumer<Note> consumer) throws Exception {
+        try {
+            return notesAPI.getScheduler().executeStreaming(() -> notesAPI.streamNotesChunk(IMPORT_PAGE_SIZE, chunkCursor, consumer));
+        } catch (RuntimeException e) {
+            if (e.getCause() instanceof NextcloudHttpRequestFailedException && ((NextcloudHttpRequestFailedException) e.getCause()).getStatusCode() == HTTP_BAD_REQUEST) {
+                Log.w(TAG, "Server rejected chunk cursor " + chunkCursor + " - start over and skip the already imported notes.");
+                repo.updateImportChunkCursor(localAccount.getId(), null);
+                return streamAllNotes(consumer);
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Writes and clears the given {@param page}.
+     * A failure aborts the import before the next chunk cursor is persisted, so continuing the import retries the {@link Note}s of this {@param page}.
+     */
+    private void importPage(@NonNull List<Note> page, @NonNull ImportStatus status, @NonNull MutableLiveData<ImportStatus> status$) {
+        if (page.isEmpty()) {
+            return;
+        }
+        repo.addNotes(localAccount.getId(), page);
+        status.count += page.size();
+        status$.postValue(status);
+        page.clear();
+    }
 }
@@ -4,17 +4,18 @@ import static android.os.Build.VERSION.SDK_INT;
 import static android.os.Build.VERSION_CODES.O;
 import static androidx.lifecycle.Transformations.distinctUntilChanged;
 import static androidx.lifecycle.Transformations.map;
+import static java.net.HttpURLConnection.HTTP_NOT_FOUND;
+import static java.net.HttpURLConnection.HTTP_NOT_MODIFIED;
 import static java.util.stream.Collectors.toMap;
 import static it.niedermann.owncloud.notes.edit.EditNoteActivity.ACTION_SHORTCUT;
+import static it.niedermann.owncloud.notes.shared.util.NoteUtil.generateFullTextQuery;
 import static it.niedermann.owncloud.notes.shared.util.NoteUtil.generateNoteExcerpt;
 import static it.niedermann.owncloud.notes.widget.notelist.NoteListWidget.updateNoteListWidgets;
 import static it.niedermann.owncloud.notes.widget.singlenote.SingleNoteWidget.updateSingleNoteWidgets;
 
 import android.accounts.NetworkErrorException;
-import android.content.BroadcastReceiver;
 import android.content.Context;
 import android.content.Intent;
-import android.content.IntentFilter;
 import android.content.SharedPreferences;
 import android.content.pm.ShortcutInfo;
 import android.content.pm.ShortcutManager;
@@ -28,19 +29,24 @@ import androidx.annotation.ColorInt;
 import androidx.annotation.MainThread;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
 import androidx.annotation.WorkerThread;
 import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MediatorLiveData;
 import androidx.lifecycle.MutableLiveData;
+import androidx.paging.PagingSource;
 import androidx.preference.PreferenceManager;
 
 import com.nextcloud.android.sso.AccountImporter;
 import com.nextcloud.android.sso.exceptions.NextcloudFilesAppAccountNotFoundException;
+import com.nextcloud.android.sso.exceptions.NextcloudHttpRequestFailedException;
 import com.nextcloud.android.sso.exceptions.NoCurrentAccountSelectedException;
 import com.nextcloud.android.sso.helper.SingleAccountHelper;
 import com.nextcloud.android.sso.model.SingleSignOnAccount;
 
 import java.util.ArrayList;
 import java.util.Calendar;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
@@ -48,20 +54,27 @@ import java.util.Objects;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import it.niedermann.android.sharedpreferences.SharedPreferenceIntLiveData;
 import it.niedermann.owncloud.notes.BuildConfig;
 import it.niedermann.owncloud.notes.R;
 import it.niedermann.owncloud.notes.edit.EditNoteActivity;
 import it.niedermann.owncloud.notes.persistence.entity.Account;
+import it.niedermann.owncloud.notes.persistence.entity.CategoryCount;
 import it.niedermann.owncloud.notes.persistence.entity.CategoryOptions;
 import it.niedermann.owncloud.notes.persistence.entity.CategoryWithNotesCount;
+import it.niedermann.owncloud.notes.persistence.entity.ImportCheckpoint;
 import it.niedermann.owncloud.notes.persistence.entity.Note;
+import it.niedermann.owncloud.notes.persistence.entity.NoteContent;
+import it.niedermann.owncloud.notes.persistence.entity.NoteSearchResult;
 import it.niedermann.owncloud.notes.persistence.entity.NotesListWidgetData;
 import it.niedermann.owncloud.notes.persistence.entity.SingleNoteWidgetData;
 import it.niedermann.owncloud.notes.shared.model.ApiVersion;
 import it.niedermann.owncloud.notes.shared.model.Capabilities;
 import it.niedermann.owncloud.notes.shared.model.CategorySortingMethod;
+import it.niedermann.owncloud.notes.shared.model.ConnectivityState;
 import it.niedermann.owncloud.notes.shared.model.DBStatus;
 import it.niedermann.owncloud.notes.shared.model.ENavigationCategoryType;
 import it.niedermann.owncloud.notes.shared.model.IResponseCallback;
@@ -73,31 +86,66 @@ import it.niedermann.owncloud.notes.shared.model.SyncResultStatus;
 import it.niedermann.owncloud.notes.shared.util.ApiVersionUtil;
 import it.niedermann.owncloud.notes.shared.util.NoteUtil;
 import it.niedermann.owncloud.notes.shared.util.SSOUtil;
+import it.niedermann.owncloud.notes.shared.util.SearchRankingUtil;
 import retrofit2.Call;
+import retrofit2.Callback;
+import retrofit2.Response;
 
 @SuppressWarnings("UnusedReturnValue")
 public class NotesRepository {
 
     private static final String TAG = NotesRepository.class.getSimpleName();
+    /**
+     * Amount of {@link Note}s written per transaction by {@link #applyRemoteChanges(long, Map, List, Collection)} and {@link #addNotes(long, List)}, must stay below the SQLite bind argument limit.
+     */
+    private static final int REMOTE_CHANGES_CHUNK_SIZE = 500;
+
+    /**
+     * Maximum amount of {@link Account}s which are synchronized in parallel, each {@link Account} is synchronized by at most one thread at a time.
+     */
+    private static final int SYNC_CONCURRENCY = 3;
+
+    /**
+     * Maximum amount of {@link Note}s returned by a search which is ranked by relevance, e.g. {@link #searchRecentByRelevance$(long, String)}.
+     */
+    @VisibleForTesting
+    static final int RELEVANCE_LIMIT = 100;
 
     private static NotesRepository instance;
 
     private final ApiProvider apiProvider;
     private final ExecutorService executor;
-    private final ExecutorService syncExecutor;
+    private final SyncLanes syncLanes;
+    private final PushCoalescer pushCoalescer;
+    private final SingleFlightCache serverSettingsCache = new SingleFlightCache(TimeUnit.SECONDS.toMillis(30));
     private final ExecutorService importExecutor;
+    /**
+     * Single writer for local changes of {@link Note}s made in the editor, so they are written in the order they have been made.
+     */
+    private final ExecutorService saveExecutor;
     private final Context context;
     private final NotesDatabase db;
     private final String defaultNonEmptyTitle;
 
     /**
-     * Track network connection changes using a {@link BroadcastReceiver}
+     * Track network connection changes using a {@link ConnectivityMonitor}
+     */
+    private final ConnectivityMonitor connectivityMonitor;
+    private volatile boolean isSyncPossible = false;
+    private volatile boolean networkConnected = false;
+    /**
+     * Whether synchronization is possible and the network has been validated, see {@link #updateSyncPossible(ConnectivityState)}
      */
-    private boolean isSyncPossible = false;
-    private boolean networkConnected = false;
+    private boolean networkUsable = false;
     private String syncOnlyOnWifiKey;
     private boolean syncOnlyOnWifi;
+    private final String compressContentKey;
+    private volatile boolean compressionEnabled;
     private final MutableLiveData<Boolean> syncStatus = new MutableLiveData<>(false);
+    /**
+     * Amount of currently running synchronizations of all {@link Account}s, {@link #syncStatus} is <code>true</code> as long as any of them is running.
+     */
+    private final AtomicInteger runningSyncs = new AtomicInteger(0);
     private final MutableLiveData<ArrayList<Throwable>> syncErrors = new MutableLiveData<>();
 
     /**
@@ -108,22 +156,8 @@ public class NotesRepository {
         if (syncOnlyOnWifiKey.equals(key)) {
             syncOnlyOnWifi = prefs.getBoolean(syncOnlyOnWifiKey, false);
             updateNetworkStatus();
-        }
-    };
-
-    private final BroadcastReceiver networkReceiver = new BroadcastReceiver() {
-        @Override
-        public void onReceive(Context context, Intent intent) {
-            updateNetworkStatus();
-            if (isSyncPossible() && SSOUtil.isConfigured(context)) {
-                executor.submit(() -> {
-                    try {
-                        scheduleSync(getAccountByName(SingleAccountHelper.getCurrentSingleSignOnAccount(context).name), false);
-                    } catch (NextcloudFilesAppAccountNotFoundException | NoCurrentAccountSelectedException e) {
-                        Log.v(TAG, "Can not select current SingleSignOn account after network changed, do not sync.");
-                    }
-                });
-            }
+        } else if (compressContentKey.equals(key)) {
+            compressionEnabled = prefs.getBoolean(compressContentKey, true);
         }
     };
 
@@ -138,37 +172,57 @@ public class NotesRepository {
 
     public static synchronized NotesRepository getInstance(@NonNull Context context) {
         if (instance == null) {
-            instance = new NotesRepository(context, NotesDatabase.getInstance(context.getApplicationContext()), Executors.newCachedThreadPool(), Executors.newSingleThreadExecutor(), Executors.newSingleThreadExecutor(), ApiProvider.getInstance());
+            instance = new NotesRepository(context, NotesDatabase.getInstance(context.getApplicationContext()), Executors.newCachedThreadPool(), Executors.newFixedThreadPool(SYNC_CONCURRENCY), Executors.newSingleThreadExecutor(), Executors.newSingleThreadExecutor(), ApiProvider.getInstance());
         }
         return instance;
     }
 
-    private NotesRepository(@NonNull final Context context, @NonNull final NotesDatabase db, @NonNull final ExecutorService executor, @NonNull final ExecutorService syncExecutor, @NonNull final ExecutorService importExecutor, @NonNull ApiProvider apiProvider) {
+    private NotesRepository(@NonNull final Context context, @NonNull final NotesDatabase db, @NonNull final ExecutorService executor, @NonNull final ExecutorService syncExecutor, @NonNull final ExecutorService importExecutor, @NonNull final ExecutorService saveExecutor, @NonNull ApiProvider apiProvider) {
         this.context = context.getApplicationContext();
         this.db = db;
         this.executor = executor;
-        this.syncExecutor = syncExecutor;
+        this.syncLanes = new SyncLanes(syncExecutor);
+        this.pushCoalescer = new PushCoalescer(Executors.newSingleThreadScheduledExecutor(), account -> scheduleSync(account, true));
         this.importExecutor = importExecutor;
+        this.saveExecutor = saveExecutor;
         this.apiProvider = apiProvider;
         this.defaultNonEmptyTitle = NoteUtil.generateNonEmptyNoteTitle("", this.context);
         this.syncOnlyOnWifiKey = context.getApplicationContext().getResources().getString(R.string.pref_key_wifi_only);
+        this.compressContentKey = context.getApplicationContext().getResources().getString(R.string.pref_key_compress_content);
 
-        // Registers BroadcastReceiver to track network connection changes.
-        this.context.registerReceiver(networkReceiver, new IntentFilter(ConnectivityManager.CONNECTIVITY_ACTION));
+        this.connectivityMonitor = new ConnectivityMonitor((ConnectivityManager) this.context.getSystemService(Context.CONNECTIVITY_SERVICE), this::onConnectivityChanged);
 
         final var prefs = PreferenceManager.getDefaultSharedPreferences(this.context);
         prefs.registerOnSharedPreferenceChangeListener(onSharedPreferenceChangeListener);
         syncOnlyOnWifi = prefs.getBoolean(syncOnlyOnWifiKey, false);
+        compressionEnabled = prefs.getBoolean(compressContentKey, true);
 
-        updateNetworkStatus();
+        // Track network connection changes, the initial state does not trigger a synchronization
+        updateSyncPossible(connectivityMonitor.getState());
+        connectivityMonitor.register();
+        resumeInterruptedImports();
     }
 
 
     // Accounts
 
+    /**
+     * Adds a new {@link Account} and imports its {@link Note}s.
+     * If the import of an {@link Account} with the same {@param accountName} has been interrupted before, it will be continued instead.
+     */
     @AnyThread
     public LiveData<ImportStatus> addAccount(@NonNull String url, @NonNull String username, @NonNull String accountName, @NonNull Capabilities capabilities, @Nullable String displayName, @NonNull IResponseCallback<Account> callback) {
-        final var account = db.getAccountDao().getAccountById(db.getAccountDao().insert(new Account(url, username, accountName, displayName, capabilities)));
+        final Account account;
+        final var interruptedAccount = db.getAccountDao().getAccountByName(accountName);
+        if (interruptedAccount != null && db.getImportCheckpointDao().getImportCheckpoint(interruptedAccount.getId()) != null) {
+            Log.i(TAG, "… Continuing interrupted import of " + accountName);
+            account = interruptedAccount;
+        } else {
+            account = db.getAccountDao().getAccountById(db.getAccountDao().insert(new Account(url, username, accountName, displayName, capabilities)));
+            if (account != null) {
+                db.getImportCheckpointDao().insertImportCheckpoint(new ImportCheckpoint(account.getId()));
+            }
+        }
         if (account == null) {
             callback.onError(new Exception("Could not read created account."));
         } else {
@@ -186,24 +240,21 @@ public class NotesRepository {
                         @Override
                         public void onError(@NonNull Throwable t) {
                             Log.e(TAG, "… Error while importing " + account.getAccountName() + ": " + t.getMessage());
-                            deleteAccount(account);
-                            SingleAccountHelper.setCurrentAccount(context, null);
+                            discardFailedImport(account);
                             callback.onError(t);
                         }
                     });
                 } catch (NextcloudFilesAppAccountNotFoundException e) {
                     Log.e(TAG, "… Could not find " + SingleSignOnAccount.class.getSimpleName() + " for account name " + account.getAccountName());
                     importExecutor.submit(() -> {
-                        deleteAccount(account);
-                        SingleAccountHelper.setCurrentAccount(context, null);
+                        discardFailedImport(account);
                         callback.onError(e);
                     });
                 }
             } else {
                 Log.e(TAG, "… No network connection available to import " + account.getAccountName());
                 importExecutor.submit(() -> {
-                    deleteAccount(account);
-                    SingleAccountHelper.setCurrentAccount(context, null);
+                    discardFailedImport(account);
                     callback.onError(new NetworkErrorException());
                 });
             }
@@ -211,6 +262,83 @@ public class NotesRepository {
         return new MutableLiveData<>(new ImportStatus());
     }
 
+    /**
+     * Removes an {@link Account} whose import failed, unless some of its {@link Note}s have already been imported.
+     * In this case the import will be continued by {@link #resumeInterruptedImports()}.
+     */
+    @WorkerThread
+    private void discardFailedImport(@NonNull Account account) {
+        syncActive.put(account.getId(), false);
+        final Integer importedNotes = db.getNoteDao().count(account.getId());
+        if (importedNotes != null && importedNotes > 0 && db.getImportCheckpointDao().getImportCheckpoint(account.getId()) != null) {
+            Log.i(TAG, "… Keeping " + importedNotes + " imported notes of " + account.getAccountName() + " to continue the import later");
+        } else {
+            deleteAccount(account);
+            SingleAccountHelper.setCurrentAccount(context, null);
+        }
+    }
+
+    /**
+     * Continues all imports which have been interrupted, e.g. because the process has been killed or the network connection has been lost.
+     * Already imported {@link Note}s are skipped.
+     */
+    @AnyThread
+    private void resumeInterruptedImports() {
+        importExecutor.submit(() -> {
+            for (final var accountId : db.getImportCheckpointDao().getAccountIdsWithPendingImport()) {
+                final var account = db.getAccountDao().getAccountById(accountId);
+                if (account == null || !isSyncPossible()) {
+                    continue;
+                }
+                Log.i(TAG, "Continuing interrupted import of " + account.getAccountName());
+                syncActive.put(accountId, true);
+                try {
+                    new NotesImportTask(context, this, account, importExecutor, apiProvider).importNotes(new IResponseCallback<>() {
+                        @Override
+                        public void onSuccess(Void result) {
+                            Log.i(TAG, "… Finished interrupted import of " + account.getAccountName());
+                            syncActive.put(accountId, false);
+                            notifyWidgets();
+                        }
+
+                        @Override
+                        public void onError(@NonNull Throwable t) {
+                            Log.e(TAG, "… Error while continuing import of " + account.getAccountName() + ": " + t.getMessage());
+                            syncActive.put(accountId, false);
+                        }
+                    });
+                } catch (NextcloudFilesAppAccountNotFoundException e) {
+                    Log.e(TAG, "… Could not find " + SingleSignOnAccount.class.getSimpleName() + " for account name " + account.getAccountName());
+                    syncActive.put(accountId, false);
+                }
+            }
+        });
+    }
+
+    @Nullable
+    @WorkerThread
+    public ImportCheckpoint getImportCheckpoint(long accountId) {
+        return db.getImportCheckpointDao().getImportCheckpoint(accountId);
+    }
+
+    /**
+     * All {@link Note}s of the previous chunks must have been stored before their {@param chunkCursor} is persisted.
+     */
+    @WorkerThread
+    public void updateImportChunkCursor(long accountId, @Nullable String chunkCursor) {
+        db.getImportCheckpointDao().updateChunkCursor(accountId, chunkCursor);
+    }
+
+    @WorkerThread
+    public void updateImportTotal(long accountId, int total) {
+        db.getImportCheckpointDao().updateTotal(accountId, total);
+    }
+
+    @WorkerThread
+    public void finishImport(long accountId) {
+        db.getImportCheckpointDao().deleteImportCheckpoint(accountId);
+    }
+
     @WorkerThread
     public List<Account> getAccounts() {
         return db.getAccountDao().getAccounts();
@@ -263,6 +391,11 @@ public class NotesRepository {
     public void updateModified(long id, long modified) {
         db.getAccountDao().updateModified(id, modified);
     }
+
+    public void updateChunkCursor(long id, @Nullable String chunkCursor) {
+        db.getAccountDao().updateChunkCursor(id, chunkCursor);
+    }
+
     public void updateDirectEditingAvailable(final long id, final boolean available) {
         db.getAccountDao().updateDirectEditingAvailable(id, available);
     }
@@ -286,66 +419,245 @@ public class NotesRepository {
         return db.getNoteDao().countFavorites$(accountId);
     }
 
-    public void updateScrollY(long id, int scrollY) {
-        db.getNoteDao().updateScrollY(id, scrollY);
+    @WorkerThread
+    public int getScrollY(long noteId) {
+        return db.getNoteUiStateDao().getScrollY(noteId);
+    }
+
+    @AnyThread
+    public void updateScrollY(long noteId, int scrollY) {
+        saveExecutor.submit(() -> db.getNoteUiStateDao().updateScrollY(noteId, scrollY));
     }
 
     public LiveData<List<CategoryWithNotesCount>> searchCategories$(Long accountId, String searchTerm) {
         return db.getNoteDao().searchCategories$(accountId, searchTerm);
     }
 
-    public LiveData<List<Note>> searchRecentByModified$(long accountId, String query) {
-        return db.getNoteDao().searchRecentByModified$(accountId, query);
+    /*
+     * The following search methods accept the search term as entered by the user.
+     * If it is empty, all notes of the requested category will be returned, otherwise the full
+     * text index is used to find the matching notes.
+     */
+
+    public LiveData<List<Note>> searchRecentByModified$(long accountId, @Nullable String searchTerm) {
+        final String query = generateFullTextQuery(searchTerm);
+        return query == null
+                ? db.getNoteDao().getRecentByModified$(accountId)
+                : db.getNoteDao().searchRecentByModified$(accountId, query);
     }
 
-    public List<Note> searchRecentByModified(long accountId, String query) {
-        return db.getNoteDao().searchRecentByModified(accountId, query);
+    public List<Note> searchRecentByModified(long accountId, @Nullable String searchTerm) {
+        final String query = generateFullTextQuery(searchTerm);
+        return query == null
+                ? db.getNoteDao().getRecentByModified(accountId)
+                : db.getNoteDao().searchRecentByModified(accountId, query);
     }
 
-    public LiveData<List<Note>> searchRecentLexicographically$(long accountId, String query) {
-        return db.getNoteDao().searchRecentLexicographically$(accountId, query);
+    public LiveData<List<Note>> searchRecentLexicographically$(long accountId, @Nullable String searchTerm) {
+        final String query = generateFullTextQuery(searchTerm);
+        return query == null
+                ? db.getNoteDao().getRecentLexicographically$(accountId)
+                : db.getNoteDao().searchRecentLexicographically$(accountId, query);
     }
 
-    public LiveData<List<Note>> searchFavoritesByModified$(long accountId, String query) {
-        return db.getNoteDao().searchFavoritesByModified$(accountId, query);
+    public LiveData<List<Note>> searchFavoritesByModified$(long accountId, @Nullable String searchTerm) {
+        final String query = generateFullTextQuery(searchTerm);
+        return query == null
+                ? db.getNoteDao().getFavoritesByModified$(accountId)
+                : db.getNoteDao().searchFavoritesByModified$(accountId, query);
     }
 
-    public List<Note> searchFavoritesByModified(long accountId, String query) {
-        return db.getNoteDao().searchFavoritesByModified(accountId, query);
+    public List<Note> searchFavoritesByModified(long accountId, @Nullable String searchTerm) {
+        final String query = generateFullTextQuery(searchTerm);
+        return query == null
+                ? db.getNoteDao().getFavoritesByModified(accountId)
+                : db.getNoteDao().searchFavoritesByModified(accountId, query);
     }
 
-    public LiveData<List<Note>> searchFavoritesLexicographically$(long accountId, String query) {
-        return db.getNoteDao().searchFavoritesLexicographically$(accountId, query);
+    public LiveData<List<Note>> searchFavoritesLexicographically$(long accountId, @Nullable String searchTerm) {
+        final String query = generateFullTextQuery(searchTerm);
+        return query == null
+                ? db.getNoteDao().getFavoritesLexicographically$(accountId)
+                : db.getNoteDao().searchFavoritesLexicographically$(accountId, query);
     }
 
-    public LiveData<List<Note>> searchUncategorizedByModified$(long accountId, String query) {
-        return db.getNoteDao().searchUncategorizedByModified$(accountId, query);
+    public LiveData<List<Note>> searchUncategorizedByModified$(long accountId, @Nullable String searchTerm) {
+        final String query = generateFullTextQuery(searchTerm);
+        return query == null
+                ? db.getNoteDao().getUncategorizedByModified$(accountId)
+                : db.getNoteDao().searchUncategorizedByModified$(accountId, query);
     }
 
-    public List<Note> searchUncategorizedByModified(long accountId, String query) {
-        return db.getNoteDao().searchUncategorizedByModified(accountId, query);
+    public List<Note> searchUncategorizedByModified(long accountId, @Nullable String searchTerm) {
+        final String query = generateFullTextQuery(searchTerm);
+        return query == null
+                ? db.getNoteDao().getUncategorizedByModified(accountId)
+                : db.getNoteDao().searchUncategorizedByModified(accountId, query);
     }
 
-    public LiveData<List<Note>> searchUncategorizedLexicographically$(long accountId, String query) {
-        return db.getNoteDao().searchUncategorizedLexicographically$(accountId, query);
+    public LiveData<List<Note>> searchUncategorizedLexicographically$(long accountId, @Nullable String searchTerm) {
+        final String query = generateFullTextQuery(searchTerm);
+        return query == null
+                ? db.getNoteDao().getUncategorizedLexicographically$(accountId)
+                : db.getNoteDao().searchUncategorizedLexicographically$(accountId, query);
     }
 
-    public LiveData<List<Note>> searchCategoryByModified$(long accountId, String query, String category) {
-        return db.getNoteDao().searchCategoryByModified$(accountId, query, category);
+    public LiveData<List<Note>> searchCategoryByModified$(long accountId, @Nullable String searchTerm, String category) {
+        final String query = generateFullTextQuery(searchTerm);
+        return query == null
+                ? db.getNoteDao().getCategoryByModified$(accountId, category)
+                : db.getNoteDao().searchCategoryByModified$(accountId, query, category);
     }
 
-    public List<Note> searchCategoryByModified(long accountId, String query, String category) {
-        return db.getNoteDao().searchCategoryByModified(accountId, query, category);
+    public List<Note> searchCategoryByModified(long accountId, @Nullable String searchTerm, String category) {
+        final String query = generateFullTextQuery(searchTerm);
+        return query == null
+                ? db.getNoteDao().getCategoryByModified(accountId, category)
+                : db.getNoteDao().searchCategoryByModified(accountId, query, category);
     }
 
-    public LiveData<List<Note>> searchCategoryLexicographically$(long accountId, String query, String category) {
-        return db.getNoteDao().searchCategoryLexicographically$(accountId, query, category);
+    public LiveData<List<Note>> searchCategoryLexicographically$(long accountId, @Nullable String searchTerm, String category) {
+        final String query = generateFullTextQuery(searchTerm);
+        return query == null
+                ? db.getNoteDao().getCategoryLexicographically$(accountId, category)
+                : db.getNoteDao().searchCategoryLexicographically$(accountId, query, category);
+    }
+
+    /*
+     * Search methods which rank the matches by relevance. Only the columns needed for ranking are loaded for all matches,
+     * the ranking is calculated in the background and only the most relevant RELEVANCE_LIMIT notes are loaded afterwards.
+     * Each Note#getExcerpt() is a snippet around the first match.
+     * If the search term is empty, all notes of the requested category will be returned ordered by modification date.
+     */
+
+    public LiveData<List<Note>> searchRecentByRelevance$(long accountId, @Nullable String searchTerm) {
+        final String query = generateFullTextQuery(searchTerm);
+        return query == null
+                ? db.getNoteDao().getRecentByModified$(accountId)
+                : rankByRelevance(db.getNoteDao().rankRecent$(accountId, query), query);
+    }
+
+    public LiveData<List<Note>> searchFavoritesByRelevance$(long accountId, @Nullable String searchTerm) {
+        final String query = generateFullTextQuery(searchTerm);
+        return query == null
+                ? db.getNoteDao().getFavoritesByModified$(accountId)
+                : rankByRelevance(db.getNoteDao().rankFavorites$(accountId, query), query);
+    }
+
+    public LiveData<List<Note>> searchUncategorizedByRelevance$(long accountId, @Nullable String searchTerm) {
+        final String query = generateFullTextQuery(searchTerm);
+        return query == null
+                ? db.getNoteDao().getUncategorizedByModified$(accountId)
+                : rankByRelevance(db.getNoteDao().rankUncategorized$(accountId, query), query);
+    }
+
+    public LiveData<List<Note>> searchCategoryByRelevance$(long accountId, @Nullable String searchTerm, String category) {
+        final String query = generateFullTextQuery(searchTerm);
+        return query == null
+                ? db.getNoteDao().getCategoryByModified$(accountId, category)
+                : rankByRelevance(db.getNoteDao().rankCategory$(accountId, query, category), query);
+    }
+
+    @NonNull
+    private LiveData<List<Note>> rankByRelevance(@NonNull LiveData<List<NoteSearchResult>> results, @NonNull String query) {
+        final var rankedNotes = new MediatorLiveData<List<Note>>();
+        final var generation = new AtomicInteger();
+        rankedNotes.addSource(results, currentResults -> {
+            final int currentGeneration = generation.incrementAndGet();
+            executor.submit(() -> {
+                final var ids = SearchRankingUtil.mostRelevant(currentResults, RELEVANCE_LIMIT);
+                final var notesById = db.getNoteDao().getNotesWithSnippet(query, ids).stream().collect(toMap(Note::getId, note -> note));
+                final var notes = new ArrayList<Note>(ids.size());
+                for (final var id : ids) {
+                    // The note might have been deleted in the meantime
+                    final var note = notesById.get(id);
+                    if (note != null) {
+                        notes.add(note);
+                    }
+                }
+                synchronized (generation) {
+                    // Drop outdated results in case the database changed in the meantime
+                    if (currentGeneration == generation.get()) {
+                        rankedNotes.postValue(notes);
+                    }
+                }
+            });
+        });
+        return rankedNotes;
+    }
+
+    /*
+     * Paged variants of the search methods above. Each call creates a new PagingSource, so these
+     * methods can be used as factory for a Pager.
+     */
+
+    public PagingSource<Integer, Note> searchRecentByModifiedPaged(long accountId, @Nullable String searchTerm) {
+        final String query = generateFullTextQuery(searchTerm);
+        return query == null
+                ? db.getNoteDao().getRecentByModifiedPaged(accountId)
+                : db.getNoteDao().searchRecentByModifiedPaged(accountId, query);
+    }
+
+    public PagingSource<Integer, Note> searchRecentLexicographicallyPaged(long accountId, @Nullable String searchTerm) {
+        final String query = generateFullTextQuery(searchTerm);
+        return query == null
+                ? db.getNoteDao().getRecentLexicographicallyPaged(accountId)
+                : db.getNoteDao().searchRecentLexicographicallyPaged(accountId, query);
+    }
+
+    public PagingSource<Integer, Note> searchFavoritesByModifiedPaged(long accountId, @Nullable String searchTerm) {
+        final String query = generateFullTextQuery(searchTerm);
+        return query == null
+                ? db.getNoteDao().getFavoritesByModifiedPaged(accountId)
+                : db.getNoteDao().searchFavoritesByModifiedPaged(accountId, query);
+    }
+
+    public PagingSource<Integer, Note> searchFavoritesLexicographicallyPaged(long accountId, @Nullable String searchTerm) {
+        final String query = generateFullTextQuery(searchTerm);
+        return query == null
+                ? db.getNoteDao().getFavoritesLexicographicallyPaged(accountId)
+                : db.getNoteDao().searchFavoritesLexicographicallyPaged(accountId, query);
+    }
+
+    public PagingSource<Integer, Note> searchUncategorizedByModifiedPaged(long accountId, @Nullable String searchTerm) {
+        final String query = generateFullTextQuery(searchTerm);
+        return query == null
+                ? db.getNoteDao().getUncategorizedByModifiedPaged(accountId)
+                : db.getNoteDao().searchUncategorizedByModifiedPaged(accountId, query);
+    }
+
+    public PagingSource<Integer, Note> searchUncategorizedLexicographicallyPaged(long accountId, @Nullable String searchTerm) {
+        final String query = generateFullTextQuery(searchTerm);
+        return query == null
+                ? db.getNoteDao().getUncategorizedLexicographicallyPaged(accountId)
+                : db.getNoteDao().searchUncategorizedLexicographicallyPaged(accountId, query);
+    }
+
+    public PagingSource<Integer, Note> searchCategoryByModifiedPaged(long accountId, @Nullable String searchTerm, String category) {
+        final String query = generateFullTextQuery(searchTerm);
+        return query == null
+                ? db.getNoteDao().getCategoryByModifiedPaged(accountId, category)
+                : db.getNoteDao().searchCategoryByModifiedPaged(accountId, query, category);
+    }
+
+    public PagingSource<Integer, Note> searchCategoryLexicographicallyPaged(long accountId, @Nullable String searchTerm, String category) {
+        final String query = generateFullTextQuery(searchTerm);
+        return query == null
+                ? db.getNoteDao().getCategoryLexicographicallyPaged(accountId, category)
+                : db.getNoteDao().searchCategoryLexicographicallyPaged(accountId, query, category);
     }
 
     public LiveData<List<CategoryWithNotesCount>> getCategories$(Long accountId) {
         return db.getNoteDao().getCategories$(accountId);
     }
 
+    /**
+     * @return all categories of the given {@param accountId} including the amount of (favorite) {@link Note}s, which can be summed up to get the total counts
+     */
+    public LiveData<List<CategoryCount>> getCategoryCounts$(long accountId) {
+        return db.getNoteDao().getCategoryCounts$(accountId);
+    }
+
     public void updateRemoteId(long id, Long remoteId) {
         db.getNoteDao().updateRemoteId(id, remoteId);
     }
@@ -365,12 +677,35 @@ public class NotesRepository {
     /**
      * Please note, that db.updateNote() realized an optimistic conflict resolution, which is required for parallel changes of this Note from the UI.
      */
-    public int updateIfNotModifiedLocallyDuringSync(long noteId, Long targetModified, String targetTitle, boolean targetFavorite, String targetETag, String targetContent, String targetExcerpt, String contentBeforeSyncStart, String categoryBeforeSyncStart, boolean favoriteBeforeSyncStart) {
-        return db.getNoteDao().updateIfNotModifiedLocallyDuringSync(noteId, targetModified, targetTitle, targetFavorite, targetETag, targetContent, targetExcerpt, contentBeforeSyncStart, categoryBeforeSyncStart, favoriteBeforeSyncStart);
+    @WorkerThread
+    public int updateIfNotModifiedLocallyDuringSync(long noteId, Long targetModified, String targetTitle, boolean targetFavorite, String targetETag, String targetContent, long targetContentHash, String targetExcerpt, long contentHashBeforeSyncStart, String categoryBeforeSyncStart, boolean favoriteBeforeSyncStart) {
+        // An unchanged content will not be stored, so there is no need to compress it
+        final var noteContent = targetContentHash == contentHashBeforeSyncStart
+                ? new NoteContent(noteId, targetTitle, targetContent, targetContentHash)
+                : toNoteContent(noteId, targetTitle, targetContent, targetContentHash);
+        return db.getNoteDao().updateIfNotModifiedLocallyDuringSync(noteId, targetModified, targetTitle, targetFavorite, targetETag, noteContent, targetExcerpt, contentHashBeforeSyncStart, categoryBeforeSyncStart, favoriteBeforeSyncStart);
     }
 
-    public int updateIfNotModifiedLocallyAndAnyRemoteColumnHasChanged(long id, Long modified, String title, boolean favorite, String category, String eTag, String content, String excerpt) {
-        return db.getNoteDao().updateIfNotModifiedLocallyAndAnyRemoteColumnHasChanged(id, modified, title, favorite, category, eTag, content, excerpt);
+    /**
+     * Prepares the given {@param content} for storing: large contents get compressed, unless the user disabled it.
+     * <p>
+     * Call this before starting a transaction, so compressing does not block other writers of the database.
+     *
+     * @param contentHash must be the {@link NoteContent#hash(String)} of the given {@param content}
+     */
+    @NonNull
+    @WorkerThread
+    private NoteContent toNoteContent(long noteId, @NonNull String title, @NonNull String content, long contentHash) {
+        if (compressionEnabled && NoteContent.exceedsCompressionThreshold(content)) {
+            return NoteContent.compressed(noteId, title, content, contentHash);
+        }
+        return new NoteContent(noteId, title, content, contentHash);
+    }
+
+    @NonNull
+    @WorkerThread
+    private NoteContent toNoteContent(@NonNull Note note) {
+        return toNoteContent(note.getId(), note.getTitle(), note.getContent(), NoteContent.hash(note.getContent()));
     }
 
     public long countUnsynchronizedNotes(long accountId) {
@@ -439,7 +774,62 @@ public class NotesRepository {
     public Note addNote(long accountId, @NonNull Note note) {
         note.setAccountId(accountId);
         note.setExcerpt(generateNoteExcerpt(note.getContent(), note.getTitle()));
-        return db.getNoteDao().getNoteById(db.getNoteDao().addNote(note));
+        return db.getNoteDao().getNoteById(db.getNoteDao().addNote(note, toNoteContent(note)));
+    }
+
+    /**
+     * Applies the result of pulling the remote changes of an {@link Account} in chunked transactions.
+     * Each chunk is written with a few bulk statements, so observers of the database get invalidated
+     * once per chunk instead of once per {@link Note}.
+     *
+     * @param notesToUpdate remote {@link Note}s which already exist locally mapped by their local {@link Note#getId()}, will only be updated if not modified locally
+     * @param notesToAdd    remote {@link Note}s which do not exist locally yet
+     * @param idsToDelete   local {@link Note#getId()}s of {@link Note}s which have been deleted remotely, will only be deleted if not modified locally
+     */
+    @WorkerThread
+    public void applyRemoteChanges(long accountId, @NonNull Map<Long, Note> notesToUpdate, @NonNull List<Note> notesToAdd, @NonNull Collection<Long> idsToDelete) {
+        final var noteDao = db.getNoteDao();
+        final var updates = new ArrayList<>(notesToUpdate.entrySet());
+        for (int from = 0; from < updates.size(); from += REMOTE_CHANGES_CHUNK_SIZE) {
+            final var chunk = updates.subList(from, Math.min(from + REMOTE_CHANGES_CHUNK_SIZE, updates.size()));
+            final var contents = new ArrayList<NoteContent>(chunk.size());
+            for (final var entry : chunk) {
+                final var remoteNote = entry.getValue();
+                contents.add(toNoteContent(entry.getKey(), remoteNote.getTitle(), remoteNote.getContent(), NoteContent.hash(remoteNote.getContent())));
+            }
+            db.runInTransaction(() -> {
+                for (int i = 0; i < chunk.size(); i++) {
+                    final var entry = chunk.get(i);
+                    final var remoteNote = entry.getValue();
+                    final var modified = remoteNote.getModified();
+                    noteDao.updateIfNotModifiedLocallyAndAnyRemoteColumnHasChanged(entry.getKey(), modified == null ? null : modified.getTimeInMillis(), remoteNote.getTitle(), remoteNote.getFavorite(), remoteNote.getCategory(), remoteNote.getETag(), contents.get(i), generateNoteExcerpt(remoteNote.getContent(), remoteNote.getTitle()));
+                }
+            });
+        }
+        addNotes(accountId, notesToAdd);
+        final var deletions = new ArrayList<>(idsToDelete);
+        for (int from = 0; from < deletions.size(); from += REMOTE_CHANGES_CHUNK_SIZE) {
+            noteDao.deleteByNoteIds(deletions.subList(from, Math.min(from + REMOTE_CHANGES_CHUNK_SIZE, deletions.size())), DBStatus.VOID);
+        }
+    }
+
+    /**
+     * Inserts the given {@link Note}s in chunked transactions with a few bulk statements each.
+     * Excerpts will be generated, the {@link DBStatus} of the given {@link Note}s is kept.
+     * No Synchronisation will be triggered!
+     */
+    @WorkerThread
+    public void addNotes(long accountId, @NonNull List<Note> notes) {
+        for (int from = 0; from < notes.size(); from += REMOTE_CHANGES_CHUNK_SIZE) {
+            final var chunk = notes.subList(from, Math.min(from + REMOTE_CHANGES_CHUNK_SIZE, notes.size()));
+            final var contents = new ArrayList<NoteContent>(chunk.size());
+            for (final var note : chunk) {
+                note.setAccountId(accountId);
+                note.setExcerpt(generateNoteExcerpt(note.getContent(), note.getTitle()));
+                contents.add(toNoteContent(note));
+            }
+            db.getNoteDao().addNotes(chunk, contents);
+        }
     }
 
     @MainThread
@@ -463,11 +853,75 @@ public class NotesRepository {
                 .collect(toMap(Note::getRemoteId, Note::getId));
     }
 
+    /**
+     * @return a {@link Map} of local IDs as keys and {@link Note}s with filled {@link Note#getRemoteId()}, {@link Note#getModified()}, {@link Note#getTitle()} and {@link Note#getETag()} as values
+     * of all {@link Note}s of the given {@param accountId} which are not {@link DBStatus#LOCAL_DELETED}
+     */
+    @NonNull
+    @WorkerThread
+    public Map<Long, Note> getRemoteMetadataMap(long accountId) {
+        return db.getNoteDao()
+                .getRemoteMetadata(accountId)
+                .stream()
+                .collect(toMap(Note::getId, note -> note));
+    }
+
+    /**
+     * Refreshes a single {@link Note} with one request instead of pulling all remote changes of its {@link Account}.
+     * The {@link Note#getETag()} is sent along, so an unchanged {@link Note} will not be transferred again.
+     * Like during a pull, the remote state is only applied if the {@link Note} has not been modified locally.
+     * <p>
+     * This neither waits for nor schedules a synchronization of the {@link Account}.
+     *
+     * @param callback will be notified with {@link ISyncCallback#onFinish()} as soon as the refresh is done, regardless of whether it succeeded
+     */
     @AnyThread
-    public void toggleFavoriteAndSync(Account account, long noteId) {
+    public void refreshNote(@NonNull Account account, long noteId, @NonNull ISyncCallback callback) {
         executor.submit(() -> {
+            try {
+                final var localNote = db.getNoteDao().getNoteById(noteId);
+                if (localNote == null || localNote.getRemoteId() == null) {
+                    Log.v(TAG, "Note #" + noteId + " does not exist on the server yet, nothing to refresh");
+                    return;
+                }
+                final var ssoAccount = AccountImporter.getSingleSignOnAccount(context, account.getAccountName());
+                final var notesAPI = apiProvider.getNotesAPI(context, ssoAccount, ApiVersionUtil.getPreferredApiVersion(account.getApiVersion()));
+                final var remoteNote = notesAPI.getNote(localNote.getRemoteId(), localNote.getETag()).blockingSingle().getResponse();
+                final var modified = remoteNote.getModified();
+                final var noteContent = toNoteContent(noteId, remoteNote.getTitle(), remoteNote.getContent(), NoteContent.hash(remoteNote.getContent()));
+                final int rows = db.getNoteDao().updateIfNotModifiedLocallyAndAnyRemoteColumnHasChanged(noteId, modified == null ? null : modified.getTimeInMillis(), remoteNote.getTitle(), remoteNote.getFavorite(), remoteNote.getCategory(), remoteNote.getETag(), noteContent, generateNoteExcerpt(remoteNote.getContent(), remoteNote.getTitle()));
+                if (rows > 0) {
+                    notifyWidgets();
+                }
+            } catch (NextcloudFilesAppAccountNotFoundException e) {
+                e.printStackTrace();
+            } catch (RuntimeException e) {
+                if (e.getCause() instanceof NextcloudHttpRequestFailedException) {
+                    final int statusCode = ((NextcloudHttpRequestFailedException) e.getCause()).getStatusCode();
+                    if (statusCode == HTTP_NOT_MODIFIED) {
+                        Log.v(TAG, "Note #" + noteId + " has not been modified remotely");
+                        return;
+                    } else if (statusCode == HTTP_NOT_FOUND) {
+                        Log.v(TAG, "Note #" + noteId + " has been deleted remotely, it will be removed with the next synchronization");
+                        return;
+                    }
+                }
+                Log.e(TAG, "Could not refresh note #" + noteId, e);
+            } finally {
+                callback.onFinish();
+            }
+        });
+    }
+
+    /**
+     * Toggles the favorite state on the writer of {@link #saveNoteAndSync(Account, Note, String, String, ISyncCallback, IResponseCallback)},
+     * so a pending save, which writes the whole {@link Note}, can not revert it afterwards.
+     */
+    @AnyThread
+    public void toggleFavoriteAndSync(Account account, long noteId) {
+        saveExecutor.submit(() -> {
             db.getNoteDao().toggleFavorite(noteId);
-            scheduleSync(account, true);
+            schedulePush(account, noteId);
         });
     }
 
@@ -482,13 +936,37 @@ public class NotesRepository {
      */
     @AnyThread
     public void setCategory(@NonNull Account account, long noteId, @NonNull String category) {
-        executor.submit(() -> {
+        saveExecutor.submit(() -> {
             db.getNoteDao().updateStatus(noteId, DBStatus.LOCAL_EDITED);
             db.getNoteDao().updateCategory(noteId, category);
             scheduleSync(account, true);
         });
     }
 
+    /**
+     * Asynchronous variant of {@link #updateNoteAndSync(Account, Note, String, String, ISyncCallback)}.
+     * Saves are handed over to a single writer, so a snapshot of the content can never be overwritten by an older one.
+     *
+     * @param newContent    Snapshot of the new content. If this is <code>null</code>, then <code>oldNote</code> is saved again (useful for undoing changes).
+     * @param savedCallback Will be invoked on the writer thread with the result of {@link #updateNoteAndSync(Account, Note, String, String, ISyncCallback)} (optional).
+     */
+    @AnyThread
+    public void saveNoteAndSync(@NonNull Account localAccount, @NonNull Note oldNote, @Nullable String newContent, @Nullable String newTitle, @Nullable ISyncCallback callback, @Nullable IResponseCallback<Note> savedCallback) {
+        saveExecutor.submit(() -> {
+            try {
+                final var savedNote = updateNoteAndSync(localAccount, oldNote, newContent, newTitle, callback);
+                if (savedCallback != null) {
+                    savedCallback.onSuccess(savedNote);
+                }
+            } catch (Exception e) {
+                Log.e(TAG, "Could not save note " + oldNote.getId(), e);
+                if (savedCallback != null) {
+                    savedCallback.onError(e);
+                }
+            }
+        });
+    }
+
     /**
      * Updates a single Note with a new content.
      * The title is derived from the new content automatically, and modified date as well as DBStatus are updated, too -- if the content differs to the state in the database.
@@ -496,17 +974,21 @@ public class NotesRepository {
      * @param oldNote    Note to be changed
      * @param newContent New content. If this is <code>null</code>, then <code>oldNote</code> is saved again (useful for undoing changes).
      * @param newTitle   New title. If this is <code>null</code>, then either the old title is reused (in case the note has been synced before) or a title is generated (in case it is a new note)
-     * @param callback   When the synchronization is finished, this callback will be invoked (optional).
+     * @param callback   Will be notified with {@link ISyncCallback#onScheduled()} as soon as the push of the change has been scheduled (optional).
+     *                   The push is coalesced with further changes, see {@link #schedulePush(Account, long)}.
      * @return changed {@link Note} if differs from database, otherwise the old {@link Note}.
      */
     @WorkerThread
     public Note updateNoteAndSync(@NonNull Account localAccount, @NonNull Note oldNote, @Nullable String newContent, @Nullable String newTitle, @Nullable ISyncCallback callback) {
         final Note newNote;
+        final int dirtyFields;
         // Re-read the up to date remoteId from the database because the UI might not have the state after synchronization yet
         // https://github.com/nextcloud/notes-android/issues/1198
         @Nullable final Long remoteId = db.getNoteDao().getRemoteId(oldNote.getId());
         if (newContent == null) {
             newNote = new Note(oldNote.getId(), remoteId, oldNote.getModified(), oldNote.getTitle(), oldNote.getContent(), oldNote.getCategory(), oldNote.getFavorite(), oldNote.getETag(), DBStatus.LOCAL_EDITED, localAccount.getId(), oldNote.getExcerpt(), oldNote.getScrollY());
+            // Restoring an old state might revert any property
+            dirtyFields = Note.DIRTY_ALL;
         } else {
             final String title;
             if (newTitle != null) {
@@ -521,15 +1003,20 @@ public class NotesRepository {
                 }
             }
             newNote = new Note(oldNote.getId(), remoteId, Calendar.getInstance(), title, newContent, oldNote.getCategory(), oldNote.getFavorite(), oldNote.getETag(), DBStatus.LOCAL_EDITED, localAccount.getId(), generateNoteExcerpt(newContent, title), oldNote.getScrollY());
+            // Compare with the stored state, the caller might already have changed the given oldNote
+            final var storedContentHash = db.getNoteDao().getContentHash(oldNote.getId());
+            final boolean contentChanged = storedContentHash == null || storedContentHash != NoteContent.hash(newContent);
+            final boolean titleChanged = !title.equals(db.getNoteDao().getTitle(oldNote.getId()));
+            dirtyFields = (contentChanged ? Note.DIRTY_CONTENT : 0) | (titleChanged ? Note.DIRTY_TITLE : 0);
         }
-        int rows = db.getNoteDao().updateNote(newNote);
+        int rows = db.getNoteDao().updateNote(newNote, toNoteContent(newNote), dirtyFields);
         // if data was changed, set new status and schedule sync (with callback); otherwise invoke callback directly.
         if (rows > 0) {
             notifyWidgets();
+            schedulePush(localAccount, newNote.getId());
             if (callback != null) {
-                addCallbackPush(localAccount, callback);
+                callback.onScheduled();
             }
-            scheduleSync(localAccount, true);
             return newNote;
         } else {
             if (callback != null) {
@@ -539,6 +1026,25 @@ public class NotesRepository {
         }
     }
 
+    /**
+     * Schedules the push of a changed {@link Note}. Bursts of changes, like autosaves while typing, are merged into a single push.
+     *
+     * @see PushCoalescer
+     */
+    @AnyThread
+    public void schedulePush(@NonNull Account account, long noteId) {
+        pushCoalescer.noteChanged(account, noteId);
+    }
+
+    /**
+     * Starts all pushes scheduled by {@link #schedulePush(Account, long)} immediately, but after all pending saves have been written.
+     * Should be called when the user leaves the editor or the app.
+     */
+    @AnyThread
+    public void flushPendingPushes() {
+        saveExecutor.submit(pushCoalescer::flushAll);
+    }
+
     /**
      * Marks a Note in the Database as Deleted. In the next Synchronization it will be deleted
      * from the Server.
@@ -547,7 +1053,7 @@ public class NotesRepository {
      */
     @AnyThread
     public void deleteNoteAndSync(Account account, long id) {
-        executor.submit(() -> {
+        saveExecutor.submit(() -> {
             db.getNoteDao().updateStatus(id, DBStatus.LOCAL_DELETED);
             notifyWidgets();
             scheduleSync(account, true);
@@ -736,7 +1242,7 @@ public class NotesRepository {
 
     @Override
     protected void finalize() throws Throwable {
-        this.context.unregisterReceiver(networkReceiver);
+        connectivityMonitor.unregister();
         super.finalize();
     }
 
@@ -762,6 +1268,14 @@ public class NotesRepository {
         return syncOnlyOnWifi;
     }
 
+    /**
+     * @return the state of the default network, which is updated as soon as it changes
+     */
+    @NonNull
+    public LiveData<ConnectivityState> getConnectivityState$() {
+        return distinctUntilChanged(connectivityMonitor.getState$());
+    }
+
     /**
      * Adds a callback method to the NoteServerSyncHelper for the synchronization part push local changes to the server.
      * All callbacks will be executed once the synchronization operations are done.
@@ -825,6 +1339,7 @@ public class NotesRepository {
                     final NotesServerSyncTask syncTask = new NotesServerSyncTask(context, this, account, onlyLocalChanges, apiProvider) {
                         @Override
                         void onPreExecute() {
+                            runningSyncs.incrementAndGet();
                             syncStatus.postValue(true);
                             if (!syncScheduled.containsKey(localAccount.getId()) || syncScheduled.get(localAccount.getId()) == null) {
                                 syncScheduled.put(localAccount.getId(), false);
@@ -855,7 +1370,7 @@ public class NotesRepository {
                             if (syncScheduled.containsKey(localAccount.getId()) && syncScheduled.get(localAccount.getId()) != null && Boolean.TRUE.equals(syncScheduled.get(localAccount.getId()))) {
                                 scheduleSync(localAccount, false);
                             }
-                            syncStatus.postValue(false);
+                            syncStatus.postValue(runningSyncs.decrementAndGet() > 0);
                         }
                     };
                     syncTask.addCallbacks(account, callbacksPush.get(account.getId()));
@@ -864,7 +1379,7 @@ public class NotesRepository {
                         syncTask.addCallbacks(account, callbacksPull.get(account.getId()));
                         callbacksPull.put(account.getId(), new ArrayList<>());
                     }
-                    syncExecutor.submit(syncTask);
+                    syncLanes.submit(account.getId(), syncTask);
                 } catch (NextcloudFilesAppAccountNotFoundException e) {
                     Log.e(TAG, "... Could not find " + SingleSignOnAccount.class.getSimpleName() + " for account name " + account.getAccountName());
                     e.printStackTrace();
@@ -898,43 +1413,71 @@ public class NotesRepository {
         }
     }
 
+    /**
+     * Reads the current network state and respects a changed user preference "Sync on Wi-Fi only".
+     * Changes of the network itself are tracked by the {@link ConnectivityMonitor} anyway.
+     */
+    @AnyThread
     public void updateNetworkStatus() {
-        try {
-            final var connMgr = (ConnectivityManager) this.context.getSystemService(Context.CONNECTIVITY_SERVICE);
-            if (connMgr == null) {
-                throw new NetworkErrorException("ConnectivityManager is null");
-            }
+        if (updateSyncPossible(connectivityMonitor.refresh())) {
+            onNetworkUsable();
+        }
+    }
 
-            final var activeInfo = connMgr.getActiveNetworkInfo();
-            if (activeInfo == null) {
-                throw new NetworkErrorException("NetworkInfo is null");
-            }
+    private void onConnectivityChanged(@NonNull ConnectivityState state) {
+        if (updateSyncPossible(state)) {
+            onNetworkUsable();
+        }
+    }
 
-            if (activeInfo.isConnected()) {
-                networkConnected = true;
+    /**
+     * "Sync on Wi-Fi only" is respected by only using unmetered networks, which also covers ethernet and excludes metered Wi-Fi hotspots.
+     *
+     * @return <code>true</code> if the network just became usable: synchronization is possible and the network has been validated
+     */
+    private synchronized boolean updateSyncPossible(@NonNull ConnectivityState state) {
+        networkConnected = state.isConnected();
+        isSyncPossible = state.isConnected() && (!syncOnlyOnWifi || state.isUnmetered());
+        if (isSyncPossible) {
+            Log.d(TAG, "Network connection established.");
+        } else if (networkConnected) {
+            Log.d(TAG, "Network connected, but not used because only synced on wifi.");
+        } else {
+            Log.d(TAG, "No network connection.");
+        }
+        final boolean wasUsable = networkUsable;
+        networkUsable = isSyncPossible && state.isValidated();
+        return networkUsable && !wasUsable;
+    }
 
-                final var networkInfo = connMgr.getNetworkInfo((ConnectivityManager.TYPE_WIFI));
-                if (networkInfo == null) {
-                    throw new NetworkErrorException("connMgr.getNetworkInfo(ConnectivityManager.TYPE_WIFI) is null");
+    /**
+     * Pushes the queued local changes of all {@link Account}s as soon as a usable network appears,
+     * so changes made while being offline reach the server within seconds instead of waiting for the next periodic synchronization.
+     * The current {@link Account} is synchronized completely.
+     */
+    private void onNetworkUsable() {
+        Log.d(TAG, "Network became usable, pushing queued local changes.");
+        resumeInterruptedImports();
+        flushPendingPushes();
+        executor.submit(() -> {
+            Long currentAccountId = null;
+            if (SSOUtil.isConfigured(context)) {
+                try {
+                    final var currentAccount = getAccountByName(SingleAccountHelper.getCurrentSingleSignOnAccount(context).name);
+                    if (currentAccount != null) {
+                        currentAccountId = currentAccount.getId();
+                        scheduleSync(currentAccount, false);
+                    }
+                } catch (NextcloudFilesAppAccountNotFoundException | NoCurrentAccountSelectedException e) {
+                    Log.v(TAG, "Can not select current SingleSignOn account after network changed, do not sync.");
                 }
-
-                isSyncPossible = !syncOnlyOnWifi || networkInfo.isConnected();
-
-                if (isSyncPossible) {
-                    Log.d(TAG, "Network connection established.");
-                } else {
-                    Log.d(TAG, "Network connected, but not used because only synced on wifi.");
+            }
+            for (final var account : getAccounts()) {
+                if (!Objects.equals(currentAccountId, account.getId()) && countUnsynchronizedNotes(account.getId()) > 0) {
+                    scheduleSync(account, true);
                 }
-            } else {
-                networkConnected = false;
-                isSyncPossible = false;
-                Log.d(TAG, "No network connection.");
             }
-        } catch (NetworkErrorException e) {
-            Log.i(TAG, e.getMessage());
-            networkConnected = false;
-            isSyncPossible = false;
-        }
+        });
     }
 
     @NonNull
@@ -951,8 +1494,36 @@ public class NotesRepository {
         return ApiProvider.getInstance().getNotesAPI(context, ssoAccount, preferredApiVersion).getSettings();
     }
 
-    public Call<NotesSettings> putServerSettings(@NonNull SingleSignOnAccount ssoAccount, @NonNull NotesSettings settings, @Nullable ApiVersion preferredApiVersion) {
-        return ApiProvider.getInstance().getNotesAPI(context, ssoAccount, preferredApiVersion).putSettings(settings);
+    /**
+     * Concurrent callers share one request, the result is kept for a short time.
+     *
+     * @return the {@link NotesSettings} or <code>null</code> if the server did not respond successfully
+     */
+    @WorkerThread
+    @Nullable
+    public NotesSettings fetchServerSettings(@NonNull SingleSignOnAccount ssoAccount, @Nullable ApiVersion preferredApiVersion) throws Exception {
+        return serverSettingsCache.get(ssoAccount.name + "/settings", () -> getServerSettings(ssoAccount, preferredApiVersion).execute().body());
+    }
+
+    /**
+     * Stores the given {@param settings} on the server. The cached {@link NotesSettings} are dropped as soon as this succeeded.
+     */
+    @AnyThread
+    public void putServerSettings(@NonNull SingleSignOnAccount ssoAccount, @NonNull NotesSettings settings, @Nullable ApiVersion preferredApiVersion, @NonNull Callback<NotesSettings> callback) {
+        ApiProvider.getInstance().getNotesAPI(context, ssoAccount, preferredApiVersion).putSettings(settings).enqueue(new Callback<>() {
+            @Override
+            public void onResponse(@NonNull Call<NotesSettings> call, @NonNull Response<NotesSettings> response) {
+                if (response.isSuccessful()) {
+                    serverSettingsCache.invalidate(ssoAccount.name + "/settings");
+                }
+                callback.onResponse(call, response);
+            }
+
+            @Override
+            public void onFailure(@NonNull Call<NotesSettings> call, @NonNull Throwable t) {
+                callback.onFailure(call, t);
+            }
+        });
     }
 
     public void updateDisplayName(long id, @Nullable String displayName) {
@@ -4,6 +4,7 @@ import android.content.Context;
 import android.util.Log;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 
 import com.nextcloud.android.sso.AccountImporter;
 import com.nextcloud.android.sso.api.ParsedResponse;
@@ -15,18 +16,26 @@ import com.nextcloud.android.sso.model.SingleSignOnAccount;
 
 import java.util.ArrayList;
 import java.util.Calendar;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
 
 import it.niedermann.owncloud.notes.BuildConfig;
 import it.niedermann.owncloud.notes.persistence.entity.Account;
 import it.niedermann.owncloud.notes.persistence.entity.Note;
+import it.niedermann.owncloud.notes.persistence.entity.NoteContent;
+import it.niedermann.owncloud.notes.persistence.sync.AdaptiveRequestScheduler;
 import it.niedermann.owncloud.notes.persistence.sync.NotesAPI;
-import it.niedermann.owncloud.notes.shared.model.DBStatus;
 import it.niedermann.owncloud.notes.shared.model.ISyncCallback;
 import it.niedermann.owncloud.notes.shared.model.SyncResultStatus;
 import it.niedermann.owncloud.notes.shared.util.ApiVersionUtil;
@@ -34,6 +43,7 @@ import retrofit2.Response;
 
 import static it.niedermann.owncloud.notes.shared.model.DBStatus.LOCAL_DELETED;
 import static it.niedermann.owncloud.notes.shared.util.NoteUtil.generateNoteExcerpt;
+import static java.net.HttpURLConnection.HTTP_BAD_REQUEST;
 import static java.net.HttpURLConnection.HTTP_NOT_FOUND;
 import static java.net.HttpURLConnection.HTTP_NOT_MODIFIED;
 import static java.net.HttpURLConnection.HTTP_UNAVAILABLE;
@@ -50,6 +60,12 @@ abstract class NotesServerSyncTask extends Thread {
     private static final String HEADER_KEY_X_NOTES_API_VERSIONS = "X-Notes-API-Versions";
     private static final String HEADER_KEY_ETAG = "ETag";
     private static final String HEADER_KEY_LAST_MODIFIED = "Last-Modified";
+    static final String HEADER_KEY_X_NOTES_CHUNK_CURSOR = "X-Notes-Chunk-Cursor";
+
+    /**
+     * Amount of {@link Note}s with content requested per chunk when pulling the remote changes.
+     */
+    private static final int PULL_CHUNK_SIZE = 100;
 
     private NotesAPI notesAPI;
     @NonNull
@@ -67,6 +83,10 @@ abstract class NotesServerSyncTask extends Thread {
     protected final Map<Long, List<ISyncCallback>> callbacks = new HashMap<>();
     @NonNull
     protected final ArrayList<Throwable> exceptions = new ArrayList<>();
+    /**
+     * Serializes the updates of the local database after pushing {@link Note}s in parallel.
+     */
+    private final Object localChangesLock = new Object();
 
     NotesServerSyncTask(@NonNull Context context, @NonNull NotesRepository repo, @NonNull Account localAccount, boolean onlyLocalChanges, @NonNull ApiProvider apiProvider) throws NextcloudFilesAppAccountNotFoundException {
         super(TAG);
@@ -107,103 +127,156 @@ abstract class NotesServerSyncTask extends Thread {
 
     /**
      * Push local changes: for each locally created/edited/deleted Note, use NotesClient in order to push the changed to the server.
+     * <p>
+     * {@link Note}s are pushed in parallel as far as the {@link AdaptiveRequestScheduler} of the {@link NotesAPI} allows it. Each {@link Note} is pushed by a single thread, so the requests for one {@link Note} keep their order.
      */
     private boolean pushLocalChanges() {
         Log.d(TAG, "pushLocalChanges()");
 
-        boolean success = true;
         final var notes = repo.getLocalModifiedNotes(localAccount.getId());
-        for (Note note : notes) {
-            Log.d(TAG, "   Process Local Note: " + (BuildConfig.DEBUG ? note : note.getTitle()));
-            try {
-                Note remoteNote;
-                switch (note.getStatus()) {
-                    case LOCAL_EDITED:
-                        Log.v(TAG, "   ...create/edit");
-                        if (note.getRemoteId() != null) {
-                            Log.v(TAG, "   ...Note has remoteId → try to edit");
-                            final var editResponse = notesAPI.editNote(note).execute();
-                            if (editResponse.isSuccessful()) {
-                                remoteNote = editResponse.body();
-                                if (remoteNote == null) {
-                                    Log.e(TAG, "   ...Tried to edit \"" + note.getTitle() + "\" (#" + note.getId() + ") but the server response was null.");
-                                    throw new Exception("Server returned null after editing \"" + note.getTitle() + "\" (#" + note.getId() + ")");
-                                }
-                            } else if (editResponse.code() == HTTP_NOT_FOUND) {
-                                Log.v(TAG, "   ...Note does no longer exist on server → recreate");
-                                final var createResponse = notesAPI.createNote(note).execute();
-                                if (createResponse.isSuccessful()) {
-                                    remoteNote = createResponse.body();
-                                    if (remoteNote == null) {
-                                        Log.e(TAG, "   ...Tried to recreate \"" + note.getTitle() + "\" (#" + note.getId() + ") but the server response was null.");
-                                        throw new Exception("Server returned null after recreating \"" + note.getTitle() + "\" (#" + note.getId() + ")");
-                                    }
-                                } else {
-                                    throw new Exception(createResponse.message());
-                                }
-                            } else {
-                                throw new Exception(editResponse.message());
+        if (notes.isEmpty()) {
+            return true;
+        }
+        final var pushExecutor = Executors.newFixedThreadPool(Math.min(AdaptiveRequestScheduler.MAX_CONCURRENCY, notes.size()));
+        try {
+            final var results = new ArrayList<Future<Exception>>(notes.size());
+            for (final var note : notes) {
+                results.add(pushExecutor.submit(() -> pushLocalChange(note)));
+            }
+            boolean success = true;
+            for (final var result : results) {
+                try {
+                    final var exception = result.get();
+                    if (exception != null) {
+                        exceptions.add(exception);
+                        success = false;
+                    }
+                } catch (ExecutionException e) {
+                    exceptions.add(e.getCause());
+                    success = false;
+                }
+            }
+            return success;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            exceptions.add(e);
+            return false;
+        } finally {
+            pushExecutor.shutdownNow();
+        }
+    }
+
+    /**
+     * Pushes a single {@link Note}. The local database is only updated while holding the {@link #localChangesLock}.
+     *
+     * @return <code>null</code> if the {@link Note} has been pushed successfully, the cause of the failure otherwise
+     */
+    @Nullable
+    private Exception pushLocalChange(@NonNull Note note) {
+        Log.d(TAG, "   Process Local Note: " + (BuildConfig.DEBUG ? note : note.getTitle()));
+        try {
+            Note remoteNote;
+            switch (note.getStatus()) {
+                case LOCAL_EDITED:
+                    Log.v(TAG, "   ...create/edit");
+                    if (note.getRemoteId() != null) {
+                        Log.v(TAG, "   ...Note has remoteId → try to edit");
+                        final var editResponse = notesAPI.getScheduler().execute(notesAPI.editNote(note));
+                        if (editResponse.isSuccessful()) {
+                            remoteNote = editResponse.body();
+                            if (remoteNote == null) {
+                                Log.e(TAG, "   ...Tried to edit \"" + note.getTitle() + "\" (#" + note.getId() + ") but the server response was null.");
+                                throw new Exception("Server returned null after editing \"" + note.getTitle() + "\" (#" + note.getId() + ")");
                             }
-                        } else {
-                            Log.v(TAG, "   ...Note does not have a remoteId yet → create");
-                            final var createResponse = notesAPI.createNote(note).execute();
+                        } else if (editResponse.code() == HTTP_NOT_FOUND) {
+                            Log.v(TAG, "   ...Note does no longer exist on server → recreate");
+                            final var createResponse = notesAPI.getScheduler().execute(notesAPI.createNote(note));
                             if (createResponse.isSuccessful()) {
                                 remoteNote = createResponse.body();
                                 if (remoteNote == null) {
-                                    Log.e(TAG, "   ...Tried to create \"" + note.getTitle() + "\" (#" + note.getId() + ") but the server response was null.");
-                                    throw new Exception("Server returned null after creating \"" + note.getTitle() + "\" (#" + note.getId() + ")");
+                                    Log.e(TAG, "   ...Tried to recreate \"" + note.getTitle() + "\" (#" + note.getId() + ") but the server response was null.");
+                                    throw new Exception("Server returned null after recreating \"" + note.getTitle() + "\" (#" + note.getId() + ")");
+                                }
+                                synchronized (localChangesLock) {
+                                    repo.updateRemoteId(note.getId(), remoteNote.getRemoteId());
                                 }
-                                repo.updateRemoteId(note.getId(), remoteNote.getRemoteId());
                             } else {
                                 throw new Exception(createResponse.message());
                             }
+                        } else {
+                            throw new Exception(editResponse.message());
                         }
-                        // Please note, that db.updateNote() realized an optimistic conflict resolution, which is required for parallel changes of this Note from the UI.
-                        repo.updateIfNotModifiedLocallyDuringSync(note.getId(), remoteNote.getModified().getTimeInMillis(), remoteNote.getTitle(), remoteNote.getFavorite(), remoteNote.getETag(), remoteNote.getContent(), generateNoteExcerpt(remoteNote.getContent(), remoteNote.getTitle()), note.getContent(), note.getCategory(), note.getFavorite());
-                        break;
-                    case LOCAL_DELETED:
-                        if (note.getRemoteId() == null) {
-                            Log.v(TAG, "   ...delete (only local, since it has never been synchronized)");
+                    } else {
+                        Log.v(TAG, "   ...Note does not have a remoteId yet → create");
+                        final var createResponse = notesAPI.getScheduler().execute(notesAPI.createNote(note));
+                        if (createResponse.isSuccessful()) {
+                            remoteNote = createResponse.body();
+                            if (remoteNote == null) {
+                                Log.e(TAG, "   ...Tried to create \"" + note.getTitle() + "\" (#" + note.getId() + ") but the server response was null.");
+                                throw new Exception("Server returned null after creating \"" + note.getTitle() + "\" (#" + note.getId() + ")");
+                            }
+                            synchronized (localChangesLock) {
+                                repo.updateRemoteId(note.getId(), remoteNote.getRemoteId());
+                            }
                         } else {
-                            Log.v(TAG, "   ...delete (from server and local)");
-                            final var deleteResponse = notesAPI.deleteNote(note.getRemoteId()).execute();
-                            if (!deleteResponse.isSuccessful()) {
-                                if (deleteResponse.code() == HTTP_NOT_FOUND) {
-                                    Log.v(TAG, "   ...delete (note has already been deleted remotely)");
-                                } else {
-                                    throw new Exception(deleteResponse.message());
-                                }
+                            throw new Exception(createResponse.message());
+                        }
+                    }
+                    // Please note, that db.updateNote() realized an optimistic conflict resolution, which is required for parallel changes of this Note from the UI.
+                    synchronized (localChangesLock) {
+                        repo.updateIfNotModifiedLocallyDuringSync(note.getId(), remoteNote.getModified().getTimeInMillis(), remoteNote.getTitle(), remoteNote.getFavorite(), remoteNote.getETag(), remoteNote.getContent(), NoteContent.hash(remoteNote.getContent()), generateNoteExcerpt(remoteNote.getContent(), remoteNote.getTitle()), NoteContent.hash(note.getContent()), note.getCategory(), note.getFavorite());
+                    }
+                    break;
+                case LOCAL_DELETED:
+                    if (note.getRemoteId() == null) {
+                        Log.v(TAG, "   ...delete (only local, since it has never been synchronized)");
+                    } else {
+                        Log.v(TAG, "   ...delete (from server and local)");
+                        final var deleteResponse = notesAPI.getScheduler().execute(notesAPI.deleteNote(note.getRemoteId()));
+                        if (!deleteResponse.isSuccessful()) {
+                            if (deleteResponse.code() == HTTP_NOT_FOUND) {
+                                Log.v(TAG, "   ...delete (note has already been deleted remotely)");
+                            } else {
+                                throw new Exception(deleteResponse.message());
                             }
                         }
-                        // Please note, that db.deleteNote() realizes an optimistic conflict resolution, which is required for parallel changes of this Note from the UI.
+                    }
+                    // Please note, that db.deleteNote() realizes an optimistic conflict resolution, which is required for parallel changes of this Note from the UI.
+                    synchronized (localChangesLock) {
                         repo.deleteByNoteId(note.getId(), LOCAL_DELETED);
-                        break;
-                    default:
-                        throw new IllegalStateException("Unknown State of Note " + note + ": " + note.getStatus());
-                }
-            } catch (NextcloudHttpRequestFailedException e) {
-                if (e.getStatusCode() == HTTP_NOT_MODIFIED) {
-                    Log.d(TAG, "Server returned HTTP Status Code 304 - Not Modified");
-                } else {
-                    exceptions.add(e);
-                    success = false;
-                }
-            } catch (Exception e) {
-                if (e instanceof TokenMismatchException) {
-                    apiProvider.invalidateAPICache(ssoAccount);
-                }
-                exceptions.add(e);
-                success = false;
+                    }
+                    break;
+                default:
+                    throw new IllegalStateException("Unknown State of Note " + note + ": " + note.getStatus());
+            }
+        } catch (NextcloudHttpRequestFailedException e) {
+            if (e.getStatusCode() == HTTP_NOT_MODIFIED) {
+                Log.d(TAG, "Server returned HTTP Status Code 304 - Not Modified");
+            } else {
+                return e;
             }
+        } catch (Exception e) {
+            if (e instanceof TokenMismatchException) {
+                apiProvider.invalidateAPICache(ssoAccount);
+            }
+            return e;
         }
-        return success;
+        return null;
     }
 
     /**
      * Pull remote Changes: update or create each remote note (if local pendant has no changes) and remove remotely deleted notes.
+     * <p>
+     * If supported by the server, the changes are pulled and persisted in chunks of {@link #PULL_CHUNK_SIZE} {@link Note}s to keep the memory usage bounded.
+     * The cursor of the next chunk is stored after each chunk, so an interrupted pull can be resumed at this chunk by the next synchronization.
+     * <p>
+     * Once an account has been synchronized, only the metadata of the changed {@link Note}s is pulled.
+     * The content is then fetched with parallel requests limited by the {@link AdaptiveRequestScheduler}, but only for {@link Note}s whose ETag has changed.
      */
     private boolean pullRemoteChanges() {
         Log.d(TAG, "pullRemoteChanges() for account " + localAccount.getAccountName());
+        @Nullable String chunkCursor = null;
+        @Nullable ExecutorService contentExecutor = null;
         try {
             final var idMap = repo.getIdMap(localAccount.getId());
 
@@ -215,55 +288,71 @@ abstract class NotesServerSyncTask extends Thread {
             }
             localAccount.setModified(accountFromDatabase.getModified());
             localAccount.setETag(accountFromDatabase.getETag());
+            localAccount.setChunkCursor(accountFromDatabase.getChunkCursor());
 
-            final var fetchResponse = notesAPI.getNotes(localAccount.getModified(), localAccount.getETag()).blockingSingle();
-            final var remoteNotes = fetchResponse.getResponse();
-            final var remoteIDs = new HashSet<Long>();
-            // pull remote changes: update or create each remote note
-            for (final var remoteNote : remoteNotes) {
-                Log.v(TAG, "   Process Remote Note: " + (BuildConfig.DEBUG ? remoteNote : remoteNote.getTitle()));
-                remoteIDs.add(remoteNote.getRemoteId());
-                if (remoteNote.getModified() == null) {
-                    Log.v(TAG, "   ... unchanged");
-                } else if (idMap.containsKey(remoteNote.getRemoteId())) {
-                    Log.v(TAG, "   ... found → Update");
-                    final Long localId = idMap.get(remoteNote.getRemoteId());
-                    if (localId != null) {
-                        repo.updateIfNotModifiedLocallyAndAnyRemoteColumnHasChanged(
-                                localId, remoteNote.getModified().getTimeInMillis(), remoteNote.getTitle(), remoteNote.getFavorite(), remoteNote.getCategory(), remoteNote.getETag(), remoteNote.getContent(), generateNoteExcerpt(remoteNote.getContent(), remoteNote.getTitle()));
-                    } else {
-                        Log.e(TAG, "Tried to update note from server, but local id of note is null. " + (BuildConfig.DEBUG ? remoteNote : remoteNote.getTitle()));
-                    }
-                } else {
-                    Log.v(TAG, "   ... create");
-                    repo.addNote(localAccount.getId(), remoteNote);
-                }
+            chunkCursor = localAccount.getChunkCursor();
+            final boolean resumed = chunkCursor != null;
+            boolean chunked = resumed;
+            if (resumed) {
+                Log.d(TAG, "   Resume interrupted pull at chunk cursor " + chunkCursor);
+            }
+
+            // The initial pull needs the content of all notes anyway, fetching it separately would cost one request per note.
+            // The last modified date is only updated after a complete pull, so a resumed pull continues in the mode it has been started with.
+            final boolean metadataFirst = localAccount.getModified() != null && localAccount.getModified().getTimeInMillis() > 0;
+            final var localMetadata = metadataFirst ? repo.getRemoteMetadataMap(localAccount.getId()) : Collections.<Long, Note>emptyMap();
+            if (metadataFirst) {
+                contentExecutor = Executors.newFixedThreadPool(AdaptiveRequestScheduler.MAX_CONCURRENCY);
+            }
+
+            final var remoteChanges = new RemoteChanges(idMap, localMetadata, contentExecutor);
+            var headers = chunkCursor == null
+                    ? notesAPI.streamNotes(localAccount.getModified(), localAccount.getETag(), PULL_CHUNK_SIZE, metadataFirst, remoteChanges)
+                    : notesAPI.streamNotesChunk(PULL_CHUNK_SIZE, chunkCursor, remoteChanges);
+            chunkCursor = headers.get(HEADER_KEY_X_NOTES_CHUNK_CURSOR);
+            while (chunkCursor != null) {
+                chunked = true;
+                remoteChanges.apply(Collections.emptyList());
+                repo.updateChunkCursor(localAccount.getId(), chunkCursor);
+                headers = notesAPI.streamNotesChunk(PULL_CHUNK_SIZE, chunkCursor, remoteChanges);
+                chunkCursor = headers.get(HEADER_KEY_X_NOTES_CHUNK_CURSOR);
+            }
+
+            final var remoteIDs = remoteChanges.remoteIDs;
+            if (resumed) {
+                // The IDs of the notes which have been delivered before the interruption are unknown
+                remoteIDs.addAll(notesAPI.getNotesIDs().blockingSingle());
             }
-            Log.d(TAG, "   Remove remotely deleted Notes (only those without local changes)");
             // remove remotely deleted notes (only those without local changes)
+            final var idsToDelete = new ArrayList<Long>();
             for (final var entry : idMap.entrySet()) {
                 if (!remoteIDs.contains(entry.getKey())) {
                     Log.v(TAG, "   ... remove " + entry.getValue());
-                    repo.deleteByNoteId(entry.getValue(), DBStatus.VOID);
+                    idsToDelete.add(entry.getValue());
                 }
             }
+            remoteChanges.apply(idsToDelete);
+            if (chunked) {
+                repo.updateChunkCursor(localAccount.getId(), null);
+            }
 
             // update ETag and Last-Modified in order to reduce size of next response
-            localAccount.setETag(fetchResponse.getHeaders().get(HEADER_KEY_ETAG));
+            // The ETag of a chunk does not describe the whole result, so it can not be used for the next synchronization
+            localAccount.setETag(chunked ? null : headers.get(HEADER_KEY_ETAG));
 
             final var lastModified = Calendar.getInstance();
             lastModified.setTimeInMillis(0);
-            final String lastModifiedHeader = fetchResponse.getHeaders().get(HEADER_KEY_LAST_MODIFIED);
+            final String lastModifiedHeader = headers.get(HEADER_KEY_LAST_MODIFIED);
             if (lastModifiedHeader != null)
                 lastModified.setTimeInMillis(Date.parse(lastModifiedHeader));
-            Log.d(TAG, "ETag: " + fetchResponse.getHeaders().get(HEADER_KEY_ETAG) + "; Last-Modified: " + lastModified + " (" + lastModified + ")");
+            Log.d(TAG, "ETag: " + headers.get(HEADER_KEY_ETAG) + "; Last-Modified: " + lastModified + " (" + lastModified + ")");
 
             localAccount.setModified(lastModified);
 
             repo.updateETag(localAccount.getId(), localAccount.getETag());
             repo.updateModified(localAccount.getId(), localAccount.getModified().getTimeInMillis());
 
-            final String newApiVersion = ApiVersionUtil.sanitize(fetchResponse.getHeaders().get(HEADER_KEY_X_NOTES_API_VERSIONS));
+            final String newApiVersion = ApiVersionUtil.sanitize(headers.get(HEADER_KEY_X_NOTES_API_VERSIONS));
             localAccount.setApiVersion(newApiVersion);
             repo.updateApiVersion(localAccount.getId(), newApiVersion);
             Log.d(TAG, "ApiVersion: " + newApiVersion);
@@ -279,6 +368,9 @@ abstract class NotesServerSyncTask extends Thread {
                     } else if (httpException.getStatusCode() == HTTP_UNAVAILABLE) {
                         Log.d(TAG, "Server returned HTTP Status Code " + httpException.getStatusCode() + " - Server is in maintenance mode.");
                         return true;
+                    } else if (chunkCursor != null && httpException.getStatusCode() == HTTP_BAD_REQUEST) {
+                        Log.w(TAG, "Server rejected chunk cursor " + chunkCursor + " - start over with the next synchronization.");
+                        repo.updateChunkCursor(localAccount.getId(), null);
                     }
                 } else if (cause.getClass() == NextcloudApiNotRespondingException.class || cause instanceof NextcloudApiNotRespondingException) {
                     apiProvider.invalidateAPICache(ssoAccount);
@@ -286,6 +378,157 @@ abstract class NotesServerSyncTask extends Thread {
             }
             exceptions.add(t);
             return false;
+        } finally {
+            if (contentExecutor != null) {
+                contentExecutor.shutdownNow();
+            }
+        }
+    }
+
+    /**
+     * Collects the {@link Note}s streamed from the server and applies them in batches of at most {@link #PULL_CHUNK_SIZE} {@link Note}s,
+     * so they never need to be held in memory all at once.
+     */
+    private class RemoteChanges implements Consumer<Note> {
+        @NonNull
+        private final Map<Long, Long> idMap;
+        @NonNull
+        private final Map<Long, Note> localMetadata;
+        @Nullable
+        private final ExecutorService contentExecutor;
+        @NonNull
+        final Set<Long> remoteIDs = new HashSet<>();
+        @NonNull
+        private Map<Long, Note> notesToUpdate = new HashMap<>();
+        @NonNull
+        private List<Note> notesToAdd = new ArrayList<>();
+
+        /**
+         * @param contentExecutor if present, the streamed {@link Note}s are considered to be metadata and their content will be fetched with {@link #fetchChangedContents(ExecutorService, Map, Map, List)} before applying them
+         */
+        private RemoteChanges(@NonNull Map<Long, Long> idMap, @NonNull Map<Long, Note> localMetadata, @Nullable ExecutorService contentExecutor) {
+            this.idMap = idMap;
+            this.localMetadata = localMetadata;
+            this.contentExecutor = contentExecutor;
+        }
+
+        @Override
+        public void accept(Note remoteNote) {
+            Log.v(TAG, "   Process Remote Note: " + (BuildConfig.DEBUG ? remoteNote : remoteNote.getTitle()));
+            remoteIDs.add(remoteNote.getRemoteId());
+            if (remoteNote.getModified() == null) {
+                Log.v(TAG, "   ... unchanged");
+            } else if (idMap.containsKey(remoteNote.getRemoteId())) {
+                Log.v(TAG, "   ... found → Update");
+                final Long localId = idMap.get(remoteNote.getRemoteId());
+                if (localId != null) {
+                    notesToUpdate.put(localId, remoteNote);
+                } else {
+                    Log.e(TAG, "Tried to update note from server, but local id of note is null. " + (BuildConfig.DEBUG ? remoteNote : remoteNote.getTitle()));
+                }
+            } else {
+                Log.v(TAG, "   ... create");
+                notesToAdd.add(remoteNote);
+            }
+            if (notesToUpdate.size() + notesToAdd.size() >= PULL_CHUNK_SIZE) {
+                apply(Collections.emptyList());
+            }
+        }
+
+        /**
+         * Applies the collected {@link Note}s and the given {@param idsToDelete}.
+         */
+        void apply(@NonNull Collection<Long> idsToDelete) {
+            if (notesToUpdate.isEmpty() && notesToAdd.isEmpty() && idsToDelete.isEmpty()) {
+                return;
+            }
+            if (contentExecutor != null) {
+                fetchChangedContents(contentExecutor, localMetadata, notesToUpdate, notesToAdd);
+            }
+            Log.d(TAG, "   Apply " + notesToUpdate.size() + " updated, " + notesToAdd.size() + " created and " + idsToDelete.size() + " remotely deleted Notes");
+            repo.applyRemoteChanges(localAccount.getId(), notesToUpdate, notesToAdd, idsToDelete);
+            notesToUpdate = new HashMap<>();
+            notesToAdd = new ArrayList<>();
+        }
+    }
+
+    /**
+     * Completes the {@link Note}s of a metadata pull.
+     * <ul>
+     *     <li>{@link Note}s with an unchanged {@link Note#getETag()} are removed from {@param notesToUpdate}</li>
+     *     <li>The content of all other {@link Note}s in {@param notesToUpdate} and {@param notesToAdd} is fetched in parallel.
+     *     The modification date can not tell content changes apart, because it has a precision of seconds and some clients keep it while editing.</li>
+     * </ul>
+     *
+     * @param localMetadata local IDs as keys and the locally known metadata as values
+     */
+    private void fetchChangedContents(@NonNull ExecutorService contentExecutor, @NonNull Map<Long, Note> localMetadata, @NonNull Map<Long, Note> notesToUpdate, @NonNull List<Note> notesToAdd) {
+        final var contentsToFetch = new HashMap<Long, Future<Note>>();
+        for (final var iterator = notesToUpdate.entrySet().iterator(); iterator.hasNext(); ) {
+            final var entry = iterator.next();
+            final var remoteNote = entry.getValue();
+            final var localNote = localMetadata.get(entry.getKey());
+            if (localNote != null && remoteNote.getETag() != null && remoteNote.getETag().equals(localNote.getETag())) {
+                Log.v(TAG, "   ... " + entry.getKey() + " has not been changed");
+                iterator.remove();
+            } else {
+                contentsToFetch.put(entry.getKey(), fetchNote(contentExecutor, remoteNote.getRemoteId()));
+            }
+        }
+        final var addedContents = new ArrayList<Future<Note>>(notesToAdd.size());
+        for (final var remoteNote : notesToAdd) {
+            addedContents.add(fetchNote(contentExecutor, remoteNote.getRemoteId()));
+        }
+        Log.d(TAG, "   Fetch content of " + contentsToFetch.size() + " updated and " + addedContents.size() + " created Notes");
+
+        for (final var entry : contentsToFetch.entrySet()) {
+            final var fullNote = awaitNote(entry.getValue());
+            if (fullNote == null) {
+                notesToUpdate.remove(entry.getKey());
+            } else {
+                notesToUpdate.put(entry.getKey(), fullNote);
+            }
+        }
+        notesToAdd.clear();
+        for (final var future : addedContents) {
+            final var fullNote = awaitNote(future);
+            if (fullNote != null) {
+                notesToAdd.add(fullNote);
+            }
+        }
+    }
+
+    private Future<Note> fetchNote(@NonNull ExecutorService contentExecutor, long remoteId) {
+        return contentExecutor.submit(() -> {
+            try {
+                return notesAPI.getScheduler().execute(() -> notesAPI.getNote(remoteId).blockingSingle().getResponse());
+            } catch (RuntimeException e) {
+                if (e.getCause() instanceof NextcloudHttpRequestFailedException && ((NextcloudHttpRequestFailedException) e.getCause()).getStatusCode() == HTTP_NOT_FOUND) {
+                    Log.v(TAG, "   ... " + remoteId + " has been deleted in the meantime");
+                    return null;
+                }
+                throw e;
+            }
+        });
+    }
+
+    /**
+     * @return the fetched {@link Note} or <code>null</code> if it has been deleted remotely in the meantime
+     */
+    @Nullable
+    private static Note awaitNote(@NonNull Future<Note> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            final var cause = e.getCause();
+            // Keep the exception type of a sequential request, so the error handling of the pull applies
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new RuntimeException(cause);
         }
     }
 }
@@ -0,0 +1,126 @@
+package it.niedermann.owncloud.notes.persistence;
+
+import android.util.Log;
+
+import androidx.annotation.AnyThread;
+import androidx.annotation.NonNull;
+import androidx.annotation.VisibleForTesting;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+
+import it.niedermann.owncloud.notes.persistence.entity.Account;
+import it.niedermann.owncloud.notes.persistence.entity.Note;
+
+/**
+ * Merges bursts of local changes, like the autosaves of the editor, into a single push per {@link Account}.
+ * <p>
+ * Each change marks its {@link Note} as dirty and restarts a debounce window of {@link #DEBOUNCE_MILLIS}.
+ * The push is started when no further change arrived within this window,
+ * but at the latest {@link #MAX_LATENCY_MILLIS} after the first change which has not been pushed yet.
+ */
+class PushCoalescer {
+
+    private static final String TAG = PushCoalescer.class.getSimpleName();
+
+    private static final long DEBOUNCE_MILLIS = 5_000;
+    private static final long MAX_LATENCY_MILLIS = 30_000;
+
+    @NonNull
+    private final ScheduledExecutorService scheduler;
+    @NonNull
+    private final Consumer<Account> push;
+    @NonNull
+    private final LongSupplier clock;
+    private final long debounceMillis;
+    private final long maxLatencyMillis;
+    private final Map<Long, PendingPush> pendingPushes = new HashMap<>();
+
+    /**
+     * @param push starts the push of all local changes of the given {@link Account}
+     */
+    PushCoalescer(@NonNull ScheduledExecutorService scheduler, @NonNull Consumer<Account> push) {
+        this(scheduler, push, () -> TimeUnit.NANOSECONDS.toMillis(System.nanoTime()), DEBOUNCE_MILLIS, MAX_LATENCY_MILLIS);
+    }
+
+    @VisibleForTesting
+    PushCoalescer(@NonNull ScheduledExecutorService scheduler, @NonNull Consumer<Account> push, @NonNull LongSupplier clock, long debounceMillis, long maxLatencyMillis) {
+        this.scheduler = scheduler;
+        this.push = push;
+        this.clock = clock;
+        this.debounceMillis = debounceMillis;
+        this.maxLatencyMillis = maxLatencyMillis;
+    }
+
+    /**
+     * Marks the {@link Note} with the given {@param noteId} as changed and (re)schedules the push of its {@param account}.
+     */
+    @AnyThread
+    synchronized void noteChanged(@NonNull Account account, long noteId) {
+        final long now = clock.getAsLong();
+        var pendingPush = pendingPushes.get(account.getId());
+        if (pendingPush == null) {
+            pendingPush = new PendingPush(now);
+            pendingPushes.put(account.getId(), pendingPush);
+        } else if (pendingPush.flush != null) {
+            pendingPush.flush.cancel(false);
+        }
+        pendingPush.account = account;
+        pendingPush.dirtyNoteIds.add(noteId);
+        final long delay = Math.max(0, Math.min(debounceMillis, pendingPush.firstChange + maxLatencyMillis - now));
+        Log.v(TAG, "Push of " + pendingPush.dirtyNoteIds.size() + " changed notes of account " + account.getId() + " in " + delay + " ms");
+        pendingPush.flush = scheduler.schedule(() -> flush(account.getId()), delay, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Starts the pending push of the {@link Account} with the given {@param accountId} immediately, if there is any.
+     */
+    @AnyThread
+    void flush(long accountId) {
+        final PendingPush pendingPush;
+        synchronized (this) {
+            pendingPush = pendingPushes.remove(accountId);
+            if (pendingPush == null) {
+                return;
+            }
+            if (pendingPush.flush != null) {
+                pendingPush.flush.cancel(false);
+            }
+        }
+        Log.d(TAG, "Pushing " + pendingPush.dirtyNoteIds.size() + " changed notes of account " + accountId);
+        push.accept(pendingPush.account);
+    }
+
+    /**
+     * Starts all pending pushes immediately, e.g. because the app is about to be left.
+     */
+    @AnyThread
+    void flushAll() {
+        final ArrayList<Long> accountIds;
+        synchronized (this) {
+            accountIds = new ArrayList<>(pendingPushes.keySet());
+        }
+        for (final var accountId : accountIds) {
+            flush(accountId);
+        }
+    }
+
+    private static class PendingPush {
+        private final long firstChange;
+        private final Set<Long> dirtyNoteIds = new HashSet<>();
+        private Account account;
+        private ScheduledFuture<?> flush;
+
+        private PendingPush(long firstChange) {
+            this.firstChange = firstChange;
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package it.niedermann.owncloud.notes.persistence;
+
+import android.util.Log;
+
+import androidx.annotation.AnyThread;
+import androidx.annotation.NonNull;
+import androidx.annotation.VisibleForTesting;
+import androidx.annotation.WorkerThread;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * De-duplicates identical requests: concurrent callers with the same key share one in-flight request and its result or failure.
+ * Successful results are additionally kept for a short time to live, failures and <code>null</code> results are not kept.
+ * <p>
+ * Keys are expected to consist of the account, the endpoint and all conditional headers of the request.
+ */
+public class SingleFlightCache {
+
+    private static final String TAG = SingleFlightCache.class.getSimpleName();
+
+    @NonNull
+    private final LongSupplier clock;
+    private final long ttlMillis;
+    private final Map<String, Flight> flights = new HashMap<>();
+
+    public SingleFlightCache(long ttlMillis) {
+        this(() -> TimeUnit.NANOSECONDS.toMillis(System.nanoTime()), ttlMillis);
+    }
+
+    @VisibleForTesting
+    SingleFlightCache(@NonNull LongSupplier clock, long ttlMillis) {
+        this.clock = clock;
+        this.ttlMillis = ttlMillis;
+    }
+
+    /**
+     * @return the cached result for the given {@param key}, the result of an identical request which is currently in flight or the result of the given {@param request}
+     */
+    @WorkerThread
+    public <T> T get(@NonNull String key, @NonNull Callable<T> request) throws Exception {
+        final Flight flight;
+        final boolean shared;
+        synchronized (this) {
+            final var existing = flights.get(key);
+            shared = existing != null && (!existing.result.isDone() || clock.getAsLong() < existing.expiresAt);
+            if (shared) {
+                flight = existing;
+            } else {
+                flight = new Flight();
+                flights.put(key, flight);
+            }
+        }
+        if (shared) {
+            Log.v(TAG, "Sharing result of " + key);
+            return await(flight);
+        }
+        try {
+            final var value = request.call();
+            synchronized (this) {
+                if (value == null) {
+                    flights.remove(key, flight);
+                } else {
+                    flight.expiresAt = clock.getAsLong() + ttlMillis;
+                }
+            }
+            flight.result.complete(value);
+            return value;
+        } catch (Throwable t) {
+            // Also errors have to complete the flight, otherwise all waiting and later callers of this key would block forever
+            synchronized (this) {
+                flights.remove(key, flight);
+            }
+            flight.result.completeExceptionally(t);
+            throw t;
+        }
+    }
+
+    /**
+     * Drops the cached result for the given {@param key}, e.g. because it has been changed.
+     * A request which is currently in flight might have read the old state, so it is still completed for its current callers, but its result is not kept.
+     */
+    @AnyThread
+    public synchronized void invalidate(@NonNull String key) {
+        flights.remove(key);
+    }
+
+    /**
+     * Drops all cached results like {@link #invalidate(String)}.
+     */
+    @AnyThread
+    public synchronized void clear() {
+        flights.clear();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T await(@NonNull Flight flight) throws Exception {
+        try {
+            return (T) flight.result.get();
+        } catch (ExecutionException e) {
+            final var cause = e.getCause();
+            if (cause instanceof Exception) {
+                throw (Exception) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw e;
+        }
+    }
+
+    private static class Flight {
+        private final CompletableFuture<Object> result = new CompletableFuture<>();
+        private long expiresAt = Long.MAX_VALUE;
+    }
+}
@@ -0,0 +1,62 @@
+package it.niedermann.owncloud.notes.persistence;
+
+import androidx.annotation.AnyThread;
+import androidx.annotation.NonNull;
+
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+
+/**
+ * Runs the synchronizations of each {@link it.niedermann.owncloud.notes.persistence.entity.Account} one after the other in its own lane,
+ * while the lanes of different accounts share the threads of the given {@link Executor}.
+ * <p>
+ * A lane occupies at most one thread at a time, so a slow server can not hold up the synchronization of the other accounts
+ * as long as the {@link Executor} provides more than one thread.
+ */
+class SyncLanes {
+
+    @NonNull
+    private final Executor executor;
+    private final Map<Long, Lane> lanes = new ConcurrentHashMap<>();
+
+    SyncLanes(@NonNull Executor executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * Runs the given {@param task} after all previously submitted tasks of the same {@param accountId} have finished.
+     */
+    @AnyThread
+    void submit(long accountId, @NonNull Runnable task) {
+        lanes.computeIfAbsent(accountId, id -> new Lane()).execute(task);
+    }
+
+    private class Lane implements Executor {
+
+        private final ArrayDeque<Runnable> tasks = new ArrayDeque<>();
+        private Runnable active;
+
+        @Override
+        public synchronized void execute(@NonNull Runnable task) {
+            tasks.add(() -> {
+                try {
+                    task.run();
+                } finally {
+                    scheduleNext();
+                }
+            });
+            if (active == null) {
+                scheduleNext();
+            }
+        }
+
+        private synchronized void scheduleNext() {
+            active = tasks.poll();
+            if (active != null) {
+                executor.execute(active);
+            }
+        }
+    }
+}
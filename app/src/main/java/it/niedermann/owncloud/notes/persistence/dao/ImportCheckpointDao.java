@@ -0,0 +1,33 @@
+package it.niedermann.owncloud.notes.persistence.dao;
+
+import androidx.annotation.Nullable;
+import androidx.room.Dao;
+import androidx.room.Insert;
+import androidx.room.OnConflictStrategy;
+import androidx.room.Query;
+
+import java.util.List;
+
+import it.niedermann.owncloud.notes.persistence.entity.ImportCheckpoint;
+
+@Dao
+public interface ImportCheckpointDao {
+
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    void insertImportCheckpoint(ImportCheckpoint importCheckpoint);
+
+    @Query("SELECT * FROM ImportCheckpoint WHERE accountId = :accountId")
+    ImportCheckpoint getImportCheckpoint(long accountId);
+
+    @Query("SELECT accountId FROM ImportCheckpoint")
+    List<Long> getAccountIdsWithPendingImport();
+
+    @Query("UPDATE ImportCheckpoint SET chunkCursor = :chunkCursor WHERE accountId = :accountId")
+    void updateChunkCursor(long accountId, @Nullable String chunkCursor);
+
+    @Query("UPDATE ImportCheckpoint SET total = :total WHERE accountId = :accountId")
+    void updateTotal(long accountId, int total);
+
+    @Query("DELETE FROM ImportCheckpoint WHERE accountId = :accountId")
+    void deleteImportCheckpoint(long accountId);
+}
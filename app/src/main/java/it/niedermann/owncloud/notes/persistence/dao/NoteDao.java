@@ -1,55 +1,263 @@
 package it.niedermann.owncloud.notes.persistence.dao;
 
+import androidx.annotation.NonNull;
 import androidx.lifecycle.LiveData;
+import androidx.lifecycle.Transformations;
+import androidx.paging.PagingSource;
 import androidx.room.Dao;
 import androidx.room.Insert;
 import androidx.room.OnConflictStrategy;
 import androidx.room.Query;
+import androidx.room.Transaction;
 import androidx.room.Update;
+import androidx.room.Upsert;
 
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.Set;
+import java.util.stream.Collectors;
 
 import it.niedermann.owncloud.notes.persistence.entity.Account;
+import it.niedermann.owncloud.notes.persistence.entity.CategoryCount;
 import it.niedermann.owncloud.notes.persistence.entity.CategoryWithNotesCount;
+import it.niedermann.owncloud.notes.persistence.entity.CompressedNoteFts;
 import it.niedermann.owncloud.notes.persistence.entity.Note;
+import it.niedermann.owncloud.notes.persistence.entity.NoteContent;
+import it.niedermann.owncloud.notes.persistence.entity.NoteSearchResult;
+import it.niedermann.owncloud.notes.persistence.entity.NoteUiState;
+import it.niedermann.owncloud.notes.persistence.entity.NoteWithContent;
 import it.niedermann.owncloud.notes.shared.model.DBStatus;
 
+import static it.niedermann.owncloud.notes.shared.util.NoteUtil.EXCERPT_LINE_SEPARATOR;
+
 /**
- * Each method starting with <code>search</code> will return only a partial {@link Note} without any
- * {@link Note#eTag}, {@link Note#status}, {@link Note#content} or {@link Note#scrollY} for performance reasons.
+ * Each method starting with <code>search</code> or listing notes of a category will return only a partial {@link Note} without any
+ * {@link Note#eTag} or {@link Note#content} for performance reasons.
+ * <p>
+ * The {@link Note#content} is stored separately in {@link NoteContent}. It is only loaded by {@link #getNoteById(long)},
+ * {@link #getNoteById$(long)} and {@link #getLocalModifiedNotes(long)}, all other methods leave it empty.
+ * The {@link Note#scrollY} is stored separately in {@link NoteUiState} and never loaded by this DAO, see {@link NoteUiStateDao}.
  */
 @SuppressWarnings("JavadocReference")
 @Dao
 public interface NoteDao {
 
     @Insert
-    long addNote(Note note);
+    long insertNote(Note note);
+
+    @Insert
+    List<Long> insertNotes(List<Note> notes);
 
     @Update(onConflict = OnConflictStrategy.REPLACE)
-    int updateNote(Note newNote);
+    int updateNoteWithoutContent(Note newNote);
+
+    @Upsert
+    void upsertNoteContent(NoteContent content);
+
+    @Upsert
+    void upsertNoteContents(List<NoteContent> contents);
+
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    void insertCompressedNoteFts(List<CompressedNoteFts> entries);
+
+    /**
+     * Stores the given {@param content}. A compressed content is indexed in {@link CompressedNoteFts} before, so the
+     * title trigger of {@link CompressedNoteFts} does not index it a second time.
+     */
+    @Transaction
+    default void upsertContent(NoteContent content) {
+        upsertContents(Collections.singletonList(content));
+    }
+
+    /**
+     * @see #upsertContent(NoteContent)
+     */
+    @Transaction
+    default void upsertContents(List<NoteContent> contents) {
+        final var compressedContents = contents.stream()
+                .filter(content -> content.getIndexedContent() != null)
+                .map(content -> new CompressedNoteFts(content.getNoteId(), content.getTitle(), content.getIndexedContent()))
+                .collect(Collectors.toList());
+        if (!compressedContents.isEmpty()) {
+            insertCompressedNoteFts(compressedContents);
+        }
+        upsertNoteContents(contents);
+    }
+
+    @Query("SELECT * FROM NoteContent WHERE noteId = :noteId")
+    NoteContent getNoteContent(long noteId);
+
+    @Query("SELECT contentHash FROM NoteContent WHERE noteId = :noteId")
+    Long getContentHash(long noteId);
+
+    /**
+     * @return the decompressed content of the {@link Note} with the given {@param noteId}
+     */
+    @NonNull
+    default String getContent(long noteId) {
+        final var noteContent = getNoteContent(noteId);
+        return noteContent == null ? "" : NoteContent.read(noteContent.getContent(), noteContent.getCompressedContent());
+    }
+
+    /**
+     * Stores the given {@link Note} including its {@link Note#content} uncompressed.
+     *
+     * @return the {@link Note#id} of the new {@link Note}
+     * @see #addNote(Note, NoteContent)
+     */
+    @Transaction
+    default long addNote(Note note) {
+        return addNote(note, NoteContent.of(0, note.getTitle(), note.getContent()));
+    }
+
+    /**
+     * Stores the given {@link Note} along with its {@param content}, which has already been prepared (e.g. compressed) by the caller.
+     * The {@link NoteContent#noteId} is set by this method.
+     *
+     * @return the {@link Note#id} of the new {@link Note}
+     */
+    @Transaction
+    default long addNote(Note note, NoteContent content) {
+        final long id = insertNote(note);
+        content.setNoteId(id);
+        upsertContent(content);
+        return id;
+    }
+
+    /**
+     * Stores all given {@link Note}s along with their {@param contents} using one statement per table.
+     * The {@link NoteContent#noteId}s are set by this method.
+     *
+     * @param contents prepared contents of the given {@param notes} in the same order
+     * @return the {@link Note#id}s of the new {@link Note}s in the same order as the given {@param notes}
+     */
+    @Transaction
+    default List<Long> addNotes(List<Note> notes, List<NoteContent> contents) {
+        final var ids = insertNotes(notes);
+        for (int i = 0; i < ids.size(); i++) {
+            contents.get(i).setNoteId(ids.get(i));
+        }
+        upsertContents(contents);
+        return ids;
+    }
 
-    String getNoteById = "SELECT * FROM NOTE WHERE id = :id";
+    /**
+     * Updates the given {@link Note} including its {@link Note#content} uncompressed.
+     *
+     * @return the count of updated {@link Note}s
+     * @see #updateNote(Note, NoteContent)
+     */
+    @Transaction
+    default int updateNote(Note newNote) {
+        return updateNote(newNote, NoteContent.of(newNote.getId(), newNote.getTitle(), newNote.getContent()));
+    }
+
+    /**
+     * Updates the given {@link Note} and stores its {@param content}, which has already been prepared (e.g. compressed) by the caller.
+     *
+     * @return the count of updated {@link Note}s
+     */
+    @Transaction
+    default int updateNote(Note newNote, NoteContent content) {
+        final int rows = updateNoteWithoutContent(newNote);
+        if (rows > 0) {
+            upsertContent(content);
+        }
+        return rows;
+    }
+
+    @Query("SELECT dirtyFields FROM NOTE WHERE id = :id")
+    int getDirtyFields(long id);
+
+    /**
+     * Updates the given {@link Note} like {@link #updateNote(Note, NoteContent)} and adds the given {@param dirtyFields}
+     * to the ones which have not been pushed yet.
+     *
+     * @param dirtyFields {@link Note#DIRTY_CONTENT} and the other flags of the properties which have been changed
+     */
+    @Transaction
+    default int updateNote(Note newNote, NoteContent content, int dirtyFields) {
+        newNote.setDirtyFields(getDirtyFields(newNote.getId()) | dirtyFields);
+        return updateNote(newNote, content);
+    }
+
+    String noteWithContentColumns = "SELECT NOTE.*, IFNULL(NoteContent.content, '') as content, NoteContent.compressedContent as compressedContent FROM NOTE LEFT JOIN NoteContent ON NoteContent.noteId = NOTE.id";
+    String getNoteById = noteWithContentColumns + " WHERE NOTE.id = :id";
     String count = "SELECT COUNT(*) FROM NOTE WHERE status != 'LOCAL_DELETED' AND accountId = :accountId";
     String countFavorites = "SELECT COUNT(*) FROM NOTE WHERE status != 'LOCAL_DELETED' AND accountId = :accountId AND favorite = 1";
-    String searchRecentByModified = "SELECT id, remoteId, accountId, title, favorite, excerpt, modified, category, status, '' as eTag, '' as content, 0 as scrollY FROM NOTE WHERE accountId = :accountId AND status != 'LOCAL_DELETED' AND (title LIKE :query OR content LIKE :query) ORDER BY favorite DESC, modified DESC";
-    String searchRecentLexicographically = "SELECT id, remoteId, accountId, title, favorite, excerpt, modified, category, status, '' as eTag, '' as content, 0 as scrollY FROM NOTE WHERE accountId = :accountId AND status != 'LOCAL_DELETED' AND (title LIKE :query OR content LIKE :query) ORDER BY favorite DESC, title COLLATE LOCALIZED ASC";
-    String searchFavoritesByModified = "SELECT id, remoteId, accountId, title, favorite, excerpt, modified, category, status, '' as eTag, '' as content, 0 as scrollY FROM NOTE WHERE accountId = :accountId AND status != 'LOCAL_DELETED' AND (title LIKE :query OR content LIKE :query) AND favorite = 1 ORDER BY modified DESC";
-    String searchFavoritesLexicographically = "SELECT id, remoteId, accountId, title, favorite, excerpt, modified, category, status, '' as eTag, '' as content, 0 as scrollY FROM NOTE WHERE accountId = :accountId AND status != 'LOCAL_DELETED' AND (title LIKE :query OR content LIKE :query) AND favorite = 1 ORDER BY title COLLATE LOCALIZED ASC";
-    String searchUncategorizedByModified = "SELECT id, remoteId, accountId, title, favorite, excerpt, modified, category, status, '' as eTag, '' as content, 0 as scrollY FROM NOTE WHERE accountId = :accountId AND status != 'LOCAL_DELETED' AND (title LIKE :query OR content LIKE :query) AND category = '' ORDER BY favorite DESC, modified DESC";
-    String searchUncategorizedLexicographically = "SELECT id, remoteId, accountId, title, favorite, excerpt, modified, category, status, '' as eTag, '' as content, 0 as scrollY FROM NOTE WHERE accountId = :accountId AND status != 'LOCAL_DELETED' AND (title LIKE :query OR content LIKE :query) AND category = '' ORDER BY favorite DESC, title COLLATE LOCALIZED ASC";
-    String searchCategoryByModified = "SELECT id, remoteId, accountId, title, favorite, excerpt, modified, category, status, '' as eTag, '' as content, 0 as scrollY FROM NOTE WHERE accountId = :accountId AND status != 'LOCAL_DELETED' AND (title LIKE :query OR content LIKE :query) AND (category = :category OR category LIKE :category || '/%') ORDER BY category, favorite DESC, modified DESC";
-    String searchCategoryLexicographically = "SELECT id, remoteId, accountId, title, favorite, excerpt, modified, category, status, '' as eTag, '' as content, 0 as scrollY FROM NOTE WHERE accountId = :accountId AND status != 'LOCAL_DELETED' AND (title LIKE :query OR content LIKE :query) AND (category = :category OR category LIKE :category || '/%') ORDER BY category, favorite DESC, title COLLATE LOCALIZED ASC";
+    String noteListColumns = "SELECT id, remoteId, accountId, title, favorite, excerpt, modified, category, status, '' as eTag, 0 as dirtyFields FROM NOTE WHERE accountId = :accountId AND status != 'LOCAL_DELETED'";
+    String matchesQuery = " AND id IN (SELECT rowid FROM NoteFts WHERE NoteFts MATCH :query UNION SELECT rowid FROM CompressedNoteFts WHERE CompressedNoteFts MATCH :query)";
+    String isFavorite = " AND favorite = 1";
+    String isUncategorized = " AND category = ''";
+    String isInCategory = " AND (category = :category OR category LIKE :category || '/%')";
+    String orderByFavoriteAndModified = " ORDER BY favorite DESC, modified DESC";
+    String orderByFavoriteAndTitle = " ORDER BY favorite DESC, title COLLATE LOCALIZED ASC";
+    String orderByModified = " ORDER BY modified DESC";
+    String orderByTitle = " ORDER BY title COLLATE LOCALIZED ASC";
+    String orderByCategoryFavoriteAndModified = " ORDER BY category, favorite DESC, modified DESC";
+    String orderByCategoryFavoriteAndTitle = " ORDER BY category, favorite DESC, title COLLATE LOCALIZED ASC";
+
+    String getRecentByModified = noteListColumns + orderByFavoriteAndModified;
+    String getRecentLexicographically = noteListColumns + orderByFavoriteAndTitle;
+    String getFavoritesByModified = noteListColumns + isFavorite + orderByModified;
+    String getFavoritesLexicographically = noteListColumns + isFavorite + orderByTitle;
+    String getUncategorizedByModified = noteListColumns + isUncategorized + orderByFavoriteAndModified;
+    String getUncategorizedLexicographically = noteListColumns + isUncategorized + orderByFavoriteAndTitle;
+    String getCategoryByModified = noteListColumns + isInCategory + orderByCategoryFavoriteAndModified;
+    String getCategoryLexicographically = noteListColumns + isInCategory + orderByCategoryFavoriteAndTitle;
+
+    /*
+     * The search queries are driven by the NoteFts and CompressedNoteFts full text indexes, so their cost depends on the
+     * number of matches instead of the number of notes. The query parameter therefore has to be a
+     * valid FTS MATCH expression, see NoteUtil#generateFullTextQuery(String).
+     * The index only finds words by their beginning, so substrings within words (e.g. "note" in "footnote")
+     * and within texts without spaces (e.g. Chinese or Japanese) are not found.
+     */
+    String searchRecentByModified = noteListColumns + matchesQuery + orderByFavoriteAndModified;
+    String searchRecentLexicographically = noteListColumns + matchesQuery + orderByFavoriteAndTitle;
+    String searchFavoritesByModified = noteListColumns + matchesQuery + isFavorite + orderByModified;
+    String searchFavoritesLexicographically = noteListColumns + matchesQuery + isFavorite + orderByTitle;
+    String searchUncategorizedByModified = noteListColumns + matchesQuery + isUncategorized + orderByFavoriteAndModified;
+    String searchUncategorizedLexicographically = noteListColumns + matchesQuery + isUncategorized + orderByFavoriteAndTitle;
+    String searchCategoryByModified = noteListColumns + matchesQuery + isInCategory + orderByCategoryFavoriteAndModified;
+    String searchCategoryLexicographically = noteListColumns + matchesQuery + isInCategory + orderByCategoryFavoriteAndTitle;
+
+    /*
+     * Queries for ranking the matches of a search by relevance. They only load the columns needed for ranking
+     * (see NoteSearchResult), the most relevant notes are loaded afterwards by getNotesWithSnippet(String, Collection).
+     * Compressed contents are only indexed in CompressedNoteFts, so their title-only entries in NoteFts are skipped.
+     */
+    String rankMatches = "SELECT NOTE.id, NOTE.favorite, NOTE.modified, matchinfo(NoteFts, 'pcnalx') as matchInfo FROM NoteFts JOIN NOTE ON NOTE.id = NoteFts.rowid " +
+            "JOIN NoteContent ON NoteContent.noteId = NOTE.id WHERE NoteFts MATCH :query AND NoteContent.compressedContent IS NULL AND NOTE.accountId = :accountId AND NOTE.status != 'LOCAL_DELETED'";
+    String rankCompressedMatches = " UNION ALL SELECT NOTE.id, NOTE.favorite, NOTE.modified, matchinfo(CompressedNoteFts, 'pcnalx') as matchInfo FROM CompressedNoteFts JOIN NOTE ON NOTE.id = CompressedNoteFts.rowid " +
+            "WHERE CompressedNoteFts MATCH :query AND NOTE.accountId = :accountId AND NOTE.status != 'LOCAL_DELETED'";
+    String rankRecent = rankMatches + rankCompressedMatches;
+    String rankFavorites = rankMatches + isFavorite + rankCompressedMatches + isFavorite;
+    String rankUncategorized = rankMatches + isUncategorized + rankCompressedMatches + isUncategorized;
+    String rankCategory = rankMatches + isInCategory + rankCompressedMatches + isInCategory;
 
     @Query(getNoteById)
-    LiveData<Note> getNoteById$(long id);
+    LiveData<NoteWithContent> getNoteWithContentById$(long id);
 
     @Query(getNoteById)
-    Note getNoteById(long id);
+    NoteWithContent getNoteWithContentById(long id);
+
+    default LiveData<Note> getNoteById$(long id) {
+        return Transformations.map(getNoteWithContentById$(id), noteWithContent -> noteWithContent == null ? null : noteWithContent.toNote());
+    }
+
+    default Note getNoteById(long id) {
+        final var noteWithContent = getNoteWithContentById(id);
+        return noteWithContent == null ? null : noteWithContent.toNote();
+    }
 
     @Query("SELECT remoteId FROM NOTE WHERE id = :id")
     Long getRemoteId(long id);
 
+    @Query("SELECT title FROM NOTE WHERE id = :id")
+    String getTitle(long id);
+
     @Query(count)
     LiveData<Integer> count$(long accountId);
 
@@ -62,12 +270,75 @@ public interface NoteDao {
     @Query(countFavorites)
     Integer countFavorites(long accountId);
 
+    @Query(getRecentByModified)
+    LiveData<List<Note>> getRecentByModified$(long accountId);
+
+    @Query(getRecentByModified)
+    List<Note> getRecentByModified(long accountId);
+
+    @Query(getRecentLexicographically)
+    LiveData<List<Note>> getRecentLexicographically$(long accountId);
+
+    @Query(getFavoritesByModified)
+    LiveData<List<Note>> getFavoritesByModified$(long accountId);
+
+    @Query(getFavoritesByModified)
+    List<Note> getFavoritesByModified(long accountId);
+
+    @Query(getFavoritesLexicographically)
+    LiveData<List<Note>> getFavoritesLexicographically$(long accountId);
+
+    @Query(getUncategorizedByModified)
+    LiveData<List<Note>> getUncategorizedByModified$(long accountId);
+
+    @Query(getUncategorizedByModified)
+    List<Note> getUncategorizedByModified(long accountId);
+
+    @Query(getUncategorizedLexicographically)
+    LiveData<List<Note>> getUncategorizedLexicographically$(long accountId);
+
+    @Query(getCategoryByModified)
+    LiveData<List<Note>> getCategoryByModified$(long accountId, String category);
+
+    @Query(getCategoryByModified)
+    List<Note> getCategoryByModified(long accountId, String category);
+
+    @Query(getCategoryLexicographically)
+    LiveData<List<Note>> getCategoryLexicographically$(long accountId, String category);
+
     @Query(searchRecentByModified)
     LiveData<List<Note>> searchRecentByModified$(long accountId, String query);
 
     @Query(searchRecentByModified)
     List<Note> searchRecentByModified(long accountId, String query);
 
+    @Query(rankRecent)
+    LiveData<List<NoteSearchResult>> rankRecent$(long accountId, String query);
+
+    @Query(rankFavorites)
+    LiveData<List<NoteSearchResult>> rankFavorites$(long accountId, String query);
+
+    @Query(rankUncategorized)
+    LiveData<List<NoteSearchResult>> rankUncategorized$(long accountId, String query);
+
+    @Query(rankCategory)
+    LiveData<List<NoteSearchResult>> rankCategory$(long accountId, String query, String category);
+
+    /**
+     * Loads the {@link Note}s with the given {@param ids} which match the given {@param query}.
+     * The {@link Note#excerpt} contains a snippet of the content around the first match.
+     * Make sure to pass less than 999 {@param ids} because of the SQLite bind argument limit.
+     *
+     * @return the matching {@link Note}s in no particular order
+     */
+    @Query("SELECT NOTE.id, NOTE.remoteId, NOTE.accountId, NOTE.title, NOTE.favorite, replace(snippet(NoteFts, '', '', '…', 1, 16), char(10), '" + EXCERPT_LINE_SEPARATOR + "') as excerpt, " +
+            "NOTE.modified, NOTE.category, NOTE.status, '' as eTag, 0 as dirtyFields " +
+            "FROM NoteFts JOIN NOTE ON NOTE.id = NoteFts.rowid JOIN NoteContent ON NoteContent.noteId = NOTE.id WHERE NoteFts MATCH :query AND NoteFts.rowid IN (:ids) AND NoteContent.compressedContent IS NULL " +
+            "UNION ALL SELECT NOTE.id, NOTE.remoteId, NOTE.accountId, NOTE.title, NOTE.favorite, replace(snippet(CompressedNoteFts, '', '', '…', 1, 16), char(10), '" + EXCERPT_LINE_SEPARATOR + "') as excerpt, " +
+            "NOTE.modified, NOTE.category, NOTE.status, '' as eTag, 0 as dirtyFields " +
+            "FROM CompressedNoteFts JOIN NOTE ON NOTE.id = CompressedNoteFts.rowid WHERE CompressedNoteFts MATCH :query AND CompressedNoteFts.rowid IN (:ids)")
+    List<Note> getNotesWithSnippet(String query, Collection<Long> ids);
+
     @Query(searchRecentLexicographically)
     LiveData<List<Note>> searchRecentLexicographically$(long accountId, String query);
 
@@ -110,16 +381,73 @@ public interface NoteDao {
     @Query(searchCategoryLexicographically)
     List<Note> searchCategoryLexicographically(long accountId, String query, String category);
 
+    /*
+     * Paged variants of the queries above, which load the notes in chunks while scrolling
+     * instead of materialising the whole result set.
+     */
+
+    @Query(getRecentByModified)
+    PagingSource<Integer, Note> getRecentByModifiedPaged(long accountId);
+
+    @Query(getRecentLexicographically)
+    PagingSource<Integer, Note> getRecentLexicographicallyPaged(long accountId);
+
+    @Query(getFavoritesByModified)
+    PagingSource<Integer, Note> getFavoritesByModifiedPaged(long accountId);
+
+    @Query(getFavoritesLexicographically)
+    PagingSource<Integer, Note> getFavoritesLexicographicallyPaged(long accountId);
+
+    @Query(getUncategorizedByModified)
+    PagingSource<Integer, Note> getUncategorizedByModifiedPaged(long accountId);
+
+    @Query(getUncategorizedLexicographically)
+    PagingSource<Integer, Note> getUncategorizedLexicographicallyPaged(long accountId);
+
+    @Query(getCategoryByModified)
+    PagingSource<Integer, Note> getCategoryByModifiedPaged(long accountId, String category);
+
+    @Query(getCategoryLexicographically)
+    PagingSource<Integer, Note> getCategoryLexicographicallyPaged(long accountId, String category);
+
+    @Query(searchRecentByModified)
+    PagingSource<Integer, Note> searchRecentByModifiedPaged(long accountId, String query);
+
+    @Query(searchRecentLexicographically)
+    PagingSource<Integer, Note> searchRecentLexicographicallyPaged(long accountId, String query);
+
+    @Query(searchFavoritesByModified)
+    PagingSource<Integer, Note> searchFavoritesByModifiedPaged(long accountId, String query);
+
+    @Query(searchFavoritesLexicographically)
+    PagingSource<Integer, Note> searchFavoritesLexicographicallyPaged(long accountId, String query);
+
+    @Query(searchUncategorizedByModified)
+    PagingSource<Integer, Note> searchUncategorizedByModifiedPaged(long accountId, String query);
+
+    @Query(searchUncategorizedLexicographically)
+    PagingSource<Integer, Note> searchUncategorizedLexicographicallyPaged(long accountId, String query);
+
+    @Query(searchCategoryByModified)
+    PagingSource<Integer, Note> searchCategoryByModifiedPaged(long accountId, String query, String category);
+
+    @Query(searchCategoryLexicographically)
+    PagingSource<Integer, Note> searchCategoryLexicographicallyPaged(long accountId, String query, String category);
+
     @Query("DELETE FROM NOTE WHERE id = :id AND status = :forceDBStatus")
     void deleteByNoteId(long id, DBStatus forceDBStatus);
 
-    @Query("UPDATE NOTE SET scrollY = :scrollY WHERE id = :id")
-    void updateScrollY(long id, int scrollY);
+    /**
+     * Make sure to pass less than 999 {@param ids} because of the SQLite bind argument limit.
+     */
+    @Query("DELETE FROM NOTE WHERE id IN (:ids) AND status = :forceDBStatus")
+    void deleteByNoteIds(Collection<Long> ids, DBStatus forceDBStatus);
+
 
     @Query("UPDATE NOTE SET status = :status WHERE id = :id")
     void updateStatus(long id, DBStatus status);
 
-    @Query("UPDATE NOTE SET category = :category WHERE id = :id")
+    @Query("UPDATE NOTE SET category = :category, dirtyFields = dirtyFields | " + Note.DIRTY_CATEGORY + " WHERE id = :id")
     void updateCategory(long id, String category);
 
     /**
@@ -135,9 +463,16 @@ public interface NoteDao {
      * Gets a list of {@link Note} objects with filled {@link Note#id} and {@link Note#remoteId},
      * where {@link Note#remoteId} is not <code>null</code>
      */
-    @Query("SELECT id, remoteId, 0 as accountId, '' as title, 0 as favorite, '' as excerpt, 0 as modified, '' as eTag, 0 as status, '' as category, '' as content, 0 as scrollY  FROM NOTE WHERE accountId = :accountId AND status != 'LOCAL_DELETED' AND remoteId IS NOT NULL")
+    @Query("SELECT id, remoteId, 0 as accountId, '' as title, 0 as favorite, '' as excerpt, 0 as modified, '' as eTag, 0 as status, '' as category, 0 as dirtyFields FROM NOTE WHERE accountId = :accountId AND status != 'LOCAL_DELETED' AND remoteId IS NOT NULL")
     List<Note> getRemoteIdAndId(long accountId);
 
+    /**
+     * Gets a list of {@link Note} objects with filled {@link Note#id}, {@link Note#remoteId}, {@link Note#modified}, {@link Note#title} and {@link Note#eTag},
+     * where {@link Note#remoteId} is not <code>null</code>
+     */
+    @Query("SELECT id, remoteId, 0 as accountId, title, 0 as favorite, '' as excerpt, modified, eTag, 0 as status, '' as category, 0 as dirtyFields FROM NOTE WHERE accountId = :accountId AND status != 'LOCAL_DELETED' AND remoteId IS NOT NULL")
+    List<Note> getRemoteMetadata(long accountId);
+
     /**
      * Get a single {@link Note} by {@link Note#remoteId} (aka. Nextcloud file id)
      *
@@ -152,13 +487,17 @@ public interface NoteDao {
      *
      * @return {@link List<Note>}
      */
-    @Query("SELECT * FROM NOTE WHERE status != '' AND accountId = :accountId")
-    List<Note> getLocalModifiedNotes(long accountId);
+    @Query(noteWithContentColumns + " WHERE NOTE.status != '' AND NOTE.accountId = :accountId")
+    List<NoteWithContent> getLocalModifiedNotesWithContent(long accountId);
+
+    default List<Note> getLocalModifiedNotes(long accountId) {
+        return getLocalModifiedNotesWithContent(accountId).stream().map(NoteWithContent::toNote).collect(Collectors.toList());
+    }
 
     @Query("SELECT * FROM NOTE WHERE status != 'LOCAL_DELETED' AND accountId = :accountId ORDER BY modified DESC LIMIT 4")
     List<Note> getRecentNotes(long accountId);
 
-    @Query("UPDATE NOTE SET status = 'LOCAL_EDITED', favorite = ((favorite | 1) - (favorite & 1)) WHERE id = :id")
+    @Query("UPDATE NOTE SET status = 'LOCAL_EDITED', favorite = ((favorite | 1) - (favorite & 1)), dirtyFields = dirtyFields | " + Note.DIRTY_FAVORITE + " WHERE id = :id")
     void toggleFavorite(long id);
 
     @Query("UPDATE NOTE SET remoteId = :remoteId WHERE id = :id")
@@ -166,18 +505,45 @@ public interface NoteDao {
 
     /**
      * used by: {@link it.niedermann.owncloud.notes.persistence.NotesServerSyncTask#pushLocalChanges()} update only, if not modified locally during the synchronization
-     * (i.e. all (!) user changeable columns (content, favorite, category) must still have the same value), uses reference value gathered at start of synchronization
+     * (i.e. all (!) user changeable columns (content, favorite, category) must still have the same value), uses reference value gathered at start of synchronization.
+     * The content is compared by its {@link NoteContent#hash(String)}.
      */
-    @Query("UPDATE NOTE SET title = :targetTitle, modified = :targetModified, favorite = :targetFavorite, etag = :targetETag, content = :targetContent, status = '', excerpt = :targetExcerpt " +
-            "WHERE id = :noteId AND content = :contentBeforeSyncStart AND favorite = :favoriteBeforeSyncStart AND category = :categoryBeforeSyncStart")
-    int updateIfNotModifiedLocallyDuringSync(long noteId, Long targetModified, String targetTitle, boolean targetFavorite, String targetETag, String targetContent, String targetExcerpt, String contentBeforeSyncStart, String categoryBeforeSyncStart, boolean favoriteBeforeSyncStart);
+    @Query("UPDATE NOTE SET title = :targetTitle, modified = :targetModified, favorite = :targetFavorite, etag = :targetETag, status = '', excerpt = :targetExcerpt, dirtyFields = 0 " +
+            "WHERE id = :noteId AND favorite = :favoriteBeforeSyncStart AND category = :categoryBeforeSyncStart AND (SELECT contentHash FROM NoteContent WHERE noteId = :noteId) = :contentHashBeforeSyncStart")
+    int updateWithoutContentIfNotModifiedLocallyDuringSync(long noteId, Long targetModified, String targetTitle, boolean targetFavorite, String targetETag, String targetExcerpt, long contentHashBeforeSyncStart, String categoryBeforeSyncStart, boolean favoriteBeforeSyncStart);
+
+    /**
+     * @param targetContent              prepared {@link NoteContent} of the {@link Note} with the given {@param noteId} and {@param targetTitle}
+     * @param contentHashBeforeSyncStart {@link NoteContent#hash(String)} of the content at the start of the synchronization
+     * @see #updateWithoutContentIfNotModifiedLocallyDuringSync(long, Long, String, boolean, String, String, long, String, boolean)
+     */
+    @Transaction
+    default int updateIfNotModifiedLocallyDuringSync(long noteId, Long targetModified, String targetTitle, boolean targetFavorite, String targetETag, NoteContent targetContent, String targetExcerpt, long contentHashBeforeSyncStart, String categoryBeforeSyncStart, boolean favoriteBeforeSyncStart) {
+        final int rows = updateWithoutContentIfNotModifiedLocallyDuringSync(noteId, targetModified, targetTitle, targetFavorite, targetETag, targetExcerpt, contentHashBeforeSyncStart, categoryBeforeSyncStart, favoriteBeforeSyncStart);
+        if (rows > 0 && targetContent.getContentHash() != contentHashBeforeSyncStart) {
+            upsertContent(targetContent);
+        }
+        return rows;
+    }
+
+    @Query("UPDATE NOTE SET title = :title, modified = :modified, favorite = :favorite, etag = :eTag, status = '', excerpt = :excerpt, category = :category " +
+            "WHERE id = :id AND status = '' AND (title != :title OR modified != :modified OR favorite != :favorite OR category != :category OR (eTag IS NULL OR eTag != :eTag) OR IFNULL((SELECT contentHash FROM NoteContent WHERE noteId = :id), 0) != :contentHash)")
+    int updateWithoutContentIfNotModifiedLocallyAndAnyRemoteColumnHasChanged(long id, Long modified, String title, boolean favorite, String category, String eTag, long contentHash, String excerpt);
 
     /**
      * used by: {@link it.niedermann.owncloud.notes.persistence.NotesServerSyncTask#pullRemoteChanges()} update only, if not modified locally (i.e. STATUS="") and if modified remotely (i.e. any (!) column has changed)
+     *
+     * @param content prepared {@link NoteContent} of the {@link Note} with the given {@param id} and {@param title}
      */
-    @Query("UPDATE NOTE SET title = :title, modified = :modified, favorite = :favorite, etag = :eTag, content = :content, status = '', excerpt = :excerpt, category = :category " +
-            "WHERE id = :id AND status = '' AND (title != :title OR modified != :modified OR favorite != :favorite OR category != :category OR (eTag IS NULL OR eTag != :eTag) OR content != :content)")
-    int updateIfNotModifiedLocallyAndAnyRemoteColumnHasChanged(long id, Long modified, String title, boolean favorite, String category, String eTag, String content, String excerpt);
+    @Transaction
+    default int updateIfNotModifiedLocallyAndAnyRemoteColumnHasChanged(long id, Long modified, String title, boolean favorite, String category, String eTag, NoteContent content, String excerpt) {
+        final Long contentHashBefore = getContentHash(id);
+        final int rows = updateWithoutContentIfNotModifiedLocallyAndAnyRemoteColumnHasChanged(id, modified, title, favorite, category, eTag, content.getContentHash(), excerpt);
+        if (rows > 0 && (contentHashBefore == null || contentHashBefore != content.getContentHash())) {
+            upsertContent(content);
+        }
+        return rows;
+    }
 
     /**
      * This method return all of the categories with given {@param accountId}
@@ -188,6 +554,14 @@ public interface NoteDao {
     @Query("SELECT accountId, category, COUNT(*) as 'totalNotes' FROM NOTE WHERE STATUS != 'LOCAL_DELETED' AND accountId = :accountId GROUP BY category")
     LiveData<List<CategoryWithNotesCount>> getCategories$(Long accountId);
 
+    /**
+     * @return the counts of all categories of the given {@param accountId}, ordered by category.
+     * Other than {@link #getCategories$(Long)}, {@link #count$(long)} and {@link #countFavorites$(long)} this does not aggregate the {@link Note} table,
+     * because {@link CategoryCount} is maintained by triggers.
+     */
+    @Query("SELECT * FROM CategoryCount WHERE accountId = :accountId ORDER BY category")
+    LiveData<List<CategoryCount>> getCategoryCounts$(long accountId);
+
     @Query("SELECT accountId, category, COUNT(*) as 'totalNotes' FROM NOTE WHERE STATUS != 'LOCAL_DELETED' AND accountId = :accountId AND category != '' AND category LIKE :searchTerm GROUP BY category")
     LiveData<List<CategoryWithNotesCount>> searchCategories$(Long accountId, String searchTerm);
 
@@ -0,0 +1,37 @@
+package it.niedermann.owncloud.notes.persistence.dao;
+
+import androidx.room.Dao;
+import androidx.room.Query;
+import androidx.room.Transaction;
+
+import it.niedermann.owncloud.notes.persistence.entity.Note;
+import it.niedermann.owncloud.notes.persistence.entity.NoteUiState;
+
+/**
+ * Writes to {@link NoteUiState} only invalidate observers of this table, not the ones of {@link Note}.
+ */
+@Dao
+public interface NoteUiStateDao {
+
+    @Query("SELECT IFNULL((SELECT scrollY FROM NoteUiState WHERE noteId = :noteId), 0)")
+    int getScrollY(long noteId);
+
+    @Query("UPDATE NoteUiState SET scrollY = :scrollY WHERE noteId = :noteId")
+    int updateExistingScrollY(long noteId, int scrollY);
+
+    /**
+     * Does not insert anything if there is no {@link Note} with the given {@param noteId} (anymore).
+     */
+    @Query("INSERT INTO NoteUiState (noteId, scrollY) SELECT id, :scrollY FROM Note WHERE id = :noteId")
+    void insertScrollY(long noteId, int scrollY);
+
+    /**
+     * Only touches the scroll position, other columns of an existing {@link NoteUiState} are kept.
+     */
+    @Transaction
+    default void updateScrollY(long noteId, int scrollY) {
+        if (updateExistingScrollY(noteId, scrollY) == 0) {
+            insertScrollY(noteId, scrollY);
+        }
+    }
+}
@@ -53,6 +53,11 @@ public class Account implements Serializable {
     @Nullable
     private String displayName;
     private boolean directEditingAvailable;
+    /**
+     * Cursor of the next chunk of an interrupted synchronization, <code>null</code> if the last synchronization has been finished.
+     */
+    @Nullable
+    private String chunkCursor;
 
     public Account() {
         // Default constructor
@@ -177,6 +182,15 @@ public class Account implements Serializable {
         this.directEditingAvailable = directEditingAvailable;
     }
 
+    @Nullable
+    public String getChunkCursor() {
+        return chunkCursor;
+    }
+
+    public void setChunkCursor(@Nullable String chunkCursor) {
+        this.chunkCursor = chunkCursor;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -198,6 +212,8 @@ public class Account implements Serializable {
         if (capabilitiesETag != null ? !capabilitiesETag.equals(account.capabilitiesETag) : account.capabilitiesETag != null)
             return false;
         if (directEditingAvailable != account.directEditingAvailable) return false;
+        if (chunkCursor != null ? !chunkCursor.equals(account.chunkCursor) : account.chunkCursor != null)
+            return false;
         return true;
     }
 
@@ -214,6 +230,7 @@ public class Account implements Serializable {
         result = 31 * result + textColor;
         result = 31 * result + (capabilitiesETag != null ? capabilitiesETag.hashCode() : 0);
         result = 31 * result + (directEditingAvailable ? 1 : 0);
+        result = 31 * result + (chunkCursor != null ? chunkCursor.hashCode() : 0);
         return result;
     }
 
@@ -232,6 +249,7 @@ public class Account implements Serializable {
                 ", textColor=" + textColor +
                 ", capabilitiesETag='" + capabilitiesETag + '\'' +
                 ", directEditingAvailable='" + directEditingAvailable + '\'' +
+                ", chunkCursor='" + chunkCursor + '\'' +
                 '}';
     }
 }
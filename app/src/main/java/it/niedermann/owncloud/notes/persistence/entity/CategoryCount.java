@@ -0,0 +1,129 @@
+package it.niedermann.owncloud.notes.persistence.entity;
+
+import androidx.annotation.NonNull;
+import androidx.room.ColumnInfo;
+import androidx.room.Entity;
+import androidx.room.ForeignKey;
+import androidx.room.Ignore;
+import androidx.room.Index;
+
+/**
+ * Amount of {@link Note}s and favorite {@link Note}s per category, not counting {@link it.niedermann.owncloud.notes.shared.model.DBStatus#LOCAL_DELETED} ones.
+ * <p>
+ * The rows are maintained by triggers on the {@link Note} table, so the navigation does not have to
+ * aggregate all {@link Note}s of an {@link Account} each time a single {@link Note} changes.
+ * The total counts of an {@link Account} are the sums of all its categories.
+ */
+@Entity(
+        primaryKeys = {
+                "accountId",
+                "category"
+        },
+        foreignKeys = {
+                @ForeignKey(
+                        entity = Account.class,
+                        parentColumns = "id",
+                        childColumns = "accountId",
+                        onDelete = ForeignKey.CASCADE
+                )
+        },
+        indices = {
+                @Index(name = "IDX_CATEGORYCOUNT_ACCOUNTID", value = "accountId")
+        }
+)
+public class CategoryCount {
+
+    private long accountId;
+
+    @NonNull
+    private String category = "";
+
+    @ColumnInfo(defaultValue = "0")
+    private int totalNotes;
+
+    @ColumnInfo(defaultValue = "0")
+    private int favoriteNotes;
+
+    public CategoryCount() {
+        // Default constructor for Room
+    }
+
+    @Ignore
+    public CategoryCount(long accountId, @NonNull String category, int totalNotes, int favoriteNotes) {
+        this.accountId = accountId;
+        this.category = category;
+        this.totalNotes = totalNotes;
+        this.favoriteNotes = favoriteNotes;
+    }
+
+    public long getAccountId() {
+        return accountId;
+    }
+
+    public void setAccountId(long accountId) {
+        this.accountId = accountId;
+    }
+
+    @NonNull
+    public String getCategory() {
+        return category;
+    }
+
+    public void setCategory(@NonNull String category) {
+        this.category = category;
+    }
+
+    public int getTotalNotes() {
+        return totalNotes;
+    }
+
+    public void setTotalNotes(int totalNotes) {
+        this.totalNotes = totalNotes;
+    }
+
+    public int getFavoriteNotes() {
+        return favoriteNotes;
+    }
+
+    public void setFavoriteNotes(int favoriteNotes) {
+        this.favoriteNotes = favoriteNotes;
+    }
+
+    @NonNull
+    public CategoryWithNotesCount toCategoryWithNotesCount() {
+        return new CategoryWithNotesCount(accountId, category, totalNotes);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof CategoryCount)) return false;
+
+        CategoryCount that = (CategoryCount) o;
+
+        if (accountId != that.accountId) return false;
+        if (totalNotes != that.totalNotes) return false;
+        if (favoriteNotes != that.favoriteNotes) return false;
+        return category.equals(that.category);
+    }
+
+    @Override
+    public int hashCode() {
+        int result = (int) (accountId ^ (accountId >>> 32));
+        result = 31 * result + category.hashCode();
+        result = 31 * result + totalNotes;
+        result = 31 * result + favoriteNotes;
+        return result;
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+        return "CategoryCount{" +
+                "accountId=" + accountId +
+                ", category='" + category + '\'' +
+                ", totalNotes=" + totalNotes +
+                ", favoriteNotes=" + favoriteNotes +
+                '}';
+    }
+}
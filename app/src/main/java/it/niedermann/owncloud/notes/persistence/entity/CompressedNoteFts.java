@@ -0,0 +1,70 @@
+package it.niedermann.owncloud.notes.persistence.entity;
+
+import androidx.annotation.NonNull;
+import androidx.room.ColumnInfo;
+import androidx.room.Entity;
+import androidx.room.Fts4;
+import androidx.room.Ignore;
+import androidx.room.PrimaryKey;
+
+/**
+ * Full text index over the title and the decompressed content of {@link NoteContent}s which are stored compressed.
+ * <p>
+ * {@link NoteFts} reads the indexed columns from {@link NoteContent}, where a compressed content is stored empty.
+ * This index therefore holds its own copy of the decompressed content, which is written by
+ * {@link it.niedermann.owncloud.notes.persistence.dao.NoteDao#upsertContent(NoteContent)} and removed by triggers,
+ * see {@link it.niedermann.owncloud.notes.persistence.migration.Migration_25_26}.
+ * The <code>rowid</code> of each entry equals the {@link Note#id}.
+ */
+@SuppressWarnings("JavadocReference")
+@Fts4
+@Entity
+public class CompressedNoteFts {
+
+    @PrimaryKey
+    @ColumnInfo(name = "rowid")
+    private long rowId;
+
+    @NonNull
+    private String title = "";
+
+    @NonNull
+    private String content = "";
+
+    public CompressedNoteFts() {
+        super();
+    }
+
+    @Ignore
+    public CompressedNoteFts(long rowId, @NonNull String title, @NonNull String content) {
+        this.rowId = rowId;
+        this.title = title;
+        this.content = content;
+    }
+
+    public long getRowId() {
+        return rowId;
+    }
+
+    public void setRowId(long rowId) {
+        this.rowId = rowId;
+    }
+
+    @NonNull
+    public String getTitle() {
+        return title;
+    }
+
+    public void setTitle(@NonNull String title) {
+        this.title = title;
+    }
+
+    @NonNull
+    public String getContent() {
+        return content;
+    }
+
+    public void setContent(@NonNull String content) {
+        this.content = content;
+    }
+}
@@ -0,0 +1,79 @@
+package it.niedermann.owncloud.notes.persistence.entity;
+
+import androidx.annotation.Nullable;
+import androidx.room.ColumnInfo;
+import androidx.room.Entity;
+import androidx.room.ForeignKey;
+import androidx.room.Ignore;
+import androidx.room.PrimaryKey;
+
+/**
+ * Progress of the import of an {@link Account} which has not been finished yet.
+ * <p>
+ * The row is created before the first {@link Note} is imported and deleted once all {@link Note}s have been imported,
+ * so an interrupted import can be continued instead of starting over again.
+ * {@link Note}s which have already been stored are recognized by their {@link Note#remoteId} and skipped.
+ */
+@SuppressWarnings("JavadocReference")
+@Entity(
+        foreignKeys = {
+                @ForeignKey(
+                        entity = Account.class,
+                        parentColumns = "id",
+                        childColumns = "accountId",
+                        onDelete = ForeignKey.CASCADE
+                )
+        }
+)
+public class ImportCheckpoint {
+
+    @PrimaryKey
+    private long accountId;
+
+    /**
+     * Cursor of the next chunk of the listing, all {@link Note}s of the previous chunks have been stored.
+     * <code>null</code> if the listing needs to be started from the beginning.
+     */
+    @Nullable
+    private String chunkCursor;
+
+    /**
+     * Amount of remote {@link Note}s at the start of the import, <code>0</code> if it has not been fetched yet.
+     */
+    @ColumnInfo(defaultValue = "0")
+    private int total;
+
+    public ImportCheckpoint() {
+        super();
+    }
+
+    @Ignore
+    public ImportCheckpoint(long accountId) {
+        this.accountId = accountId;
+    }
+
+    public long getAccountId() {
+        return accountId;
+    }
+
+    public void setAccountId(long accountId) {
+        this.accountId = accountId;
+    }
+
+    @Nullable
+    public String getChunkCursor() {
+        return chunkCursor;
+    }
+
+    public void setChunkCursor(@Nullable String chunkCursor) {
+        this.chunkCursor = chunkCursor;
+    }
+
+    public int getTotal() {
+        return total;
+    }
+
+    public void setTotal(int total) {
+        this.total = total;
+    }
+}
@@ -37,6 +37,16 @@ import it.niedermann.owncloud.notes.shared.model.Item;
         }
 )
 public class Note implements Serializable, Item {
+
+    /**
+     * Flags for {@link #dirtyFields}
+     */
+    public static final int DIRTY_CONTENT = 1;
+    public static final int DIRTY_TITLE = 1 << 1;
+    public static final int DIRTY_CATEGORY = 1 << 2;
+    public static final int DIRTY_FAVORITE = 1 << 3;
+    public static final int DIRTY_ALL = DIRTY_CONTENT | DIRTY_TITLE | DIRTY_CATEGORY | DIRTY_FAVORITE;
+
     @SerializedName("localId")
     @PrimaryKey(autoGenerate = true)
     private long id;
@@ -65,8 +75,12 @@ public class Note implements Serializable, Item {
     @Nullable
     private Calendar modified;
 
+    /**
+     * Not stored in this table but in {@link NoteContent}, so it will only be available when
+     * loading a single {@link Note} or the {@link Note}s which need to be synchronized.
+     */
     @NonNull
-    @ColumnInfo(defaultValue = "")
+    @Ignore
     @Expose
     private String content = "";
 
@@ -83,7 +97,18 @@ public class Note implements Serializable, Item {
     @ColumnInfo(defaultValue = "")
     private String excerpt = "";
 
+    /**
+     * Bitmask of the properties which have been changed locally since the last successful synchronization,
+     * so a push only needs to transfer those. See {@link #DIRTY_CONTENT}, {@link #DIRTY_TITLE}, {@link #DIRTY_CATEGORY} and {@link #DIRTY_FAVORITE}.
+     */
     @ColumnInfo(defaultValue = "0")
+    private int dirtyFields = 0;
+
+    /**
+     * Not stored in this table but in {@link NoteUiState}, so it will only be available when
+     * loading a single {@link Note} to display it.
+     */
+    @Ignore
     private int scrollY = 0;
 
     public Note() {
@@ -207,6 +232,14 @@ public class Note implements Serializable, Item {
         this.excerpt = excerpt;
     }
 
+    public int getDirtyFields() {
+        return dirtyFields;
+    }
+
+    public void setDirtyFields(int dirtyFields) {
+        this.dirtyFields = dirtyFields;
+    }
+
     public int getScrollY() {
         return scrollY;
     }
@@ -270,6 +303,7 @@ public class Note implements Serializable, Item {
                 ", favorite=" + favorite +
                 ", eTag='" + eTag + '\'' +
                 ", excerpt='" + excerpt + '\'' +
+                ", dirtyFields=" + dirtyFields +
                 ", scrollY=" + scrollY +
                 '}';
     }
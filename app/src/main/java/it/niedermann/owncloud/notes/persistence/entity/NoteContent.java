@@ -0,0 +1,186 @@
+package it.niedermann.owncloud.notes.persistence.entity;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.room.ColumnInfo;
+import androidx.room.Entity;
+import androidx.room.ForeignKey;
+import androidx.room.Ignore;
+import androidx.room.PrimaryKey;
+
+import java.nio.charset.StandardCharsets;
+
+import it.niedermann.owncloud.notes.shared.util.CompressionUtil;
+
+/**
+ * Holds the {@link Note#content} separated from the other columns of a {@link Note}.
+ * <p>
+ * Keeping the potentially large content out of the {@link Note} table keeps its rows small, so
+ * list, widget and navigation queries never have to read content pages.
+ * <p>
+ * Large contents can be stored compressed in {@link #compressedContent}, in this case {@link #content} is empty and the content is full text indexed in {@link CompressedNoteFts}.
+ * Compressing is up to the repository, use {@link #read(String, byte[])} to read both forms transparently.
+ * <p>
+ * {@link #contentHash} allows detecting changes of the content without comparing (or even loading) the whole content.
+ * <p>
+ * {@link #title} is a copy of {@link Note#title}, so this table can serve as external content table of {@link NoteFts}.
+ * It is kept in sync by a trigger, see {@link it.niedermann.owncloud.notes.persistence.migration.Migration_25_26}.
+ */
+@SuppressWarnings("JavadocReference")
+@Entity(
+        foreignKeys = {
+                @ForeignKey(
+                        entity = Note.class,
+                        parentColumns = "id",
+                        childColumns = "noteId",
+                        onDelete = ForeignKey.CASCADE
+                )
+        }
+)
+public class NoteContent {
+
+    /**
+     * Contents with at least this amount of bytes will be compressed if enabled.
+     */
+    public static final int COMPRESSION_THRESHOLD = 64 * 1024;
+
+    @PrimaryKey
+    private long noteId;
+
+    @NonNull
+    @ColumnInfo(defaultValue = "")
+    private String title = "";
+
+    @NonNull
+    @ColumnInfo(defaultValue = "")
+    private String content = "";
+
+    @Nullable
+    private byte[] compressedContent;
+
+    @ColumnInfo(defaultValue = "0")
+    private long contentHash;
+
+    /**
+     * The decompressed content of a {@link NoteContent} created by {@link #compressed(long, String, String, long)}, which still has to be indexed.
+     */
+    @Ignore
+    @Nullable
+    private String indexedContent;
+
+    public NoteContent() {
+        super();
+    }
+
+    @Ignore
+    public NoteContent(long noteId, @NonNull String title, @NonNull String content, long contentHash) {
+        this.noteId = noteId;
+        this.title = title;
+        this.content = content;
+        this.contentHash = contentHash;
+    }
+
+    /**
+     * @return a {@link NoteContent} which holds the given {@param content} uncompressed
+     */
+    @NonNull
+    public static NoteContent of(long noteId, @NonNull String title, @NonNull String content) {
+        return new NoteContent(noteId, title, content, hash(content));
+    }
+
+    /**
+     * @return a {@link NoteContent} which holds the given {@param content} compressed
+     * @param contentHash must be the {@link #hash(String)} of the given {@param content}, pass it to avoid hashing the same content twice
+     */
+    @NonNull
+    public static NoteContent compressed(long noteId, @NonNull String title, @NonNull String content, long contentHash) {
+        final var noteContent = new NoteContent(noteId, title, "", contentHash);
+        noteContent.setCompressedContent(CompressionUtil.compress(content));
+        noteContent.indexedContent = content;
+        return noteContent;
+    }
+
+    /**
+     * @return whether the given {@param content} has at least {@link #COMPRESSION_THRESHOLD} bytes
+     */
+    public static boolean exceedsCompressionThreshold(@NonNull String content) {
+        // A char takes at most three bytes in UTF-8, so most contents can be ruled out without encoding them
+        return content.length() * 3L >= COMPRESSION_THRESHOLD && content.getBytes(StandardCharsets.UTF_8).length >= COMPRESSION_THRESHOLD;
+    }
+
+    /**
+     * 64 bit <a href="https://en.wikipedia.org/wiki/Fowler%E2%80%93Noll%E2%80%93Vo_hash_function">FNV-1a</a> hash of the given {@param content}.
+     * It is not suitable for cryptographic purposes, but fast enough to be calculated on each save and sufficient to detect changes.
+     */
+    public static long hash(@NonNull String content) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < content.length(); i++) {
+            final char c = content.charAt(i);
+            hash = (hash ^ (c & 0xff)) * 0x100000001b3L;
+            hash = (hash ^ (c >>> 8)) * 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    /**
+     * @return the actual content, no matter whether it has been stored compressed or not
+     */
+    @NonNull
+    public static String read(@Nullable String content, @Nullable byte[] compressedContent) {
+        if (compressedContent != null) {
+            return CompressionUtil.decompress(compressedContent);
+        }
+        return content == null ? "" : content;
+    }
+
+    public long getNoteId() {
+        return noteId;
+    }
+
+    public void setNoteId(long noteId) {
+        this.noteId = noteId;
+    }
+
+    @NonNull
+    public String getTitle() {
+        return title;
+    }
+
+    public void setTitle(@NonNull String title) {
+        this.title = title;
+    }
+
+    @NonNull
+    public String getContent() {
+        return content;
+    }
+
+    public void setContent(@NonNull String content) {
+        this.content = content;
+    }
+
+    @Nullable
+    public byte[] getCompressedContent() {
+        return compressedContent;
+    }
+
+    public void setCompressedContent(@Nullable byte[] compressedContent) {
+        this.compressedContent = compressedContent;
+    }
+
+    public long getContentHash() {
+        return contentHash;
+    }
+
+    public void setContentHash(long contentHash) {
+        this.contentHash = contentHash;
+    }
+
+    /**
+     * @return the decompressed content which has to be written to {@link CompressedNoteFts}, or <code>null</code> if there is nothing to index
+     */
+    @Nullable
+    public String getIndexedContent() {
+        return indexedContent;
+    }
+}
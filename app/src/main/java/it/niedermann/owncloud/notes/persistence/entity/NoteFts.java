@@ -0,0 +1,56 @@
+package it.niedermann.owncloud.notes.persistence.entity;
+
+import androidx.annotation.NonNull;
+import androidx.room.ColumnInfo;
+import androidx.room.Entity;
+import androidx.room.Fts4;
+import androidx.room.PrimaryKey;
+
+/**
+ * Full text index over {@link NoteContent#title} and {@link NoteContent#content}.
+ * <p>
+ * {@link NoteContent} is used as external content table, so the index does not hold a copy of the indexed columns.
+ * The <code>rowid</code> of each entry equals the {@link Note#id}.
+ * Compressed contents are stored empty in {@link NoteContent}, so only their title is indexed here, see {@link CompressedNoteFts}.
+ */
+@SuppressWarnings("JavadocReference")
+@Fts4(contentEntity = NoteContent.class)
+@Entity
+public class NoteFts {
+
+    @PrimaryKey
+    @ColumnInfo(name = "rowid")
+    private long rowId;
+
+    @NonNull
+    private String title = "";
+
+    @NonNull
+    private String content = "";
+
+    public long getRowId() {
+        return rowId;
+    }
+
+    public void setRowId(long rowId) {
+        this.rowId = rowId;
+    }
+
+    @NonNull
+    public String getTitle() {
+        return title;
+    }
+
+    public void setTitle(@NonNull String title) {
+        this.title = title;
+    }
+
+    @NonNull
+    public String getContent() {
+        return content;
+    }
+
+    public void setContent(@NonNull String content) {
+        this.content = content;
+    }
+}
@@ -0,0 +1,59 @@
+package it.niedermann.owncloud.notes.persistence.entity;
+
+import androidx.annotation.Nullable;
+
+import java.util.Calendar;
+
+/**
+ * The {@link Note#id} of a {@link Note} found by a full text search together with the raw
+ * <a href="https://www.sqlite.org/fts3.html#matchinfo"><code>matchinfo(NoteFts, 'pcnalx')</code></a>
+ * of the match, which can be used to rank the results by relevance.
+ * <p>
+ * Only the columns needed for ranking are loaded, so all matches can be ranked without loading the matching {@link Note}s.
+ */
+public class NoteSearchResult {
+
+    private long id;
+
+    private boolean favorite;
+
+    @Nullable
+    private Calendar modified;
+
+    @Nullable
+    private byte[] matchInfo;
+
+    public long getId() {
+        return id;
+    }
+
+    public void setId(long id) {
+        this.id = id;
+    }
+
+    public boolean getFavorite() {
+        return favorite;
+    }
+
+    public void setFavorite(boolean favorite) {
+        this.favorite = favorite;
+    }
+
+    @Nullable
+    public Calendar getModified() {
+        return modified;
+    }
+
+    public void setModified(@Nullable Calendar modified) {
+        this.modified = modified;
+    }
+
+    @Nullable
+    public byte[] getMatchInfo() {
+        return matchInfo;
+    }
+
+    public void setMatchInfo(@Nullable byte[] matchInfo) {
+        this.matchInfo = matchInfo;
+    }
+}
@@ -0,0 +1,60 @@
+package it.niedermann.owncloud.notes.persistence.entity;
+
+import androidx.room.ColumnInfo;
+import androidx.room.Entity;
+import androidx.room.ForeignKey;
+import androidx.room.Ignore;
+import androidx.room.PrimaryKey;
+
+/**
+ * Holds the state of the user interface for a {@link Note}, like the {@link Note#scrollY} position in the editor.
+ * <p>
+ * Those purely cosmetic values are kept out of the {@link Note} table, so writing them does not
+ * invalidate the observed list, navigation and editor queries.
+ * A {@link Note} without a row in this table has the default state.
+ */
+@SuppressWarnings("JavadocReference")
+@Entity(
+        foreignKeys = {
+                @ForeignKey(
+                        entity = Note.class,
+                        parentColumns = "id",
+                        childColumns = "noteId",
+                        onDelete = ForeignKey.CASCADE
+                )
+        }
+)
+public class NoteUiState {
+
+    @PrimaryKey
+    private long noteId;
+
+    @ColumnInfo(defaultValue = "0")
+    private int scrollY;
+
+    public NoteUiState() {
+        super();
+    }
+
+    @Ignore
+    public NoteUiState(long noteId, int scrollY) {
+        this.noteId = noteId;
+        this.scrollY = scrollY;
+    }
+
+    public long getNoteId() {
+        return noteId;
+    }
+
+    public void setNoteId(long noteId) {
+        this.noteId = noteId;
+    }
+
+    public int getScrollY() {
+        return scrollY;
+    }
+
+    public void setScrollY(int scrollY) {
+        this.scrollY = scrollY;
+    }
+}
@@ -0,0 +1,57 @@
+package it.niedermann.owncloud.notes.persistence.entity;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.room.Embedded;
+
+/**
+ * A {@link Note} joined with its {@link NoteContent}.
+ */
+public class NoteWithContent {
+
+    @NonNull
+    @Embedded
+    private Note note = new Note();
+
+    @NonNull
+    private String content = "";
+
+    @Nullable
+    private byte[] compressedContent;
+
+    @NonNull
+    public Note getNote() {
+        return note;
+    }
+
+    public void setNote(@NonNull Note note) {
+        this.note = note;
+    }
+
+    @NonNull
+    public String getContent() {
+        return content;
+    }
+
+    public void setContent(@NonNull String content) {
+        this.content = content;
+    }
+
+    @Nullable
+    public byte[] getCompressedContent() {
+        return compressedContent;
+    }
+
+    public void setCompressedContent(@Nullable byte[] compressedContent) {
+        this.compressedContent = compressedContent;
+    }
+
+    /**
+     * @return the {@link Note} with its {@link Note#getContent()} filled, decompressed if necessary
+     */
+    @NonNull
+    public Note toNote() {
+        note.setContent(NoteContent.read(content, compressedContent));
+        return note;
+    }
+}
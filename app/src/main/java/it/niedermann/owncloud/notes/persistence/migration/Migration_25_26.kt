@@ -0,0 +1,175 @@
+package it.niedermann.owncloud.notes.persistence.migration
+
+import android.content.ContentValues
+import android.content.Context
+import android.database.sqlite.SQLiteDatabase
+import androidx.preference.PreferenceManager
+import androidx.room.migration.Migration
+import androidx.sqlite.db.SupportSQLiteDatabase
+import it.niedermann.owncloud.notes.R
+import it.niedermann.owncloud.notes.persistence.entity.NoteContent
+import it.niedermann.owncloud.notes.shared.util.CompressionUtil
+
+/**
+ * Splits the `Note` table, so it only holds the small columns needed for lists, widgets and the navigation:
+ * - The `content` moves to `NoteContent`, along with a copy of the `title` and a `contentHash`.
+ *   Large contents get compressed unless the user disabled it, those are indexed in `CompressedNoteFts`.
+ * - The `scrollY` moves to `NoteUiState`, only positions other than the default are copied.
+ * - The new `dirtyFields` are set for all notes which already have local changes, because it is
+ *   unknown which of their properties have been changed.
+ *
+ * `Note` gets rebuilt only once and `NoteFts` is built once at the end as external content full
+ * text index over `NoteContent`.
+ * Also adds `CategoryCount`, `ImportCheckpoint` and `Account.chunkCursor` and replaces the
+ * category cleanup triggers which scanned all `Note`s on each update of any column.
+ */
+@Suppress("ClassName", "Detekt.ClassNaming", "Detekt.MagicNumber")
+class Migration_25_26(private val context: Context) : Migration(25, 26) {
+    override fun migrate(db: SupportSQLiteDatabase) {
+        db.execSQL("CREATE TABLE IF NOT EXISTS `NoteContent` (`noteId` INTEGER NOT NULL, `title` TEXT NOT NULL DEFAULT '', `content` TEXT NOT NULL DEFAULT '', `compressedContent` BLOB, `contentHash` INTEGER NOT NULL DEFAULT 0, PRIMARY KEY(`noteId`), FOREIGN KEY(`noteId`) REFERENCES `Note`(`id`) ON UPDATE NO ACTION ON DELETE CASCADE )")
+        db.execSQL("CREATE VIRTUAL TABLE IF NOT EXISTS `CompressedNoteFts` USING FTS4(`title` TEXT NOT NULL, `content` TEXT NOT NULL)")
+        val compressionEnabled = PreferenceManager.getDefaultSharedPreferences(context)
+            .getBoolean(context.getString(R.string.pref_key_compress_content), true)
+        copyContents(db, compressionEnabled)
+
+        db.execSQL("CREATE TABLE IF NOT EXISTS `NoteUiState` (`noteId` INTEGER NOT NULL, `scrollY` INTEGER NOT NULL DEFAULT 0, PRIMARY KEY(`noteId`), FOREIGN KEY(`noteId`) REFERENCES `Note`(`id`) ON UPDATE NO ACTION ON DELETE CASCADE )")
+        db.execSQL("INSERT INTO `NoteUiState` (`noteId`, `scrollY`) SELECT `id`, `scrollY` FROM `Note` WHERE `scrollY` != 0")
+
+        // Dropping a column requires rebuilding the table, its indices and triggers are dropped along with it
+        db.execSQL("CREATE TABLE `Note_new` (`id` INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, `remoteId` INTEGER, `accountId` INTEGER NOT NULL, `status` TEXT NOT NULL, `title` TEXT NOT NULL DEFAULT '', `category` TEXT NOT NULL DEFAULT '', `modified` INTEGER, `favorite` INTEGER NOT NULL DEFAULT 0, `eTag` TEXT, `excerpt` TEXT NOT NULL DEFAULT '', `dirtyFields` INTEGER NOT NULL DEFAULT 0, FOREIGN KEY(`accountId`) REFERENCES `Account`(`id`) ON UPDATE NO ACTION ON DELETE CASCADE )")
+        // 15 equals Note.DIRTY_ALL, it is not referenced so that later changes of the flags do not alter this migration
+        db.execSQL("INSERT INTO `Note_new` (`id`, `remoteId`, `accountId`, `status`, `title`, `category`, `modified`, `favorite`, `eTag`, `excerpt`, `dirtyFields`) SELECT `id`, `remoteId`, `accountId`, `status`, `title`, `category`, `modified`, `favorite`, `eTag`, `excerpt`, CASE WHEN `status` = 'LOCAL_EDITED' THEN 15 ELSE 0 END FROM `Note`")
+        db.execSQL("DROP TABLE `Note`")
+        db.execSQL("ALTER TABLE `Note_new` RENAME TO `Note`")
+
+        db.execSQL("CREATE INDEX `IDX_NOTE_ACCOUNTID` ON `Note` (`accountId`)")
+        db.execSQL("CREATE INDEX `IDX_NOTE_CATEGORY` ON `Note` (`category`)")
+        db.execSQL("CREATE INDEX `IDX_NOTE_FAVORITE` ON `Note` (`favorite`)")
+        db.execSQL("CREATE INDEX `IDX_NOTE_MODIFIED` ON `Note` (`modified`)")
+        db.execSQL("CREATE INDEX `IDX_NOTE_REMOTEID` ON `Note` (`remoteId`)")
+        db.execSQL("CREATE INDEX `IDX_NOTE_STATUS` ON `Note` (`status`)")
+
+        // Clean up once, the new triggers only take care of categories which become unused from now on
+        db.execSQL("DELETE FROM CategoryOptions WHERE CategoryOptions.category NOT IN (SELECT Note.category FROM Note WHERE Note.accountId = CategoryOptions.accountId)")
+        createCategoryCleanupTriggers(db)
+
+        db.execSQL("CREATE TABLE IF NOT EXISTS `CategoryCount` (`accountId` INTEGER NOT NULL, `category` TEXT NOT NULL, `totalNotes` INTEGER NOT NULL DEFAULT 0, `favoriteNotes` INTEGER NOT NULL DEFAULT 0, PRIMARY KEY(`accountId`, `category`), FOREIGN KEY(`accountId`) REFERENCES `Account`(`id`) ON UPDATE NO ACTION ON DELETE CASCADE )")
+        db.execSQL("CREATE INDEX IF NOT EXISTS `IDX_CATEGORYCOUNT_ACCOUNTID` ON `CategoryCount` (`accountId`)")
+        db.execSQL("INSERT INTO `CategoryCount` (`accountId`, `category`, `totalNotes`, `favoriteNotes`) SELECT `accountId`, `category`, COUNT(*), SUM(`favorite`) FROM `Note` WHERE `status` != 'LOCAL_DELETED' GROUP BY `accountId`, `category`")
+        createCategoryCountTriggers(db)
+
+        db.execSQL("ALTER TABLE `Account` ADD COLUMN `chunkCursor` TEXT")
+        db.execSQL("CREATE TABLE IF NOT EXISTS `ImportCheckpoint` (`accountId` INTEGER NOT NULL, `chunkCursor` TEXT, `total` INTEGER NOT NULL DEFAULT 0, PRIMARY KEY(`accountId`), FOREIGN KEY(`accountId`) REFERENCES `Account`(`id`) ON UPDATE NO ACTION ON DELETE CASCADE )")
+
+        createNoteContentTitleTrigger(db)
+        createCompressedNoteFtsTriggers(db)
+
+        db.execSQL("CREATE VIRTUAL TABLE IF NOT EXISTS `NoteFts` USING FTS4(`title` TEXT NOT NULL, `content` TEXT NOT NULL, content=`NoteContent`)")
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS room_fts_content_sync_NoteFts_BEFORE_UPDATE BEFORE UPDATE ON `NoteContent` BEGIN DELETE FROM `NoteFts` WHERE `docid`=OLD.`rowid`; END")
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS room_fts_content_sync_NoteFts_BEFORE_DELETE BEFORE DELETE ON `NoteContent` BEGIN DELETE FROM `NoteFts` WHERE `docid`=OLD.`rowid`; END")
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS room_fts_content_sync_NoteFts_AFTER_UPDATE AFTER UPDATE ON `NoteContent` BEGIN INSERT INTO `NoteFts`(`docid`, `title`, `content`) VALUES (NEW.`rowid`, NEW.`title`, NEW.`content`); END")
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS room_fts_content_sync_NoteFts_AFTER_INSERT AFTER INSERT ON `NoteContent` BEGIN INSERT INTO `NoteFts`(`docid`, `title`, `content`) VALUES (NEW.`rowid`, NEW.`title`, NEW.`content`); END")
+        db.execSQL("INSERT INTO `NoteFts`(`NoteFts`) VALUES ('rebuild')")
+    }
+
+    /**
+     * Copies the contents of all `Note`s in batches, each row of `NoteContent` is written only once.
+     */
+    private fun copyContents(db: SupportSQLiteDatabase, compressionEnabled: Boolean) {
+        var lastNoteId = -1L
+        while (true) {
+            val batch = mutableListOf<Triple<Long, String, String>>()
+            db.query(
+                "SELECT `id`, `title`, `content` FROM `Note` WHERE `id` > ? ORDER BY `id` LIMIT ?",
+                arrayOf<Any>(lastNoteId, BATCH_SIZE)
+            ).use { cursor ->
+                while (cursor.moveToNext()) {
+                    batch.add(Triple(cursor.getLong(0), cursor.getString(1), cursor.getString(2)))
+                }
+            }
+            if (batch.isEmpty()) {
+                return
+            }
+            for ((noteId, title, content) in batch) {
+                val values = ContentValues().apply {
+                    put("noteId", noteId)
+                    put("title", title)
+                    put("contentHash", NoteContent.hash(content))
+                }
+                if (compressionEnabled && NoteContent.exceedsCompressionThreshold(content)) {
+                    values.put("content", "")
+                    values.put("compressedContent", CompressionUtil.compress(content))
+                    val indexValues = ContentValues().apply {
+                        put("rowid", noteId)
+                        put("title", title)
+                        put("content", content)
+                    }
+                    db.insert("CompressedNoteFts", SQLiteDatabase.CONFLICT_REPLACE, indexValues)
+                } else {
+                    values.put("content", content)
+                }
+                db.insert("NoteContent", SQLiteDatabase.CONFLICT_NONE, values)
+            }
+            lastNoteId = batch.last().first
+        }
+    }
+
+    companion object {
+        private const val BATCH_SIZE = 20
+
+        private const val CLEANUP_OLD_CATEGORY =
+            "DELETE FROM CategoryOptions WHERE accountId = OLD.accountId AND category = OLD.category AND NOT EXISTS (SELECT 1 FROM Note WHERE Note.accountId = OLD.accountId AND Note.category = OLD.category);"
+
+        private const val INCREMENT_NEW =
+            "INSERT OR IGNORE INTO CategoryCount (accountId, category, totalNotes, favoriteNotes) SELECT NEW.accountId, NEW.category, 0, 0 WHERE NEW.status != 'LOCAL_DELETED'; " +
+                    "UPDATE CategoryCount SET totalNotes = totalNotes + 1, favoriteNotes = favoriteNotes + NEW.favorite WHERE accountId = NEW.accountId AND category = NEW.category AND NEW.status != 'LOCAL_DELETED';"
+        private const val DECREMENT_OLD =
+            "UPDATE CategoryCount SET totalNotes = totalNotes - 1, favoriteNotes = favoriteNotes - OLD.favorite WHERE accountId = OLD.accountId AND category = OLD.category AND OLD.status != 'LOCAL_DELETED'; " +
+                    "DELETE FROM CategoryCount WHERE accountId = OLD.accountId AND category = OLD.category AND totalNotes <= 0;"
+
+        /**
+         * Deletes the `CategoryOptions` of a category as soon as the last `Note` of this category has been deleted or moved to another category.
+         */
+        @JvmStatic
+        fun createCategoryCleanupTriggers(db: SupportSQLiteDatabase) {
+            db.execSQL("CREATE TRIGGER TRG_CLEANUP_CATEGORIES_DEL AFTER DELETE ON Note BEGIN $CLEANUP_OLD_CATEGORY END;")
+            db.execSQL("CREATE TRIGGER TRG_CLEANUP_CATEGORIES_UPD AFTER UPDATE OF category ON Note WHEN OLD.category != NEW.category BEGIN $CLEANUP_OLD_CATEGORY END;")
+        }
+
+        /**
+         * Keeps `CategoryCount` in sync with the `Note` table. Updates only touch the counts if one of the counted columns actually changed.
+         */
+        @JvmStatic
+        fun createCategoryCountTriggers(db: SupportSQLiteDatabase) {
+            db.execSQL("CREATE TRIGGER TRG_CATEGORYCOUNT_INS AFTER INSERT ON Note BEGIN $INCREMENT_NEW END;")
+            db.execSQL("CREATE TRIGGER TRG_CATEGORYCOUNT_DEL AFTER DELETE ON Note BEGIN $DECREMENT_OLD END;")
+            db.execSQL(
+                "CREATE TRIGGER TRG_CATEGORYCOUNT_UPD AFTER UPDATE OF accountId, category, favorite, status ON Note " +
+                        "WHEN OLD.accountId != NEW.accountId OR OLD.category != NEW.category OR OLD.favorite != NEW.favorite OR (OLD.status = 'LOCAL_DELETED') != (NEW.status = 'LOCAL_DELETED') " +
+                        "BEGIN $DECREMENT_OLD $INCREMENT_NEW END;"
+            )
+        }
+
+        /**
+         * Copies changed titles of `Note` to `NoteContent`. Other updates of `Note`, e.g. of the
+         * favorite state or the ETag, must not touch `NoteContent`, because each update of it
+         * re-indexes the whole content.
+         */
+        @JvmStatic
+        fun createNoteContentTitleTrigger(db: SupportSQLiteDatabase) {
+            db.execSQL("CREATE TRIGGER TRG_NOTECONTENT_TITLE_UPD AFTER UPDATE OF title ON Note WHEN OLD.title IS NOT NEW.title BEGIN UPDATE NoteContent SET title = NEW.title WHERE noteId = NEW.id; END;")
+        }
+
+        /**
+         * Removes entries of `CompressedNoteFts` whose content is deleted or no longer stored
+         * compressed, and copies changed titles. New compressed contents can not be decompressed
+         * by a trigger, they are indexed by `NoteDao.upsertContents` instead.
+         */
+        @JvmStatic
+        fun createCompressedNoteFtsTriggers(db: SupportSQLiteDatabase) {
+            db.execSQL("CREATE TRIGGER TRG_COMPRESSEDNOTEFTS_DEL AFTER DELETE ON NoteContent WHEN OLD.compressedContent IS NOT NULL BEGIN DELETE FROM CompressedNoteFts WHERE docid = OLD.noteId; END;")
+            db.execSQL("CREATE TRIGGER TRG_COMPRESSEDNOTEFTS_UNCOMPRESSED AFTER UPDATE OF compressedContent ON NoteContent WHEN OLD.compressedContent IS NOT NULL AND NEW.compressedContent IS NULL BEGIN DELETE FROM CompressedNoteFts WHERE docid = NEW.noteId; END;")
+            db.execSQL("CREATE TRIGGER TRG_COMPRESSEDNOTEFTS_TITLE_UPD AFTER UPDATE OF title ON NoteContent WHEN NEW.compressedContent IS NOT NULL AND OLD.title IS NOT NEW.title BEGIN UPDATE CompressedNoteFts SET title = NEW.title WHERE docid = NEW.noteId AND title IS NOT NEW.title; END;")
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package it.niedermann.owncloud.notes.persistence.sync;
+
+import static java.net.HttpURLConnection.HTTP_UNAVAILABLE;
+
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+import androidx.annotation.WorkerThread;
+
+import com.nextcloud.android.sso.exceptions.NextcloudApiNotRespondingException;
+import com.nextcloud.android.sso.exceptions.NextcloudHttpRequestFailedException;
+
+import java.io.IOException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import java.util.function.Predicate;
+
+import retrofit2.Call;
+import retrofit2.Response;
+
+/**
+ * Limits the amount of parallel requests against one Nextcloud server and adapts this limit to how the server copes with them (AIMD).
+ * <p>
+ * As long as the limit is fully used and requests succeed without getting noticeably slower, it grows by one per round trip.
+ * It is halved as soon as the server signals an overload (HTTP 429 / 503), stops responding or responds much slower than usual.
+ * <p>
+ * One instance per account is held by the {@link it.niedermann.owncloud.notes.persistence.ApiProvider} and passed to each {@link NotesAPI} of this account,
+ * so imports, pushes and content fetches share the same limit, which is also kept when the {@link NotesAPI} gets recreated after an error.
+ */
+public class AdaptiveRequestScheduler {
+
+    private static final String TAG = AdaptiveRequestScheduler.class.getSimpleName();
+
+    /**
+     * Upper bound of the limit, callers may size their thread pools accordingly.
+     */
+    public static final int MAX_CONCURRENCY = 16;
+    private static final int MIN_CONCURRENCY = 1;
+    private static final int INITIAL_CONCURRENCY = 4;
+
+    private static final int HTTP_TOO_MANY_REQUESTS = 429;
+
+    /**
+     * The limit is decreased when the recent latency exceeds the usual latency by this factor.
+     */
+    private static final double LATENCY_TOLERANCE = 2;
+    private static final double RECENT_LATENCY_WEIGHT = 0.3;
+    private static final double USUAL_LATENCY_WEIGHT = 0.05;
+
+    @NonNull
+    private final LongSupplier clock;
+    private double limit = INITIAL_CONCURRENCY;
+    private int inFlight = 0;
+    private double recentLatency = -1;
+    private double usualLatency = -1;
+    @Nullable
+    private Long lastDecrease = null;
+
+    public AdaptiveRequestScheduler() {
+        this(() -> TimeUnit.NANOSECONDS.toMillis(System.nanoTime()));
+    }
+
+    @VisibleForTesting
+    AdaptiveRequestScheduler(@NonNull LongSupplier clock) {
+        this.clock = clock;
+    }
+
+    /**
+     * Executes the given {@param request} as soon as the limit allows it.
+     * Exceptions which indicate an overloaded server decrease the limit and are rethrown.
+     */
+    @WorkerThread
+    public <T> T execute(@NonNull Callable<T> request) throws Exception {
+        return execute(request, result -> false, true);
+    }
+
+    /**
+     * Executes the given {@param request} like {@link #execute(Callable)}, but for requests whose duration depends on the amount
+     * of transferred data (e.g. streaming all notes of an account) rather than on the load of the server.
+     * They take a slot, but their latency is not sampled and they do not grow the limit.
+     */
+    @WorkerThread
+    public <T> T executeStreaming(@NonNull Callable<T> request) throws Exception {
+        return execute(request, result -> false, false);
+    }
+
+    /**
+     * Executes the given {@param call} as soon as the limit allows it.
+     * Responses with HTTP 429 or 503 decrease the limit.
+     */
+    @WorkerThread
+    public <T> Response<T> execute(@NonNull Call<T> call) throws IOException, InterruptedException {
+        try {
+            return execute(call::execute, response -> isOverload(response.code()), true);
+        } catch (IOException | InterruptedException | RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * @param sampleLatency whether the latency of the {@param request} reflects the load of the server
+     */
+    private <T> T execute(@NonNull Callable<T> request, @NonNull Predicate<T> isOverload, boolean sampleLatency) throws Exception {
+        acquire();
+        final long start = clock.getAsLong();
+        boolean overloaded = false;
+        try {
+            final var result = request.call();
+            overloaded = isOverload.test(result);
+            return result;
+        } catch (Exception e) {
+            overloaded = isOverload(e);
+            throw e;
+        } finally {
+            release(sampleLatency ? clock.getAsLong() - start : -1, overloaded);
+        }
+    }
+
+    private synchronized void acquire() throws InterruptedException {
+        while (inFlight >= (int) limit) {
+            wait();
+        }
+        inFlight++;
+    }
+
+    /**
+     * @param latency of the released request, negative if it has not been sampled
+     */
+    private synchronized void release(long latency, boolean overloaded) {
+        final boolean saturated = inFlight >= (int) limit;
+        inFlight--;
+        if (latency < 0) {
+            if (overloaded) {
+                decrease(true);
+            }
+            notifyAll();
+            return;
+        }
+        if (recentLatency < 0) {
+            recentLatency = latency;
+            usualLatency = latency;
+        } else {
+            recentLatency += RECENT_LATENCY_WEIGHT * (latency - recentLatency);
+            usualLatency += USUAL_LATENCY_WEIGHT * (latency - usualLatency);
+        }
+        if (overloaded || recentLatency > usualLatency * LATENCY_TOLERANCE) {
+            decrease(overloaded);
+        } else if (saturated && limit < MAX_CONCURRENCY) {
+            // Only a fully used limit proves that the server copes with it
+            limit = Math.min(MAX_CONCURRENCY, limit + 1 / Math.floor(limit));
+        }
+        notifyAll();
+    }
+
+    private void decrease(boolean overloaded) {
+        final long now = clock.getAsLong();
+        // Requests which have been started before the last decrease can not reflect it yet
+        if (lastDecrease == null || now - lastDecrease >= Math.max(0, recentLatency)) {
+            limit = Math.max(MIN_CONCURRENCY, limit / 2);
+            lastDecrease = now;
+            Log.v(TAG, "Decreased limit to " + (int) limit + " (overloaded: " + overloaded + ", latency: " + (long) recentLatency + " ms)");
+        }
+    }
+
+    @VisibleForTesting
+    synchronized int getLimit() {
+        return (int) limit;
+    }
+
+    private static boolean isOverload(@NonNull Throwable t) {
+        final var cause = t instanceof RuntimeException && t.getCause() != null ? t.getCause() : t;
+        if (cause instanceof NextcloudHttpRequestFailedException) {
+            return isOverload(((NextcloudHttpRequestFailedException) cause).getStatusCode());
+        }
+        return cause instanceof NextcloudApiNotRespondingException || cause instanceof IOException;
+    }
+
+    private static boolean isOverload(int statusCode) {
+        return statusCode == HTTP_TOO_MANY_REQUESTS || statusCode == HTTP_UNAVAILABLE;
+    }
+}
@@ -0,0 +1,39 @@
+package it.niedermann.owncloud.notes.persistence.sync;
+
+import com.google.gson.Gson;
+import com.google.gson.TypeAdapter;
+import com.google.gson.TypeAdapterFactory;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+
+import it.niedermann.owncloud.notes.persistence.entity.Note;
+
+/**
+ * Reads {@link Note}s with the {@link NotesJsonReader} instead of reflection.
+ * Writing is delegated to the default {@link TypeAdapter}, which respects the exposed properties.
+ */
+public class NoteTypeAdapterFactory implements TypeAdapterFactory {
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public <T> TypeAdapter<T> create(Gson gson, TypeToken<T> type) {
+        if (type.getRawType() != Note.class) {
+            return null;
+        }
+        final var delegate = gson.getDelegateAdapter(this, (TypeToken<Note>) type);
+        return (TypeAdapter<T>) new TypeAdapter<Note>() {
+            @Override
+            public void write(JsonWriter out, Note value) throws IOException {
+                delegate.write(out, value);
+            }
+
+            @Override
+            public Note read(JsonReader in) throws IOException {
+                return NotesJsonReader.readNote(in);
+            }
+        }.nullSafe();
+    }
+}
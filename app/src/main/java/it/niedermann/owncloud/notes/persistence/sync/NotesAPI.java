@@ -5,13 +5,22 @@ import android.util.Log;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
+import androidx.annotation.WorkerThread;
 
 import com.google.gson.annotations.Expose;
+import com.google.gson.stream.JsonReader;
+import com.nextcloud.android.sso.aidl.NextcloudRequest;
 import com.nextcloud.android.sso.api.NextcloudAPI;
 import com.nextcloud.android.sso.api.ParsedResponse;
 
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
 import java.util.Calendar;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 import io.reactivex.Observable;
@@ -31,12 +40,22 @@ public class NotesAPI {
     private static final String API_ENDPOINT_NOTES_1_0 = "/index.php/apps/notes/api/v1/";
     private static final String API_ENDPOINT_NOTES_0_2 = "/index.php/apps/notes/api/v0.2/";
 
+    @NonNull
+    private final NextcloudAPI nextcloudAPI;
     @NonNull
     private final ApiVersion usedApiVersion;
+    private final boolean chunkedListingSupported;
     private final NotesAPI_0_2 notesAPI_0_2;
     private final NotesAPI_1_0 notesAPI_1_0;
+    @NonNull
+    private final AdaptiveRequestScheduler scheduler;
 
-    public NotesAPI(@NonNull NextcloudAPI nextcloudAPI, @Nullable ApiVersion preferredApiVersion) {
+    /**
+     * @param scheduler shared by all {@link NotesAPI}s of the same account, so its limit survives the recreation of this {@link NotesAPI}
+     */
+    public NotesAPI(@NonNull NextcloudAPI nextcloudAPI, @Nullable ApiVersion preferredApiVersion, @NonNull AdaptiveRequestScheduler scheduler) {
+        this.nextcloudAPI = nextcloudAPI;
+        this.scheduler = scheduler;
         if (preferredApiVersion == null) {
             Log.i(TAG, "Using " + ApiVersion.API_VERSION_0_2 + ", preferredApiVersion is null");
             usedApiVersion = ApiVersion.API_VERSION_0_2;
@@ -58,15 +77,88 @@ public class NotesAPI {
             notesAPI_0_2 = new NextcloudRetrofitApiBuilder(nextcloudAPI, API_ENDPOINT_NOTES_0_2).create(NotesAPI_0_2.class);
             notesAPI_1_0 = null;
         }
+        chunkedListingSupported = ApiVersion.API_VERSION_1_0.equals(usedApiVersion) && preferredApiVersion.supportsChunkedListing();
+    }
+
+    /**
+     * @return the {@link AdaptiveRequestScheduler} which limits the parallel requests against this server
+     */
+    @NonNull
+    public AdaptiveRequestScheduler getScheduler() {
+        return scheduler;
+    }
+
+    /**
+     * Streams the changed {@link Note}s one by one to the {@param consumer} while the response is being read, so the whole list never needs to be held in memory.
+     * If supported by the server, at most {@param chunkSize} {@link Note}s are delivered. In this case the returned headers contain a cursor which must be passed to {@link #streamNotesChunk(int, String, Consumer)} to receive the next chunk.
+     *
+     * @param excludeContent deliver the changed {@link Note}s without content, which must be fetched separately with {@link #getNote(long)} if needed
+     * @return the headers of the response
+     */
+    @WorkerThread
+    public Map<String, String> streamNotes(@NonNull Calendar lastModified, @Nullable String lastETag, int chunkSize, boolean excludeContent, @NonNull Consumer<Note> consumer) {
+        final var parameters = new HashMap<String, String>();
+        parameters.put("pruneBefore", String.valueOf(lastModified.getTimeInMillis() / 1_000));
+        if (chunkedListingSupported) {
+            parameters.put("chunkSize", String.valueOf(chunkSize));
+        }
+        if (excludeContent) {
+            parameters.put("exclude", "content");
+        }
+        return streamNotes(parameters, lastETag, consumer);
+    }
+
+    /**
+     * All other parameters are ignored by the server when a {@param chunkCursor} is passed, the chunk is delivered like the first one.
+     *
+     * @see #streamNotes(Calendar, String, int, boolean, Consumer)
+     */
+    @WorkerThread
+    public Map<String, String> streamNotesChunk(int chunkSize, @NonNull String chunkCursor, @NonNull Consumer<Note> consumer) {
+        if (!chunkedListingSupported) {
+            throw new UnsupportedOperationException("Used API version " + usedApiVersion + " does not support streamNotesChunk().");
+        }
+        final var parameters = new HashMap<String, String>();
+        parameters.put("chunkSize", String.valueOf(chunkSize));
+        parameters.put("chunkCursor", chunkCursor);
+        return streamNotes(parameters, null, consumer);
     }
 
-    public Observable<ParsedResponse<List<Note>>> getNotes(@NonNull Calendar lastModified, String lastETag) {
+    /**
+     * The response is read from the stream of the {@link NextcloudAPI} directly instead of letting it map the whole list at once.
+     * Failures are thrown the same way as by {@link Observable#blockingSingle()}, so callers can share their error handling.
+     */
+    private Map<String, String> streamNotes(@NonNull Map<String, String> parameters, @Nullable String lastETag, @NonNull Consumer<Note> consumer) {
+        final String endpoint;
         if (ApiVersion.API_VERSION_1_0.equals(usedApiVersion)) {
-            return notesAPI_1_0.getNotes(lastModified.getTimeInMillis() / 1_000, lastETag);
+            endpoint = API_ENDPOINT_NOTES_1_0;
         } else if (ApiVersion.API_VERSION_0_2.equals(usedApiVersion)) {
-            return notesAPI_0_2.getNotes(lastModified.getTimeInMillis() / 1_000, lastETag);
+            endpoint = API_ENDPOINT_NOTES_0_2;
         } else {
-            throw new UnsupportedOperationException("Used API version " + usedApiVersion + " does not support getNotes().");
+            throw new UnsupportedOperationException("Used API version " + usedApiVersion + " does not support streamNotes().");
+        }
+        final var requestBuilder = new NextcloudRequest.Builder()
+                .setMethod("GET")
+                .setUrl(endpoint + "notes")
+                .setParameter(parameters);
+        if (lastETag != null) {
+            requestBuilder.setHeader(Collections.singletonMap("If-None-Match", Collections.singletonList(lastETag)));
+        }
+        try {
+            final var response = nextcloudAPI.performNetworkRequestV2(requestBuilder.build());
+            try (final var reader = new JsonReader(new InputStreamReader(response.getBody(), StandardCharsets.UTF_8))) {
+                final int count = NotesJsonReader.readNotes(reader, consumer);
+                Log.v(TAG, "Streamed " + count + " notes");
+            }
+            final var headers = new HashMap<String, String>();
+            for (final var header : response.getPlainHeaders()) {
+                headers.put(header.getName(), header.getValue());
+            }
+            return headers;
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new RuntimeException(e);
         }
     }
 
@@ -90,6 +182,19 @@ public class NotesAPI {
         }
     }
 
+    /**
+     * @param eTag sent as <code>If-None-Match</code>, so the server responds with HTTP 304 without transferring the {@link Note} again if it is unchanged
+     */
+    public Observable<ParsedResponse<Note>> getNote(long remoteId, @Nullable String eTag) {
+        if (ApiVersion.API_VERSION_1_0.equals(usedApiVersion)) {
+            return notesAPI_1_0.getNote(remoteId, eTag);
+        } else if (ApiVersion.API_VERSION_0_2.equals(usedApiVersion)) {
+            return notesAPI_0_2.getNote(remoteId, eTag);
+        } else {
+            throw new UnsupportedOperationException("Used API version " + usedApiVersion + " does not support getNote().");
+        }
+    }
+
     public Call<Note> createNote(Note note) {
         if (ApiVersion.API_VERSION_1_0.equals(usedApiVersion)) {
             return notesAPI_1_0.createNote(note);
@@ -100,13 +205,21 @@ public class NotesAPI {
         }
     }
 
+    /**
+     * The API v1 accepts partial updates, so only the {@link Note#getDirtyFields()} will be sent if known.
+     * The API v0.2 always requires all properties.
+     */
     public Call<Note> editNote(@NonNull Note note) {
         final Long remoteId = note.getRemoteId();
         if (remoteId == null) {
             throw new IllegalArgumentException("remoteId of a " + Note.class.getSimpleName() + " must not be null if this object is used for editing a remote note.");
         }
         if (ApiVersion.API_VERSION_1_0.equals(usedApiVersion)) {
-            return notesAPI_1_0.editNote(note, remoteId);
+            final int dirtyFields = note.getDirtyFields();
+            if (dirtyFields == 0 || dirtyFields == Note.DIRTY_ALL) {
+                return notesAPI_1_0.editNote(note, remoteId);
+            }
+            return notesAPI_1_0.editNote(new Note_1_0_Changes(note), remoteId);
         } else if (ApiVersion.API_VERSION_0_2.equals(usedApiVersion)) {
             return notesAPI_0_2.editNote(new Note_0_2(note), remoteId);
         } else {
@@ -141,6 +254,33 @@ public class NotesAPI {
         }
     }
 
+    /**
+     * Contains only the {@link Note#getDirtyFields()} of a {@link Note}.
+     * Properties which are <code>null</code> are not serialized and will therefore be left untouched by the server.
+     */
+    static class Note_1_0_Changes {
+        @Expose
+        public final String title;
+        @Expose
+        public final String category;
+        @Expose
+        public final Calendar modified;
+        @Expose
+        public final String content;
+        @Expose
+        public final Boolean favorite;
+
+        private Note_1_0_Changes(@NonNull Note note) {
+            final int dirtyFields = note.getDirtyFields();
+            this.title = (dirtyFields & Note.DIRTY_TITLE) == 0 ? null : note.getTitle();
+            this.category = (dirtyFields & Note.DIRTY_CATEGORY) == 0 ? null : note.getCategory();
+            this.content = (dirtyFields & Note.DIRTY_CONTENT) == 0 ? null : note.getContent();
+            this.favorite = (dirtyFields & Note.DIRTY_FAVORITE) == 0 ? null : note.getFavorite();
+            // Changing only the favorite state or the category must not touch the modification date
+            this.modified = (dirtyFields & (Note.DIRTY_CONTENT | Note.DIRTY_TITLE)) == 0 ? null : note.getModified();
+        }
+    }
+
     /**
      * {@link ApiVersion#API_VERSION_0_2} didn't have a separate <code>title</code> property.
      */
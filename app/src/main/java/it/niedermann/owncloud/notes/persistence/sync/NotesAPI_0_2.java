@@ -15,16 +15,12 @@ import retrofit2.http.Header;
 import retrofit2.http.POST;
 import retrofit2.http.PUT;
 import retrofit2.http.Path;
-import retrofit2.http.Query;
 
 /**
  * @link <a href="https://github.com/nextcloud/notes/wiki/API-0.2">Notes API v0.2</a>
  */
 public interface NotesAPI_0_2 {
 
-    @GET("notes")
-    Observable<ParsedResponse<List<Note>>> getNotes(@Query("pruneBefore") long lastModified, @Header("If-None-Match") String lastETag);
-
     @GET("notes?exclude=etag,readonly,content,title,category,favorite,modified")
     Observable<ParsedResponse<List<Note>>> getNotesIDs();
 
@@ -34,6 +30,9 @@ public interface NotesAPI_0_2 {
     @GET("notes/{remoteId}")
     Observable<ParsedResponse<Note>> getNote(@Path("remoteId") long remoteId);
 
+    @GET("notes/{remoteId}")
+    Observable<ParsedResponse<Note>> getNote(@Path("remoteId") long remoteId, @Header("If-None-Match") String eTag);
+
     @PUT("notes/{remoteId}")
     Call<Note> editNote(@Body NotesAPI.Note_0_2 note, @Path("remoteId") long remoteId);
 
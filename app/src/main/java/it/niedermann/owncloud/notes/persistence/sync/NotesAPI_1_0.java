@@ -16,16 +16,12 @@ import retrofit2.http.Header;
 import retrofit2.http.POST;
 import retrofit2.http.PUT;
 import retrofit2.http.Path;
-import retrofit2.http.Query;
 
 /**
  * @link <a href="https://github.com/nextcloud/notes/blob/master/docs/api/README.md">Notes API v1</a>
  */
 public interface NotesAPI_1_0 {
 
-    @GET("notes")
-    Observable<ParsedResponse<List<Note>>> getNotes(@Query("pruneBefore") long lastModified, @Header("If-None-Match") String lastETag);
-
     @GET("notes?exclude=etag,readonly,content,title,category,favorite,modified")
     Observable<ParsedResponse<List<Note>>> getNotesIDs();
 
@@ -35,9 +31,15 @@ public interface NotesAPI_1_0 {
     @GET("notes/{remoteId}")
     Observable<ParsedResponse<Note>> getNote(@Path("remoteId") long remoteId);
 
+    @GET("notes/{remoteId}")
+    Observable<ParsedResponse<Note>> getNote(@Path("remoteId") long remoteId, @Header("If-None-Match") String eTag);
+
     @PUT("notes/{remoteId}")
     Call<Note> editNote(@Body Note note, @Path("remoteId") long remoteId);
 
+    @PUT("notes/{remoteId}")
+    Call<Note> editNote(@Body NotesAPI.Note_1_0_Changes changes, @Path("remoteId") long remoteId);
+
     @DELETE("notes/{remoteId}")
     Call<Void> deleteNote(@Path("remoteId") long noteId);
 
@@ -0,0 +1,85 @@
+package it.niedermann.owncloud.notes.persistence.sync;
+
+import androidx.annotation.NonNull;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.IOException;
+import java.util.Calendar;
+import java.util.function.Consumer;
+
+import it.niedermann.owncloud.notes.persistence.entity.Note;
+
+/**
+ * Reads {@link Note}s from the Notes API without reflection.
+ * Lists of {@link Note}s are read one by one, so a response never needs to be held in memory as a whole.
+ */
+public final class NotesJsonReader {
+
+    private NotesJsonReader() {
+        // Util class
+    }
+
+    /**
+     * Reads a JSON array of {@link Note}s and passes each {@link Note} to the {@param consumer} as soon as it has been read.
+     *
+     * @return the amount of read {@link Note}s
+     */
+    public static int readNotes(@NonNull JsonReader in, @NonNull Consumer<Note> consumer) throws IOException {
+        int count = 0;
+        in.beginArray();
+        while (in.hasNext()) {
+            consumer.accept(readNote(in));
+            count++;
+        }
+        in.endArray();
+        return count;
+    }
+
+    /**
+     * Missing properties keep their default value, like properties excluded from the response.
+     */
+    @NonNull
+    public static Note readNote(@NonNull JsonReader in) throws IOException {
+        final var note = new Note();
+        in.beginObject();
+        while (in.hasNext()) {
+            final String name = in.nextName();
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                continue;
+            }
+            switch (name) {
+                case "id":
+                    note.setRemoteId(in.nextLong());
+                    break;
+                case "etag":
+                    note.setETag(in.nextString());
+                    break;
+                case "title":
+                    note.setTitle(in.nextString());
+                    break;
+                case "content":
+                    note.setContent(in.nextString());
+                    break;
+                case "category":
+                    note.setCategory(in.nextString());
+                    break;
+                case "favorite":
+                    note.setFavorite(in.nextBoolean());
+                    break;
+                case "modified":
+                    final var modified = Calendar.getInstance();
+                    modified.setTimeInMillis(in.nextLong() * 1_000);
+                    note.setModified(modified);
+                    break;
+                default:
+                    in.skipValue();
+                    break;
+            }
+        }
+        in.endObject();
+        return note;
+    }
+}
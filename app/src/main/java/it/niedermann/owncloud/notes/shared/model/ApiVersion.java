@@ -95,6 +95,13 @@ public class ApiVersion implements Comparable<ApiVersion> {
         return getMajor() >= API_VERSION_1_2.getMajor() && getMinor() >= API_VERSION_1_2.getMinor();
     }
 
+    /**
+     * @see <a href="https://github.com/nextcloud/notes/blob/master/docs/api/v1.md#list-all-notes">Chunked listing of notes</a>
+     */
+    public boolean supportsChunkedListing() {
+        return getMajor() >= API_VERSION_1_2.getMajor() && getMinor() >= API_VERSION_1_2.getMinor();
+    }
+
     /**
      * Checks only the <strong>{@link #major}</strong> version.
      */
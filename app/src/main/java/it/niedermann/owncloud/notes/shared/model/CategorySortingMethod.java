@@ -2,7 +2,12 @@ package it.niedermann.owncloud.notes.shared.model;
 
 public enum CategorySortingMethod {
     SORT_MODIFIED_DESC(0, "MODIFIED DESC"),
-    SORT_LEXICOGRAPHICAL_ASC(1, "TITLE COLLATE NOCASE ASC");
+    SORT_LEXICOGRAPHICAL_ASC(1, "TITLE COLLATE NOCASE ASC"),
+    /**
+     * Ranks the matches of a search by relevance, which can not be expressed as OrderBy.
+     * Without a search term the notes are ordered like {@link #SORT_MODIFIED_DESC}.
+     */
+    SORT_RELEVANCE(2, "MODIFIED DESC");
 
     private final int id;
     private final String title;  // sorting method OrderBy for SQL
@@ -0,0 +1,64 @@
+package it.niedermann.owncloud.notes.shared.model;
+
+import androidx.annotation.NonNull;
+
+import java.util.Objects;
+
+/**
+ * State of the default network of the device.
+ */
+public class ConnectivityState {
+
+    public static final ConnectivityState DISCONNECTED = new ConnectivityState(false, false, false);
+
+    private final boolean connected;
+    private final boolean unmetered;
+    private final boolean validated;
+
+    public ConnectivityState(boolean connected, boolean unmetered, boolean validated) {
+        this.connected = connected;
+        this.unmetered = unmetered;
+        this.validated = validated;
+    }
+
+    public boolean isConnected() {
+        return connected;
+    }
+
+    /**
+     * @return <code>true</code> if the network does not charge by volume, e.g. most Wi-Fi networks
+     */
+    public boolean isUnmetered() {
+        return unmetered;
+    }
+
+    /**
+     * @return <code>true</code> if the system verified that the network actually provides access to the internet, e.g. it is not stuck behind a captive portal
+     */
+    public boolean isValidated() {
+        return validated;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        ConnectivityState that = (ConnectivityState) o;
+        return connected == that.connected && unmetered == that.unmetered && validated == that.validated;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(connected, unmetered, validated);
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+        return "ConnectivityState{" +
+                "connected=" + connected +
+                ", unmetered=" + unmetered +
+                ", validated=" + validated +
+                '}';
+    }
+}
@@ -0,0 +1,47 @@
+package it.niedermann.owncloud.notes.shared.util;
+
+import androidx.annotation.NonNull;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Compresses texts using <a href="https://en.wikipedia.org/wiki/Deflate">Deflate</a>.
+ */
+public class CompressionUtil {
+
+    private CompressionUtil() {
+        throw new UnsupportedOperationException("Do not instantiate this util class.");
+    }
+
+    @NonNull
+    public static byte[] compress(@NonNull String text) {
+        final var bytes = text.getBytes(StandardCharsets.UTF_8);
+        final var outputStream = new ByteArrayOutputStream(bytes.length / 4);
+        try (final var deflaterOutputStream = new DeflaterOutputStream(outputStream)) {
+            deflaterOutputStream.write(bytes);
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not compress text", e);
+        }
+        return outputStream.toByteArray();
+    }
+
+    @NonNull
+    public static String decompress(@NonNull byte[] compressed) {
+        final var outputStream = new ByteArrayOutputStream(compressed.length * 4);
+        try (final var inflaterInputStream = new InflaterInputStream(new ByteArrayInputStream(compressed))) {
+            final var buffer = new byte[8192];
+            int read;
+            while ((read = inflaterInputStream.read(buffer)) != -1) {
+                outputStream.write(buffer, 0, read);
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not decompress text", e);
+        }
+        return new String(outputStream.toByteArray(), StandardCharsets.UTF_8);
+    }
+}
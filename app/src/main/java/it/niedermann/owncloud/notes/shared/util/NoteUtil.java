@@ -7,6 +7,9 @@ import android.text.TextUtils;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
+import java.util.Arrays;
+import java.util.stream.Collectors;
+
 import it.niedermann.owncloud.notes.R;
 
 import static it.niedermann.android.markdown.MarkdownUtil.removeMarkdown;
@@ -123,6 +126,30 @@ public class NoteUtil {
         return line;
     }
 
+    /**
+     * Converts a search term entered by the user into a full text <code>MATCH</code> expression.
+     * Each word of the search term is matched as prefix, all words must be contained in a note.
+     * <pre>
+     * "foo"        -> "\"foo*\""
+     * " Foo  bar " -> "\"Foo*\" \"bar*\""
+     * "  "         -> null
+     * </pre>
+     *
+     * @param searchTerm String as entered by the user
+     * @return MATCH expression or <code>null</code> if the search term does not contain any word
+     */
+    @Nullable
+    public static String generateFullTextQuery(@Nullable String searchTerm) {
+        if (searchTerm == null) {
+            return null;
+        }
+        final String query = Arrays.stream(searchTerm.replaceAll("[\"*]", " ").trim().split("\\s+"))
+                .filter(word -> !word.isEmpty())
+                .map(word -> "\"" + word + "*\"")
+                .collect(Collectors.joining(" "));
+        return query.isEmpty() ? null : query;
+    }
+
     @NonNull
     public static String extendCategory(@NonNull String category) {
         return category.replace("/", " / ");
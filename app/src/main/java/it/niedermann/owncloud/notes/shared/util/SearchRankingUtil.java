@@ -0,0 +1,120 @@
+package it.niedermann.owncloud.notes.shared.util;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+import it.niedermann.owncloud.notes.persistence.entity.Note;
+import it.niedermann.owncloud.notes.persistence.entity.NoteSearchResult;
+
+/**
+ * Ranks full text search results using <a href="https://en.wikipedia.org/wiki/Okapi_BM25">Okapi BM25</a>.
+ * FTS4 does not provide a ranking function, so the score is calculated from the
+ * <code>matchinfo(NoteFts, 'pcnalx')</code> of each result.
+ */
+public class SearchRankingUtil {
+
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+
+    /**
+     * Weights of the columns of the full text index: hits in the <code>title</code> are worth
+     * more than hits in the <code>content</code>.
+     */
+    private static final double[] COLUMN_WEIGHTS = {3.0, 1.0};
+
+    /**
+     * Highest score first, results with the same score are ordered by favorite and modification date.
+     */
+    private static final Comparator<ScoredResult> MOST_RELEVANT_FIRST = Comparator
+            .comparingDouble((ScoredResult scoredResult) -> scoredResult.score).reversed()
+            .thenComparing(scoredResult -> scoredResult.result.getFavorite(), Comparator.reverseOrder())
+            .thenComparing(scoredResult -> scoredResult.result.getModified(), Comparator.nullsLast(Comparator.reverseOrder()));
+
+    private SearchRankingUtil() {
+        throw new UnsupportedOperationException("Do not instantiate this util class.");
+    }
+
+    /**
+     * Orders the given {@param results} like {@link #MOST_RELEVANT_FIRST} and keeps only the best {@param limit} of them.
+     * The results are ranked in a bounded heap, so the whole list is never sorted.
+     *
+     * @return the {@link Note#id}s of the {@param limit} most relevant {@param results}, the most relevant first.
+     */
+    @NonNull
+    public static List<Long> mostRelevant(@NonNull List<NoteSearchResult> results, int limit) {
+        if (limit <= 0) {
+            return Collections.emptyList();
+        }
+        final var leastRelevantFirst = new PriorityQueue<ScoredResult>(Math.min(results.size(), limit) + 1, MOST_RELEVANT_FIRST.reversed());
+        for (final var result : results) {
+            leastRelevantFirst.add(new ScoredResult(result, bm25(result.getMatchInfo())));
+            if (leastRelevantFirst.size() > limit) {
+                leastRelevantFirst.poll();
+            }
+        }
+        final var ids = new ArrayList<Long>(leastRelevantFirst.size());
+        while (!leastRelevantFirst.isEmpty()) {
+            ids.add(leastRelevantFirst.poll().result.getId());
+        }
+        Collections.reverse(ids);
+        return ids;
+    }
+
+    /**
+     * @param matchInfo the result of <code>matchinfo(NoteFts, 'pcnalx')</code>
+     * @return the BM25 score of the matched row, higher is more relevant
+     */
+    public static double bm25(@Nullable byte[] matchInfo) {
+        if (matchInfo == null || matchInfo.length < 12) {
+            return 0;
+        }
+        final var buffer = ByteBuffer.wrap(matchInfo).order(ByteOrder.nativeOrder()).asIntBuffer();
+        final int phraseCount = buffer.get(0);
+        final int columnCount = buffer.get(1);
+        final long rowCount = Integer.toUnsignedLong(buffer.get(2));
+
+        final int averageLengthOffset = 3;
+        final int lengthOffset = averageLengthOffset + columnCount;
+        final int hitsOffset = lengthOffset + columnCount;
+        if (buffer.limit() < hitsOffset + 3 * phraseCount * columnCount) {
+            return 0;
+        }
+
+        double score = 0;
+        for (int phrase = 0; phrase < phraseCount; phrase++) {
+            for (int column = 0; column < columnCount; column++) {
+                final int hitsIndex = hitsOffset + 3 * (phrase * columnCount + column);
+                final long termFrequency = Integer.toUnsignedLong(buffer.get(hitsIndex));
+                if (termFrequency == 0) {
+                    continue;
+                }
+                final long documentFrequency = Integer.toUnsignedLong(buffer.get(hitsIndex + 2));
+                final double averageLength = Math.max(1, Integer.toUnsignedLong(buffer.get(averageLengthOffset + column)));
+                final double length = Integer.toUnsignedLong(buffer.get(lengthOffset + column));
+                final double idf = Math.log(1 + (rowCount - documentFrequency + 0.5) / (documentFrequency + 0.5));
+                final double weight = column < COLUMN_WEIGHTS.length ? COLUMN_WEIGHTS[column] : 1.0;
+                score += weight * idf * (termFrequency * (K1 + 1)) / (termFrequency + K1 * (1 - B + B * length / averageLength));
+            }
+        }
+        return score;
+    }
+
+    private static class ScoredResult {
+        @NonNull
+        private final NoteSearchResult result;
+        private final double score;
+
+        private ScoredResult(@NonNull NoteSearchResult result, double score) {
+            this.result = result;
+            this.score = score;
+        }
+    }
+}
@@ -15,10 +15,10 @@ import it.niedermann.owncloud.notes.main.MainActivity;
 import it.niedermann.owncloud.notes.main.navigation.NavigationAdapter;
 import it.niedermann.owncloud.notes.main.navigation.NavigationItem;
 import it.niedermann.owncloud.notes.persistence.NotesRepository;
+import it.niedermann.owncloud.notes.persistence.entity.CategoryWithNotesCount;
 
 import static androidx.lifecycle.Transformations.distinctUntilChanged;
 import static androidx.lifecycle.Transformations.map;
-import static androidx.lifecycle.Transformations.switchMap;
 import static it.niedermann.owncloud.notes.shared.model.ENavigationCategoryType.FAVORITES;
 import static it.niedermann.owncloud.notes.shared.model.ENavigationCategoryType.RECENT;
 import static it.niedermann.owncloud.notes.shared.util.DisplayUtils.convertToCategoryNavigationItem;
@@ -37,31 +37,34 @@ public class NoteListViewModel extends AndroidViewModel {
 
     public LiveData<List<NavigationItem>> getAdapterCategories(Long accountId) {
         return distinctUntilChanged(
-                switchMap(distinctUntilChanged(repo.count$(accountId)), (count) -> {
-                    Log.v(TAG, "[getAdapterCategories] countLiveData: " + count);
-                    return switchMap(distinctUntilChanged(repo.countFavorites$(accountId)), (favoritesCount) -> {
-                        Log.v(TAG, "[getAdapterCategories] getFavoritesCountLiveData: " + favoritesCount);
-                        return map(distinctUntilChanged(repo.getCategories$(accountId)), fromDatabase -> {
-                            final var categories = convertToCategoryNavigationItem(getApplication(), fromDatabase);
+                map(repo.getCategoryCounts$(accountId), categoryCounts -> {
+                    int count = 0;
+                    int favoritesCount = 0;
+                    final var fromDatabase = new ArrayList<CategoryWithNotesCount>(categoryCounts.size());
+                    for (final var categoryCount : categoryCounts) {
+                        count += categoryCount.getTotalNotes();
+                        favoritesCount += categoryCount.getFavoriteNotes();
+                        fromDatabase.add(categoryCount.toCategoryWithNotesCount());
+                    }
+                    Log.v(TAG, "[getAdapterCategories] count: " + count + ", favoritesCount: " + favoritesCount);
+                    final var categories = convertToCategoryNavigationItem(getApplication(), fromDatabase);
 
-                            final var items = new ArrayList<NavigationItem>(fromDatabase.size() + 3);
-                            items.add(new NavigationItem(MainActivity.ADAPTER_KEY_RECENT, getApplication().getString(R.string.label_all_notes), count, R.drawable.ic_access_time_grey600_24dp, RECENT));
-                            items.add(new NavigationItem(MainActivity.ADAPTER_KEY_STARRED, getApplication().getString(R.string.label_favorites), favoritesCount, R.drawable.ic_star_yellow_24dp, FAVORITES));
+                    final var items = new ArrayList<NavigationItem>(fromDatabase.size() + 3);
+                    items.add(new NavigationItem(MainActivity.ADAPTER_KEY_RECENT, getApplication().getString(R.string.label_all_notes), count, R.drawable.ic_access_time_grey600_24dp, RECENT));
+                    items.add(new NavigationItem(MainActivity.ADAPTER_KEY_STARRED, getApplication().getString(R.string.label_favorites), favoritesCount, R.drawable.ic_star_yellow_24dp, FAVORITES));
 
-                            if (categories.size() > 2 && categories.get(2).label.isEmpty()) {
-                                items.add(new NavigationItem(MainActivity.ADAPTER_KEY_UNCATEGORIZED, "", null, NavigationAdapter.ICON_NOFOLDER));
-                            }
+                    if (categories.size() > 2 && categories.get(2).label.isEmpty()) {
+                        items.add(new NavigationItem(MainActivity.ADAPTER_KEY_UNCATEGORIZED, "", null, NavigationAdapter.ICON_NOFOLDER));
+                    }
 
-                            for (final var item : categories) {
-                                final int slashIndex = item.label.indexOf('/');
+                    for (final var item : categories) {
+                        final int slashIndex = item.label.indexOf('/');
 
-                                item.label = slashIndex < 0 ? item.label : item.label.substring(0, slashIndex);
-                                item.id = "category:" + item.label;
-                                items.add(item);
-                            }
-                            return items;
-                        });
-                    });
+                        item.label = slashIndex < 0 ? item.label : item.label.substring(0, slashIndex);
+                        item.id = "category:" + item.label;
+                        items.add(item);
+                    }
+                    return items;
                 })
         );
     }
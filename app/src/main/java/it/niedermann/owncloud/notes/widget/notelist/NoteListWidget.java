@@ -55,7 +55,7 @@ public class NoteListWidget extends AppWidgetProvider {
     @Override
     public void onUpdate(Context context, AppWidgetManager appWidgetManager, int[] appWidgetIds) {
         super.onUpdate(context, appWidgetManager, appWidgetIds);
-        updateAppWidget(context, appWidgetManager, appWidgetIds);
+        executor.submit(() -> updateAppWidget(context, appWidgetManager, appWidgetIds));
     }
 
     @Override
@@ -67,12 +67,13 @@ public class NoteListWidget extends AppWidgetProvider {
             if (intent.getAction().equals(AppWidgetManager.ACTION_APPWIDGET_UPDATE)) {
                 if (intent.hasExtra(AppWidgetManager.EXTRA_APPWIDGET_ID)) {
                     if (intent.getExtras() != null) {
-                        updateAppWidget(context, awm, new int[]{intent.getExtras().getInt(AppWidgetManager.EXTRA_APPWIDGET_ID, -1)});
+                        final int appWidgetId = intent.getExtras().getInt(AppWidgetManager.EXTRA_APPWIDGET_ID, -1);
+                        executor.submit(() -> updateAppWidget(context, awm, new int[]{appWidgetId}));
                     } else {
                         Log.w(TAG, "intent.getExtras() is null");
                     }
                 } else {
-                    updateAppWidget(context, awm, awm.getAppWidgetIds(new ComponentName(context, NoteListWidget.class)));
+                    executor.submit(() -> updateAppWidget(context, awm, awm.getAppWidgetIds(new ComponentName(context, NoteListWidget.class))));
                 }
             }
         } else {
@@ -56,7 +56,7 @@ public class SingleNoteWidget extends AppWidgetProvider {
     @Override
     public void onUpdate(Context context, AppWidgetManager appWidgetManager, int[] appWidgetIds) {
         super.onUpdate(context, appWidgetManager, appWidgetIds);
-        updateAppWidget(context, appWidgetManager, appWidgetIds);
+        executor.submit(() -> updateAppWidget(context, appWidgetManager, appWidgetIds));
     }
 
     @Override
@@ -64,8 +64,7 @@ public class SingleNoteWidget extends AppWidgetProvider {
         super.onReceive(context, intent);
         final var awm = AppWidgetManager.getInstance(context);
 
-        updateAppWidget(context, AppWidgetManager.getInstance(context),
-                (awm.getAppWidgetIds(new ComponentName(context, SingleNoteWidget.class))));
+        executor.submit(() -> updateAppWidget(context, awm, awm.getAppWidgetIds(new ComponentName(context, SingleNoteWidget.class))));
     }
 
     @Override
@@ -62,6 +62,24 @@ public class ApiProviderTest {
         assertNotSame(newApi, apiProvider.getOcsAPI(ApplicationProvider.getApplicationContext(), secondSsoAccount));
     }
 
+    @Test
+    public void testGetFilesAPI() {
+        final var filesAPI = apiProvider.getFilesAPI(ApplicationProvider.getApplicationContext(), ssoAccount);
+
+        assertNotNull(filesAPI);
+        assertSame(filesAPI, apiProvider.getFilesAPI(ApplicationProvider.getApplicationContext(), ssoAccount));
+        assertNotSame(filesAPI, apiProvider.getFilesAPI(ApplicationProvider.getApplicationContext(), secondSsoAccount));
+
+        apiProvider.invalidateAPICache(ssoAccount);
+
+        final var newFilesAPI = apiProvider.getFilesAPI(ApplicationProvider.getApplicationContext(), ssoAccount);
+        assertNotSame("After invalidating the cache, a new API instance is returned", filesAPI, newFilesAPI);
+
+        apiProvider.invalidateAPICache();
+
+        assertNotSame("After invalidating the whole cache, a new API instance is returned", newFilesAPI, apiProvider.getFilesAPI(ApplicationProvider.getApplicationContext(), ssoAccount));
+    }
+
     @Test
     public void testGetNotesAPI() {
         final var notesAPI = apiProvider.getNotesAPI(ApplicationProvider.getApplicationContext(), ssoAccount, ApiVersion.API_VERSION_0_2);
@@ -89,4 +107,16 @@ public class ApiProviderTest {
         assertNotSame("After a manual invalidation, the returned Notes API will be a new instance",
                 newNotesAPI, apiProvider.getNotesAPI(ApplicationProvider.getApplicationContext(), ssoAccount, ApiVersion.API_VERSION_0_2));
     }
+
+    @Test
+    public void testSchedulerSurvivesInvalidation() {
+        final var scheduler = apiProvider.getNotesAPI(ApplicationProvider.getApplicationContext(), ssoAccount, ApiVersion.API_VERSION_1_0).getScheduler();
+
+        apiProvider.invalidateAPICache(ssoAccount);
+
+        assertSame("The limit of parallel requests is kept for the server after the APIs have been recreated",
+                scheduler, apiProvider.getNotesAPI(ApplicationProvider.getApplicationContext(), ssoAccount, ApiVersion.API_VERSION_1_0).getScheduler());
+        assertNotSame("Each account has its own limit",
+                scheduler, apiProvider.getNotesAPI(ApplicationProvider.getApplicationContext(), secondSsoAccount, ApiVersion.API_VERSION_1_0).getScheduler());
+    }
 }
\ No newline at end of file
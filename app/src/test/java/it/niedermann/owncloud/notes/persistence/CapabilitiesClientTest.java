@@ -27,9 +27,12 @@ import retrofit2.Response;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @RunWith(RobolectricTestRunner.class)
@@ -45,6 +48,7 @@ public class CapabilitiesClientTest {
     @Before
     public void setup() {
         when(apiProvider.getOcsAPI(any(), any())).thenReturn(ocsAPI);
+        CapabilitiesClient.clearCache();
     }
 
     @Test
@@ -65,6 +69,7 @@ public class CapabilitiesClientTest {
 
         assertEquals("[1.0]", capabilities.getApiVersion());
         assertEquals("ETag should be read correctly from response but wasn't.", "1234", capabilities.getETag());
+        CapabilitiesClient.clearCache();
 
         when(ocsAPI.getCapabilities(any())).thenReturn(Observable.error(new RuntimeException()));
         assertThrows(RuntimeException.class, () -> CapabilitiesClient.getCapabilities(ApplicationProvider.getApplicationContext(), ssoAccount, null, apiProvider));
@@ -73,6 +78,24 @@ public class CapabilitiesClientTest {
         assertThrows("Should unwrap exception cause if possible", NetworkErrorException.class, () -> CapabilitiesClient.getCapabilities(ApplicationProvider.getApplicationContext(), ssoAccount, null, apiProvider));
     }
 
+    @Test
+    public void testGetCapabilitiesIsCached() throws Throwable {
+        //noinspection unchecked
+        final ParsedResponse<OcsResponse<Capabilities>> responseMock = mock(ParsedResponse.class);
+        final OcsResponse<Capabilities> mockOcs = new OcsResponse<>();
+        mockOcs.ocs = new OcsResponse.OcsWrapper<>();
+        mockOcs.ocs.data = new Capabilities();
+        when(responseMock.getResponse()).thenReturn(mockOcs);
+        when(ocsAPI.getCapabilities(any())).thenReturn(Observable.just(responseMock));
+
+        final var capabilities = CapabilitiesClient.getCapabilities(ApplicationProvider.getApplicationContext(), ssoAccount, "1234", apiProvider);
+        assertSame(capabilities, CapabilitiesClient.getCapabilities(ApplicationProvider.getApplicationContext(), ssoAccount, "1234", apiProvider));
+        verify(ocsAPI, times(1)).getCapabilities("1234");
+
+        CapabilitiesClient.getCapabilities(ApplicationProvider.getApplicationContext(), ssoAccount, "5678", apiProvider);
+        verify(ocsAPI, times(1)).getCapabilities("5678");
+    }
+
     @SuppressWarnings("unchecked")
     @Test
     public void testGetDisplayName() throws IOException {
@@ -87,6 +110,7 @@ public class CapabilitiesClientTest {
 
         when(callMock.execute()).thenReturn(responseMock);
         assertEquals("Peter", CapabilitiesClient.getDisplayName(ApplicationProvider.getApplicationContext(), ssoAccount, apiProvider));
+        CapabilitiesClient.clearCache();
 
         when(callMock.execute()).thenThrow(new RuntimeException() {
             @Override
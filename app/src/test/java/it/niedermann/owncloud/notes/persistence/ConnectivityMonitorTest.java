@@ -0,0 +1,58 @@
+package it.niedermann.owncloud.notes.persistence;
+
+import static android.net.NetworkCapabilities.NET_CAPABILITY_INTERNET;
+import static android.net.NetworkCapabilities.NET_CAPABILITY_NOT_METERED;
+import static android.net.NetworkCapabilities.NET_CAPABILITY_VALIDATED;
+import static org.junit.Assert.assertEquals;
+import static it.niedermann.owncloud.notes.persistence.NotesTestingUtil.networkCapabilities;
+
+import android.net.ConnectivityManager;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import it.niedermann.owncloud.notes.shared.model.ConnectivityState;
+
+@RunWith(RobolectricTestRunner.class)
+public class ConnectivityMonitorTest {
+
+    private final ConnectivityManager connectivityManager = ApplicationProvider.getApplicationContext().getSystemService(ConnectivityManager.class);
+    private final List<ConnectivityState> changes = new ArrayList<>();
+
+    @Test
+    public void reportsChangesOfTheDefaultNetwork() {
+        NotesTestingUtil.mockActiveNetwork(NET_CAPABILITY_INTERNET);
+        final var network = connectivityManager.getActiveNetwork();
+        final var monitor = new ConnectivityMonitor(connectivityManager, changes::add);
+        assertEquals("Initial state is read from the active network", new ConnectivityState(true, false, false), monitor.getState());
+
+        monitor.onCapabilitiesChanged(network, networkCapabilities(NET_CAPABILITY_INTERNET, NET_CAPABILITY_VALIDATED));
+        monitor.onCapabilitiesChanged(network, networkCapabilities(NET_CAPABILITY_INTERNET, NET_CAPABILITY_VALIDATED));
+        monitor.onLost(network);
+        monitor.onCapabilitiesChanged(network, networkCapabilities(NET_CAPABILITY_INTERNET, NET_CAPABILITY_NOT_METERED, NET_CAPABILITY_VALIDATED));
+
+        assertEquals("Unchanged states are not reported again", List.of(
+                new ConnectivityState(true, false, true),
+                ConnectivityState.DISCONNECTED,
+                new ConnectivityState(true, true, true)
+        ), changes);
+        assertEquals(new ConnectivityState(true, true, true), monitor.getState());
+    }
+
+    @Test
+    public void networksWithoutInternetAreDisconnected() {
+        NotesTestingUtil.mockActiveNetwork(NET_CAPABILITY_VALIDATED);
+        final var monitor = new ConnectivityMonitor(connectivityManager, changes::add);
+        assertEquals(ConnectivityState.DISCONNECTED, monitor.getState());
+
+        NotesTestingUtil.mockActiveNetwork(NET_CAPABILITY_INTERNET, NET_CAPABILITY_NOT_METERED);
+        assertEquals(new ConnectivityState(true, true, false), monitor.refresh());
+        assertEquals(1, changes.size());
+    }
+}
@@ -14,14 +14,21 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.robolectric.RobolectricTestRunner;
 
+import java.util.Arrays;
 import java.util.Calendar;
+import java.util.Collections;
 import java.util.List;
 
 import it.niedermann.owncloud.notes.persistence.entity.Account;
+import it.niedermann.owncloud.notes.persistence.entity.CategoryCount;
+import it.niedermann.owncloud.notes.persistence.entity.CategoryOptions;
 import it.niedermann.owncloud.notes.persistence.entity.CategoryWithNotesCount;
 import it.niedermann.owncloud.notes.persistence.entity.Note;
+import it.niedermann.owncloud.notes.persistence.entity.NoteContent;
 import it.niedermann.owncloud.notes.shared.model.Capabilities;
+import it.niedermann.owncloud.notes.shared.model.CategorySortingMethod;
 import it.niedermann.owncloud.notes.shared.model.DBStatus;
+import it.niedermann.owncloud.notes.shared.util.NoteUtil;
 
 import static it.niedermann.owncloud.notes.shared.model.DBStatus.LOCAL_DELETED;
 import static it.niedermann.owncloud.notes.shared.model.DBStatus.LOCAL_EDITED;
@@ -29,6 +36,7 @@ import static it.niedermann.owncloud.notes.shared.model.DBStatus.VOID;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
@@ -46,6 +54,7 @@ public class NotesDaoTest {
     public void setupDB() {
         db = Room
                 .inMemoryDatabaseBuilder(ApplicationProvider.getApplicationContext(), NotesDatabase.class)
+                .addCallback(NotesDatabase.CALLBACK)
                 .allowMainThreadQueries()
                 .build();
         db.getAccountDao().insert(new Account("https://äöüß.example.com", "彼得", "彼得@äöüß.example.com", null, new Capabilities()));
@@ -73,8 +82,17 @@ public class NotesDaoTest {
     @Test
     public void updateScrollY() {
         db.getNoteDao().addNote(new Note(1, 1L, Calendar.getInstance(), "T", "C", "", false, "1", LOCAL_DELETED, account.getId(), "", 0));
-        db.getNoteDao().updateScrollY(1, 128);
-        assertEquals(128, db.getNoteDao().getNoteById(1).getScrollY());
+        assertEquals(0, db.getNoteUiStateDao().getScrollY(1));
+        db.getNoteUiStateDao().updateScrollY(1, 128);
+        assertEquals(128, db.getNoteUiStateDao().getScrollY(1));
+        db.getNoteUiStateDao().updateScrollY(1, 256);
+        assertEquals(256, db.getNoteUiStateDao().getScrollY(1));
+
+        db.getNoteUiStateDao().updateScrollY(2, 128);
+        assertEquals("Scroll state of unknown note must not be stored", 0, db.getNoteUiStateDao().getScrollY(2));
+
+        db.getNoteDao().deleteByNoteId(1, LOCAL_DELETED);
+        assertEquals("Scroll state must be deleted along with the note", 0, db.getNoteUiStateDao().getScrollY(1));
     }
 
     @Test
@@ -133,6 +151,23 @@ public class NotesDaoTest {
         assertFalse("Result must not contain deleted note", pair.stream().anyMatch(note -> Long.valueOf(6969).equals(note.getRemoteId())));
     }
 
+    @Test
+    public void getRemoteMetadata() {
+        final var modified = Calendar.getInstance();
+        modified.setTimeInMillis(1_000_000L);
+        db.getNoteDao().addNote(new Note(815, 4711L, modified, "T", "C", "", false, "1", VOID, account.getId(), "", 0));
+        db.getNoteDao().addNote(new Note(987, 6969L, modified, "T", "C", "", false, "1", LOCAL_DELETED, account.getId(), "", 0));
+        db.getNoteDao().addNote(new Note(666, null, modified, "T", "C", "", false, "1", LOCAL_EDITED, account.getId(), "", 0));
+
+        final var metadata = db.getNoteDao().getRemoteMetadata(account.getId());
+        assertEquals(1, metadata.size());
+        assertEquals(815, metadata.get(0).getId());
+        assertEquals(Long.valueOf(4711), metadata.get(0).getRemoteId());
+        assertEquals("T", metadata.get(0).getTitle());
+        assertEquals("1", metadata.get(0).getETag());
+        assertEquals(1_000_000L, metadata.get(0).getModified().getTimeInMillis());
+    }
+
     @Test
     public void getLocalIdByRemoteId() {
         db.getNoteDao().addNote(new Note(815, 4711L, Calendar.getInstance(), "My-Title", "My-Content", "", false, "1", VOID, account.getId(), "", 0));
@@ -195,6 +230,26 @@ public class NotesDaoTest {
         assertTrue(db.getNoteDao().getNoteById(note.getId()).getFavorite());
     }
 
+    @Test
+    public void dirtyFields() {
+        final var note = new Note(1, 1L, Calendar.getInstance(), "My-Title", "My-Content", "", false, "1", VOID, account.getId(), "", 0);
+        db.getNoteDao().addNote(note);
+        assertEquals(0, db.getNoteDao().getDirtyFields(1));
+
+        db.getNoteDao().toggleFavorite(1);
+        assertEquals(Note.DIRTY_FAVORITE, db.getNoteDao().getDirtyFields(1));
+        db.getNoteDao().updateCategory(1, "Music");
+        assertEquals(Note.DIRTY_FAVORITE | Note.DIRTY_CATEGORY, db.getNoteDao().getDirtyFields(1));
+
+        final var edited = db.getNoteDao().getNoteById(1);
+        edited.setContent("Changed-Content");
+        db.getNoteDao().updateNote(edited, NoteContent.of(1, edited.getTitle(), edited.getContent()), Note.DIRTY_CONTENT);
+        assertEquals("Flags which have not been pushed yet must be kept", Note.DIRTY_FAVORITE | Note.DIRTY_CATEGORY | Note.DIRTY_CONTENT, db.getNoteDao().getLocalModifiedNotes(account.getId()).get(0).getDirtyFields());
+
+        assertEquals(1, db.getNoteDao().updateIfNotModifiedLocallyDuringSync(1, Calendar.getInstance().getTimeInMillis(), "My-Title", true, "2", NoteContent.of(1, "My-Title", "Changed-Content"), "", NoteContent.hash("Changed-Content"), "Music", true));
+        assertEquals(0, db.getNoteDao().getDirtyFields(1));
+    }
+
     @Test
     public void updateRemoteId() {
         final var note = new Note(1, 1L, Calendar.getInstance(), "My-Title", "My-Content", "", false, "1", LOCAL_DELETED, account.getId(), "", 0);
@@ -210,7 +265,7 @@ public class NotesDaoTest {
 
         db.getNoteDao().addNote(localNote);
 
-        assertEquals(1, db.getNoteDao().updateIfNotModifiedLocallyDuringSync(localNote.getId(), targetNote.getModified().getTimeInMillis(), targetNote.getTitle(), targetNote.getFavorite(), targetNote.getETag(), targetNote.getContent(), targetNote.getExcerpt(), localNote.getContent(), localNote.getCategory(), localNote.getFavorite()));
+        assertEquals(1, db.getNoteDao().updateIfNotModifiedLocallyDuringSync(localNote.getId(), targetNote.getModified().getTimeInMillis(), targetNote.getTitle(), targetNote.getFavorite(), targetNote.getETag(), NoteContent.of(localNote.getId(), targetNote.getTitle(), targetNote.getContent()), targetNote.getExcerpt(), NoteContent.hash(localNote.getContent()), localNote.getCategory(), localNote.getFavorite()));
     }
 
     @Test
@@ -222,7 +277,7 @@ public class NotesDaoTest {
 
         localNote.setContent("My-Modified-Content");
 
-        assertEquals(0, db.getNoteDao().updateIfNotModifiedLocallyDuringSync(localNote.getId(), targetNote.getModified().getTimeInMillis(), targetNote.getTitle(), targetNote.getFavorite(), targetNote.getETag(), targetNote.getContent(), targetNote.getExcerpt(), localNote.getContent(), localNote.getCategory(), localNote.getFavorite()));
+        assertEquals(0, db.getNoteDao().updateIfNotModifiedLocallyDuringSync(localNote.getId(), targetNote.getModified().getTimeInMillis(), targetNote.getTitle(), targetNote.getFavorite(), targetNote.getETag(), NoteContent.of(localNote.getId(), targetNote.getTitle(), targetNote.getContent()), targetNote.getExcerpt(), NoteContent.hash(localNote.getContent()), localNote.getCategory(), localNote.getFavorite()));
     }
 
     @Test
@@ -234,7 +289,7 @@ public class NotesDaoTest {
 
         localNote.setFavorite(true);
 
-        assertEquals(0, db.getNoteDao().updateIfNotModifiedLocallyDuringSync(localNote.getId(), targetNote.getModified().getTimeInMillis(), targetNote.getTitle(), targetNote.getFavorite(), targetNote.getETag(), targetNote.getContent(), targetNote.getExcerpt(), localNote.getContent(), localNote.getCategory(), localNote.getFavorite()));
+        assertEquals(0, db.getNoteDao().updateIfNotModifiedLocallyDuringSync(localNote.getId(), targetNote.getModified().getTimeInMillis(), targetNote.getTitle(), targetNote.getFavorite(), targetNote.getETag(), NoteContent.of(localNote.getId(), targetNote.getTitle(), targetNote.getContent()), targetNote.getExcerpt(), NoteContent.hash(localNote.getContent()), localNote.getCategory(), localNote.getFavorite()));
     }
 
     @Test
@@ -246,91 +301,91 @@ public class NotesDaoTest {
 
         localNote.setCategory("Modified-Category");
 
-        assertEquals(0, db.getNoteDao().updateIfNotModifiedLocallyDuringSync(localNote.getId(), targetNote.getModified().getTimeInMillis(), targetNote.getTitle(), targetNote.getFavorite(), targetNote.getETag(), targetNote.getContent(), targetNote.getExcerpt(), localNote.getContent(), localNote.getCategory(), localNote.getFavorite()));
+        assertEquals(0, db.getNoteDao().updateIfNotModifiedLocallyDuringSync(localNote.getId(), targetNote.getModified().getTimeInMillis(), targetNote.getTitle(), targetNote.getFavorite(), targetNote.getETag(), NoteContent.of(localNote.getId(), targetNote.getTitle(), targetNote.getContent()), targetNote.getExcerpt(), NoteContent.hash(localNote.getContent()), localNote.getCategory(), localNote.getFavorite()));
     }
 
     @Test
     public void updateIfNotModifiedLocallyAndAnyRemoteColumnHasChanged_Nothing() {
         final var localNote = db.getNoteDao().getNoteById(db.getNoteDao().addNote(new Note(1, 1L, Calendar.getInstance(), "My-Title", "My-Content", "", false, "1", VOID, account.getId(), "", 0)));
         assertEquals(0, db.getNoteDao().updateIfNotModifiedLocallyAndAnyRemoteColumnHasChanged(
-                localNote.getId(), localNote.getModified().getTimeInMillis(), localNote.getTitle(), localNote.getFavorite(), localNote.getCategory(), localNote.getETag(), localNote.getContent(), localNote.getExcerpt()));
+                localNote.getId(), localNote.getModified().getTimeInMillis(), localNote.getTitle(), localNote.getFavorite(), localNote.getCategory(), localNote.getETag(), NoteContent.of(localNote.getId(), localNote.getTitle(), localNote.getContent()), localNote.getExcerpt()));
     }
 
     @Test
     public void updateIfNotModifiedLocallyAndAnyRemoteColumnHasChanged_Nothing_ETagWasAndIsNull() {
         final var localNote = db.getNoteDao().getNoteById(db.getNoteDao().addNote(new Note(1, 1L, Calendar.getInstance(), "My-Title", "My-Content", "", false, null, VOID, account.getId(), "", 0)));
         assertEquals(1, db.getNoteDao().updateIfNotModifiedLocallyAndAnyRemoteColumnHasChanged(
-                localNote.getId(), localNote.getModified().getTimeInMillis(), localNote.getTitle(), localNote.getFavorite(), localNote.getCategory(), null, localNote.getContent(), localNote.getExcerpt()));
+                localNote.getId(), localNote.getModified().getTimeInMillis(), localNote.getTitle(), localNote.getFavorite(), localNote.getCategory(), null, NoteContent.of(localNote.getId(), localNote.getTitle(), localNote.getContent()), localNote.getExcerpt()));
     }
 
     @Test
     public void updateIfNotModifiedLocallyAndAnyRemoteColumnHasChanged_Nothing_ETagWasNullButChanged() {
         final var localNote = db.getNoteDao().getNoteById(db.getNoteDao().addNote(new Note(1, 1L, Calendar.getInstance(), "My-Title", "My-Content", "", false, null, VOID, account.getId(), "", 0)));
         assertEquals(1, db.getNoteDao().updateIfNotModifiedLocallyAndAnyRemoteColumnHasChanged(
-                localNote.getId(), localNote.getModified().getTimeInMillis(), localNote.getTitle(), localNote.getFavorite(), localNote.getCategory(), "1", localNote.getContent(), localNote.getExcerpt()));
+                localNote.getId(), localNote.getModified().getTimeInMillis(), localNote.getTitle(), localNote.getFavorite(), localNote.getCategory(), "1", NoteContent.of(localNote.getId(), localNote.getTitle(), localNote.getContent()), localNote.getExcerpt()));
     }
 
     @Test
     public void updateIfNotModifiedLocallyAndAnyRemoteColumnHasChanged_Modified() {
         final var localNote = db.getNoteDao().getNoteById(db.getNoteDao().addNote(new Note(1, 1L, Calendar.getInstance(), "My-Title", "My-Content", "", false, "1", VOID, account.getId(), "", 0)));
         assertEquals(1, db.getNoteDao().updateIfNotModifiedLocallyAndAnyRemoteColumnHasChanged(
-                localNote.getId(), localNote.getModified().getTimeInMillis() + 1000, localNote.getTitle(), localNote.getFavorite(), localNote.getCategory(), localNote.getETag(), localNote.getContent(), localNote.getExcerpt()));
+                localNote.getId(), localNote.getModified().getTimeInMillis() + 1000, localNote.getTitle(), localNote.getFavorite(), localNote.getCategory(), localNote.getETag(), NoteContent.of(localNote.getId(), localNote.getTitle(), localNote.getContent()), localNote.getExcerpt()));
     }
 
     @Test
     public void updateIfNotModifiedLocallyAndAnyRemoteColumnHasChanged_Title() {
         final var localNote = db.getNoteDao().getNoteById(db.getNoteDao().addNote(new Note(1, 1L, Calendar.getInstance(), "My-Title", "My-Content", "", false, "1", VOID, account.getId(), "", 0)));
         assertEquals(1, db.getNoteDao().updateIfNotModifiedLocallyAndAnyRemoteColumnHasChanged(
-                localNote.getId(), localNote.getModified().getTimeInMillis(), localNote.getTitle() + " ", localNote.getFavorite(), localNote.getCategory(), localNote.getETag(), localNote.getContent(), localNote.getExcerpt()));
+                localNote.getId(), localNote.getModified().getTimeInMillis(), localNote.getTitle() + " ", localNote.getFavorite(), localNote.getCategory(), localNote.getETag(), NoteContent.of(localNote.getId(), localNote.getTitle() + " ", localNote.getContent()), localNote.getExcerpt()));
     }
 
     @Test
     public void updateIfNotModifiedLocallyAndAnyRemoteColumnHasChanged_Favorite() {
         final var localNote = db.getNoteDao().getNoteById(db.getNoteDao().addNote(new Note(1, 1L, Calendar.getInstance(), "My-Title", "My-Content", "", false, "1", VOID, account.getId(), "", 0)));
         assertEquals(1, db.getNoteDao().updateIfNotModifiedLocallyAndAnyRemoteColumnHasChanged(
-                localNote.getId(), localNote.getModified().getTimeInMillis(), localNote.getTitle(), !localNote.getFavorite(), localNote.getCategory(), localNote.getETag(), localNote.getContent(), localNote.getExcerpt()));
+                localNote.getId(), localNote.getModified().getTimeInMillis(), localNote.getTitle(), !localNote.getFavorite(), localNote.getCategory(), localNote.getETag(), NoteContent.of(localNote.getId(), localNote.getTitle(), localNote.getContent()), localNote.getExcerpt()));
     }
 
     @Test
     public void updateIfNotModifiedLocallyAndAnyRemoteColumnHasChanged_Category() {
         final var localNote = db.getNoteDao().getNoteById(db.getNoteDao().addNote(new Note(1, 1L, Calendar.getInstance(), "My-Title", "My-Content", "", false, "1", VOID, account.getId(), "", 0)));
         assertEquals(1, db.getNoteDao().updateIfNotModifiedLocallyAndAnyRemoteColumnHasChanged(
-                localNote.getId(), localNote.getModified().getTimeInMillis(), localNote.getTitle(), localNote.getFavorite(), localNote.getCategory() + " ", localNote.getETag(), localNote.getContent(), localNote.getExcerpt()));
+                localNote.getId(), localNote.getModified().getTimeInMillis(), localNote.getTitle(), localNote.getFavorite(), localNote.getCategory() + " ", localNote.getETag(), NoteContent.of(localNote.getId(), localNote.getTitle(), localNote.getContent()), localNote.getExcerpt()));
     }
 
     @Test
     public void updateIfNotModifiedLocallyAndAnyRemoteColumnHasChanged_ETag() {
         final var localNote = db.getNoteDao().getNoteById(db.getNoteDao().addNote(new Note(1, 1L, Calendar.getInstance(), "My-Title", "My-Content", "", false, "1", VOID, account.getId(), "", 0)));
         assertEquals(1, db.getNoteDao().updateIfNotModifiedLocallyAndAnyRemoteColumnHasChanged(
-                localNote.getId(), localNote.getModified().getTimeInMillis(), localNote.getTitle(), localNote.getFavorite(), localNote.getCategory(), localNote.getETag() + " ", localNote.getContent(), localNote.getExcerpt()));
+                localNote.getId(), localNote.getModified().getTimeInMillis(), localNote.getTitle(), localNote.getFavorite(), localNote.getCategory(), localNote.getETag() + " ", NoteContent.of(localNote.getId(), localNote.getTitle(), localNote.getContent()), localNote.getExcerpt()));
     }
 
     @Test
     public void updateIfNotModifiedLocallyAndAnyRemoteColumnHasChanged_Content() {
         final var localNote = db.getNoteDao().getNoteById(db.getNoteDao().addNote(new Note(1, 1L, Calendar.getInstance(), "My-Title", "My-Content", "", false, "1", VOID, account.getId(), "", 0)));
         assertEquals(1, db.getNoteDao().updateIfNotModifiedLocallyAndAnyRemoteColumnHasChanged(
-                localNote.getId(), localNote.getModified().getTimeInMillis(), localNote.getTitle(), localNote.getFavorite(), localNote.getCategory(), localNote.getETag(), localNote.getContent() + " ", localNote.getExcerpt()));
+                localNote.getId(), localNote.getModified().getTimeInMillis(), localNote.getTitle(), localNote.getFavorite(), localNote.getCategory(), localNote.getETag(), NoteContent.of(localNote.getId(), localNote.getTitle(), localNote.getContent() + " "), localNote.getExcerpt()));
     }
 
     @Test
     public void updateIfNotModifiedLocallyAndAnyRemoteColumnHasChanged_Excerpt() {
         final var localNote = db.getNoteDao().getNoteById(db.getNoteDao().addNote(new Note(1, 1L, Calendar.getInstance(), "My-Title", "My-Content", "", false, "1", VOID, account.getId(), "", 0)));
         assertEquals("Excerpt is a local property, and therefore should not prevent updating if different", 0, db.getNoteDao().updateIfNotModifiedLocallyAndAnyRemoteColumnHasChanged(
-                localNote.getId(), localNote.getModified().getTimeInMillis(), localNote.getTitle(), localNote.getFavorite(), localNote.getCategory(), localNote.getETag(), localNote.getContent(), localNote.getExcerpt() + " "));
+                localNote.getId(), localNote.getModified().getTimeInMillis(), localNote.getTitle(), localNote.getFavorite(), localNote.getCategory(), localNote.getETag(), NoteContent.of(localNote.getId(), localNote.getTitle(), localNote.getContent()), localNote.getExcerpt() + " "));
     }
 
     @Test
     public void updateIfNotModifiedLocallyAndAnyRemoteColumnHasChanged_ContentChangedButWasLocalEdited() {
         final var localNote = db.getNoteDao().getNoteById(db.getNoteDao().addNote(new Note(1, 1L, Calendar.getInstance(), "My-Title", "My-Content", "", false, "1", LOCAL_EDITED, account.getId(), "", 0)));
         assertEquals(0, db.getNoteDao().updateIfNotModifiedLocallyAndAnyRemoteColumnHasChanged(
-                localNote.getId(), localNote.getModified().getTimeInMillis(), localNote.getTitle(), localNote.getFavorite(), localNote.getCategory(), localNote.getETag(), localNote.getContent() + " ", localNote.getExcerpt()));
+                localNote.getId(), localNote.getModified().getTimeInMillis(), localNote.getTitle(), localNote.getFavorite(), localNote.getCategory(), localNote.getETag(), NoteContent.of(localNote.getId(), localNote.getTitle(), localNote.getContent() + " "), localNote.getExcerpt()));
     }
 
     @Test
     public void updateIfNotModifiedLocallyAndAnyRemoteColumnHasChanged_ContentChangedButWasLocalDeleted() {
         final var localNote = db.getNoteDao().getNoteById(db.getNoteDao().addNote(new Note(1, 1L, Calendar.getInstance(), "My-Title", "My-Content", "", false, "1", LOCAL_DELETED, account.getId(), "", 0)));
         assertEquals(0, db.getNoteDao().updateIfNotModifiedLocallyAndAnyRemoteColumnHasChanged(
-                localNote.getId(), localNote.getModified().getTimeInMillis(), localNote.getTitle(), localNote.getFavorite(), localNote.getCategory(), localNote.getETag(), localNote.getContent() + " ", localNote.getExcerpt()));
+                localNote.getId(), localNote.getModified().getTimeInMillis(), localNote.getTitle(), localNote.getFavorite(), localNote.getCategory(), localNote.getETag(), NoteContent.of(localNote.getId(), localNote.getTitle(), localNote.getContent() + " "), localNote.getExcerpt()));
     }
 
     @Test
@@ -386,6 +441,145 @@ public class NotesDaoTest {
         }
     }
 
+    @Test
+    public void getNoteById_LoadsContent() {
+        db.getNoteDao().addNote(new Note(1, 1L, Calendar.getInstance(), "T", "My-Content", "", false, null, VOID, account.getId(), "", 0));
+        assertEquals("My-Content", db.getNoteDao().getNoteById(1).getContent());
+        assertEquals("My-Content", NotesTestingUtil.getOrAwaitValue(db.getNoteDao().getNoteById$(1)).getContent());
+        assertEquals("List queries must not load the content", "", db.getNoteDao().getRecentByModified(account.getId()).get(0).getContent());
+
+        db.getNoteDao().updateNote(new Note(1, 1L, Calendar.getInstance(), "T", "Updated-Content", "", false, null, LOCAL_EDITED, account.getId(), "", 0));
+        assertEquals("Updated-Content", db.getNoteDao().getNoteById(1).getContent());
+        assertEquals("Updated-Content", db.getNoteDao().getLocalModifiedNotes(account.getId()).get(0).getContent());
+    }
+
+    @Test
+    public void categoryOptions_CleanedUpWhenCategoryBecomesUnused() {
+        db.getNoteDao().addNote(new Note(1, 1L, Calendar.getInstance(), "T", "C", "Movies", false, null, VOID, account.getId(), "", 0));
+        db.getNoteDao().addNote(new Note(2, 2L, Calendar.getInstance(), "T", "C", "Movies", false, null, VOID, account.getId(), "", 0));
+        final var options = new CategoryOptions();
+        options.setAccountId(account.getId());
+        options.setCategory("Movies");
+        options.setSortingMethod(CategorySortingMethod.SORT_LEXICOGRAPHICAL_ASC);
+        db.getCategoryOptionsDao().addCategoryOptions(options);
+
+        db.getNoteUiStateDao().updateScrollY(1, 100);
+        db.getNoteDao().toggleFavorite(1);
+        db.getNoteDao().updateCategory(1, "Music");
+        assertEquals("Category is still used by another note", 1, db.getCategoryOptionsDao().modifyCategoryOrder(account.getId(), "Movies", CategorySortingMethod.SORT_MODIFIED_DESC));
+
+        db.getNoteDao().deleteByNoteId(2, VOID);
+        assertEquals("Category is no longer used", 0, db.getCategoryOptionsDao().modifyCategoryOrder(account.getId(), "Movies", CategorySortingMethod.SORT_MODIFIED_DESC));
+    }
+
+    @Test
+    public void getCategoryCounts() throws InterruptedException {
+        db.getNoteDao().addNote(new Note(1, 1L, Calendar.getInstance(), "T", "C", "Movies", false, null, VOID, account.getId(), "", 0));
+        db.getNoteDao().addNote(new Note(2, 2L, Calendar.getInstance(), "T", "C", "Movies", true, null, VOID, account.getId(), "", 0));
+        db.getNoteDao().addNote(new Note(3, 3L, Calendar.getInstance(), "T", "C", "", false, null, VOID, account.getId(), "", 0));
+        db.getNoteDao().addNote(new Note(4, 4L, Calendar.getInstance(), "T", "C", "Music", true, null, LOCAL_DELETED, account.getId(), "", 0));
+        assertEquals(Arrays.asList(
+                new CategoryCount(account.getId(), "", 1, 0),
+                new CategoryCount(account.getId(), "Movies", 2, 1)
+        ), NotesTestingUtil.getOrAwaitValue(db.getNoteDao().getCategoryCounts$(account.getId())));
+
+        db.getNoteDao().toggleFavorite(1);
+        db.getNoteDao().updateCategory(2, "Music");
+        db.getNoteDao().updateStatus(4, LOCAL_EDITED);
+        db.getNoteDao().updateStatus(3, LOCAL_DELETED);
+        assertEquals(Arrays.asList(
+                new CategoryCount(account.getId(), "Movies", 1, 1),
+                new CategoryCount(account.getId(), "Music", 2, 2)
+        ), NotesTestingUtil.getOrAwaitValue(db.getNoteDao().getCategoryCounts$(account.getId())));
+
+        db.getNoteDao().deleteByNoteId(1, LOCAL_EDITED);
+        db.getNoteDao().deleteByNoteId(3, LOCAL_DELETED);
+        assertEquals(Collections.singletonList(
+                new CategoryCount(account.getId(), "Music", 2, 2)
+        ), NotesTestingUtil.getOrAwaitValue(db.getNoteDao().getCategoryCounts$(account.getId())));
+    }
+
+    @Test
+    public void addNote_StoresContentHash() {
+        db.getNoteDao().addNote(new Note(1, 1L, Calendar.getInstance(), "T", "My-Content", "", false, null, VOID, account.getId(), "", 0));
+        assertEquals(Long.valueOf(NoteContent.hash("My-Content")), db.getNoteDao().getContentHash(1));
+        assertNotEquals(NoteContent.hash("My-Content"), NoteContent.hash("My-Content "));
+        assertNotEquals("Hash must respect the order of characters", NoteContent.hash("ab"), NoteContent.hash("ba"));
+
+        db.getNoteDao().updateNote(new Note(1, 1L, Calendar.getInstance(), "T", "Updated-Content", "", false, null, LOCAL_EDITED, account.getId(), "", 0));
+        assertEquals(Long.valueOf(NoteContent.hash("Updated-Content")), db.getNoteDao().getContentHash(1));
+    }
+
+    @Test
+    public void addNote_StoresCompressedContent() {
+        final var largeContent = "Bread with butter\n".repeat(5_000);
+        final var note = new Note(1, 1L, Calendar.getInstance(), "T", largeContent, "", false, null, VOID, account.getId(), "", 0);
+        db.getNoteDao().addNote(note, NoteContent.compressed(0, "T", largeContent, NoteContent.hash(largeContent)));
+
+        final var noteContent = db.getNoteDao().getNoteContent(1);
+        assertEquals("", noteContent.getContent());
+        assertNotNull(noteContent.getCompressedContent());
+        assertEquals(largeContent, db.getNoteDao().getNoteById(1).getContent());
+        assertEquals("Compressed contents are indexed", 1, db.getNoteDao().searchRecentByModified(account.getId(), "\"butter*\"").size());
+        assertEquals("The title of compressed contents is indexed", 1, db.getNoteDao().searchRecentByModified(account.getId(), "\"T*\"").size());
+        assertEquals("Title and content of compressed contents are matched together", 1, db.getNoteDao().searchRecentByModified(account.getId(), "\"T*\" \"butter*\"").size());
+
+        db.getNoteDao().updateNote(new Note(1, 1L, Calendar.getInstance(), "Renamed", "", "", false, null, LOCAL_EDITED, account.getId(), "", 0), NoteContent.compressed(1, "Renamed", largeContent, NoteContent.hash(largeContent)));
+        assertEquals("Index must follow renames of compressed contents", 1, db.getNoteDao().searchRecentByModified(account.getId(), "\"renamed*\" \"butter*\"").size());
+
+        db.getNoteDao().updateNote(new Note(1, 1L, Calendar.getInstance(), "T", "Cheese cake", "", false, null, LOCAL_EDITED, account.getId(), "", 0));
+        assertNull(db.getNoteDao().getNoteContent(1).getCompressedContent());
+        assertEquals("Cheese cake", db.getNoteDao().getNoteById(1).getContent());
+        assertEquals(0, db.getNoteDao().searchRecentByModified(account.getId(), "\"butter*\"").size());
+        assertEquals(1, db.getNoteDao().searchRecentByModified(account.getId(), "\"cheese*\"").size());
+
+        db.getNoteDao().updateNote(new Note(1, 1L, Calendar.getInstance(), "T", largeContent, "", false, null, LOCAL_EDITED, account.getId(), "", 0), NoteContent.compressed(1, "T", largeContent, NoteContent.hash(largeContent)));
+        db.getNoteDao().deleteByNoteId(1, LOCAL_EDITED);
+        try (final var cursor = db.getOpenHelper().getReadableDatabase().query("SELECT * FROM CompressedNoteFts")) {
+            assertEquals("Index must follow deletions of compressed contents", 0, cursor.getCount());
+        }
+    }
+
+    @Test
+    public void searchRecentByModified_FullText() {
+        db.getNoteDao().addNote(new Note(1, 1L, Calendar.getInstance(), "Shopping list", "Milk, eggs and bread", "", false, null, VOID, account.getId(), "", 0));
+        db.getNoteDao().addNote(new Note(2, 2L, Calendar.getInstance(), "Recipes", "Bread with butter", "", false, null, VOID, account.getId(), "", 0));
+        db.getNoteDao().addNote(new Note(3, 3L, Calendar.getInstance(), "Bread", "Deleted", "", false, null, LOCAL_DELETED, account.getId(), "", 0));
+
+        assertEquals(2, db.getNoteDao().searchRecentByModified(account.getId(), "\"brea*\"").size());
+        assertEquals(1, db.getNoteDao().searchRecentByModified(account.getId(), "\"shop*\"").size());
+        assertEquals(1, db.getNoteDao().searchRecentByModified(account.getId(), "\"bread*\" \"butter*\"").size());
+        assertEquals(0, db.getNoteDao().searchRecentByModified(account.getId(), "\"cheese*\"").size());
+
+        db.getNoteDao().updateNote(new Note(2, 2L, Calendar.getInstance(), "Recipes", "Cheese cake", "", false, null, VOID, account.getId(), "", 0));
+        assertEquals("Index must follow updates of the content", 1, db.getNoteDao().searchRecentByModified(account.getId(), "\"cheese*\"").size());
+        assertEquals(1, db.getNoteDao().searchRecentByModified(account.getId(), "\"brea*\"").size());
+
+        db.getNoteDao().updateNoteWithoutContent(new Note(2, 2L, Calendar.getInstance(), "Baking", "Cheese cake", "", false, null, VOID, account.getId(), "", 0));
+        assertEquals("Index must follow renames", 1, db.getNoteDao().searchRecentByModified(account.getId(), "\"baking*\"").size());
+        assertEquals(0, db.getNoteDao().searchRecentByModified(account.getId(), "\"recipes*\"").size());
+        assertEquals("Content is kept when only the title changes", 1, db.getNoteDao().searchRecentByModified(account.getId(), "\"cheese*\"").size());
+
+        db.getNoteDao().toggleFavorite(2);
+        assertEquals("Title stays in sync on other updates", "Baking", db.getNoteDao().getNoteContent(2).getTitle());
+
+        db.getNoteDao().deleteByNoteId(1, VOID);
+        assertEquals("Index must follow deletions", 0, db.getNoteDao().searchRecentByModified(account.getId(), "\"brea*\"").size());
+        assertEquals(1, db.getNoteDao().getRecentByModified(account.getId()).size());
+    }
+
+    @Test
+    public void searchRecentByModified_MatchesBeginningOfWords() {
+        db.getNoteDao().addNote(new Note(1, 1L, Calendar.getInstance(), "Thesis", "See the footnote", "", false, null, VOID, account.getId(), "", 0));
+        db.getNoteDao().addNote(new Note(2, 2L, Calendar.getInstance(), "日记", "兄弟，这真是美好的一天。", "", false, null, VOID, account.getId(), "", 0));
+
+        assertEquals(1, db.getNoteDao().searchRecentByModified(account.getId(), NoteUtil.generateFullTextQuery("foot")).size());
+        assertEquals(1, db.getNoteDao().searchRecentByModified(account.getId(), NoteUtil.generateFullTextQuery("the foot")).size());
+        assertEquals("Substrings within words are not found", 0, db.getNoteDao().searchRecentByModified(account.getId(), NoteUtil.generateFullTextQuery("note")).size());
+        assertEquals(1, db.getNoteDao().searchRecentByModified(account.getId(), NoteUtil.generateFullTextQuery("兄弟")).size());
+        assertEquals("Texts without spaces are only found by their beginning", 0, db.getNoteDao().searchRecentByModified(account.getId(), NoteUtil.generateFullTextQuery("美好")).size());
+    }
+
     private static boolean isSortedByFavorite(List<Note> notes) {
         for (int i = 0; i < notes.size() - 1; ++i) {
             if (Boolean.compare(notes.get(i).getFavorite(), notes.get(i + 1).getFavorite()) < 0)
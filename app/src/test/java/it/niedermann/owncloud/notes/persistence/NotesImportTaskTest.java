@@ -0,0 +1,180 @@
+package it.niedermann.owncloud.notes.persistence;
+
+import android.content.Context;
+
+import androidx.annotation.NonNull;
+import androidx.arch.core.executor.testing.InstantTaskExecutorRule;
+
+import com.google.common.util.concurrent.MoreExecutors;
+import com.nextcloud.android.sso.exceptions.NextcloudFilesAppAccountNotFoundException;
+import com.nextcloud.android.sso.model.SingleSignOnAccount;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.stubbing.Answer;
+import org.robolectric.RobolectricTestRunner;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import io.reactivex.Observable;
+import it.niedermann.owncloud.notes.persistence.entity.Account;
+import it.niedermann.owncloud.notes.persistence.entity.ImportCheckpoint;
+import it.niedermann.owncloud.notes.persistence.entity.Note;
+import it.niedermann.owncloud.notes.persistence.sync.AdaptiveRequestScheduler;
+import it.niedermann.owncloud.notes.persistence.sync.NotesAPI;
+import it.niedermann.owncloud.notes.shared.model.IResponseCallback;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(RobolectricTestRunner.class)
+public class NotesImportTaskTest {
+
+    @Rule
+    public InstantTaskExecutorRule instantTaskExecutorRule = new InstantTaskExecutorRule();
+
+    private NotesImportTask task;
+
+    private final Account account = mock(Account.class);
+    private final NotesRepository repo = mock(NotesRepository.class);
+    private final NotesAPI notesAPI = mock(NotesAPI.class);
+    private final ApiProvider apiProvider = mock(ApiProvider.class);
+    private final List<Integer> importedPageSizes = new ArrayList<>();
+
+    @Before
+    public void setup() throws NextcloudFilesAppAccountNotFoundException, IOException {
+        when(account.getId()).thenReturn(1L);
+        when(repo.getImportCheckpoint(1L)).thenReturn(new ImportCheckpoint(1L));
+        when(apiProvider.getNotesAPI(any(), any(), any())).thenReturn(notesAPI);
+        when(notesAPI.getScheduler()).thenReturn(new AdaptiveRequestScheduler());
+        doAnswer(invocation -> importedPageSizes.add(invocation.<List<Note>>getArgument(1).size())).when(repo).addNotes(anyLong(), any());
+        NotesTestingUtil.mockSingleSignOn(new SingleSignOnAccount(account.getAccountName(), account.getUserName(), "", account.getUrl(), ""));
+        task = new NotesImportTask(mock(Context.class), repo, account, MoreExecutors.newDirectExecutorService(), apiProvider);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void importsPageByPage() throws InterruptedException {
+        when(notesAPI.getNotesIDs()).thenReturn(Observable.just(LongStream.range(0, 250).boxed().collect(Collectors.toList())));
+        when(notesAPI.streamNotes(any(), any(), anyInt(), anyBoolean(), any())).thenAnswer(stream(Map.of("X-Notes-Chunk-Cursor", "first"), 0, 100));
+        when(notesAPI.streamNotesChunk(anyInt(), eq("first"), any())).thenAnswer(stream(Map.of("X-Notes-Chunk-Cursor", "second"), 100, 100));
+        when(notesAPI.streamNotesChunk(anyInt(), eq("second"), any())).thenAnswer(stream(Collections.emptyMap(), 200, 50));
+        final IResponseCallback<Void> callback = mock(IResponseCallback.class);
+
+        final var status = NotesTestingUtil.getOrAwaitValue(task.importNotes(callback));
+
+        verify(callback).onSuccess(null);
+        verify(notesAPI, never()).getNote(anyLong());
+        assertEquals(List.of(100, 100, 50), importedPageSizes);
+        assertEquals(250, status.total);
+        assertEquals(250, status.count);
+        final var inOrder = inOrder(repo);
+        inOrder.verify(repo).updateImportTotal(1L, 250);
+        inOrder.verify(repo).updateImportChunkCursor(1L, "first");
+        inOrder.verify(repo).updateImportChunkCursor(1L, "second");
+        inOrder.verify(repo).finishImport(1L);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void continuesInterruptedImport() throws InterruptedException {
+        final var checkpoint = new ImportCheckpoint(1L);
+        checkpoint.setTotal(250);
+        checkpoint.setChunkCursor("second");
+        when(repo.getImportCheckpoint(1L)).thenReturn(checkpoint);
+        // The first page of the interrupted chunk has already been stored, but the cursor has not been persisted anymore
+        when(repo.getIdMap(1L)).thenReturn(LongStream.range(0, 210).boxed().collect(Collectors.toMap(remoteId -> remoteId, remoteId -> remoteId + 1)));
+        when(notesAPI.streamNotesChunk(anyInt(), eq("second"), any())).thenAnswer(stream(Collections.emptyMap(), 200, 50));
+        final IResponseCallback<Void> callback = mock(IResponseCallback.class);
+
+        final var status = NotesTestingUtil.getOrAwaitValue(task.importNotes(callback));
+
+        verify(callback).onSuccess(null);
+        verify(notesAPI, never()).getNotesIDs();
+        verify(notesAPI, never()).streamNotes(any(), any(), anyInt(), anyBoolean(), any());
+        assertEquals("Already imported notes must be skipped", List.of(40), importedPageSizes);
+        assertEquals(250, status.total);
+        assertEquals(250, status.count);
+        verify(repo).finishImport(1L);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void stopsAtPageWhichCouldNotBeStored() throws InterruptedException {
+        when(notesAPI.getNotesIDs()).thenReturn(Observable.just(LongStream.range(0, 250).boxed().collect(Collectors.toList())));
+        when(notesAPI.streamNotes(any(), any(), anyInt(), anyBoolean(), any())).thenAnswer(stream(Map.of("X-Notes-Chunk-Cursor", "first"), 0, 100));
+        when(notesAPI.streamNotesChunk(anyInt(), eq("first"), any())).thenAnswer(stream(Map.of("X-Notes-Chunk-Cursor", "second"), 100, 100));
+        final var failure = new RuntimeException("Disk full");
+        doAnswer(invocation -> {
+            if (!importedPageSizes.isEmpty()) {
+                throw failure;
+            }
+            return importedPageSizes.add(invocation.<List<Note>>getArgument(1).size());
+        }).when(repo).addNotes(anyLong(), any());
+        final IResponseCallback<Void> callback = mock(IResponseCallback.class);
+
+        final var status = NotesTestingUtil.getOrAwaitValue(task.importNotes(callback));
+
+        verify(callback).onError(failure);
+        assertEquals("Only stored notes are counted", 100, status.count);
+        verify(repo).updateImportChunkCursor(1L, "first");
+        verify(repo, never()).updateImportChunkCursor(1L, "second");
+        verify(repo, never()).finishImport(1L);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void doesNothingIfImportHasBeenFinished() {
+        when(repo.getImportCheckpoint(1L)).thenReturn(null);
+        final IResponseCallback<Void> callback = mock(IResponseCallback.class);
+
+        task.importNotes(callback);
+
+        verify(callback).onSuccess(null);
+        verify(notesAPI, never()).getNotesIDs();
+        verify(repo, never()).addNotes(anyLong(), any());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void importsUnchunkedListingPageByPage() {
+        when(notesAPI.getNotesIDs()).thenReturn(Observable.just(LongStream.range(0, 230).boxed().collect(Collectors.toList())));
+        when(notesAPI.streamNotes(any(), any(), anyInt(), anyBoolean(), any())).thenAnswer(stream(Collections.emptyMap(), 0, 230));
+        final IResponseCallback<Void> callback = mock(IResponseCallback.class);
+
+        task.importNotes(callback);
+
+        verify(callback).onSuccess(null);
+        assertEquals(List.of(100, 100, 30), importedPageSizes);
+    }
+
+    private static Answer<Map<String, String>> stream(@NonNull Map<String, String> headers, long firstRemoteId, int count) {
+        return invocation -> {
+            final Consumer<Note> consumer = invocation.getArgument(invocation.getArguments().length - 1);
+            for (long remoteId = firstRemoteId; remoteId < firstRemoteId + count; remoteId++) {
+                consumer.accept(new Note(remoteId, Calendar.getInstance(), "Title", "Content", "", false, null));
+            }
+            return headers;
+        };
+    }
+}
@@ -1,5 +1,8 @@
 package it.niedermann.owncloud.notes.persistence;
 
+import static android.net.NetworkCapabilities.NET_CAPABILITY_INTERNET;
+import static android.net.NetworkCapabilities.NET_CAPABILITY_NOT_METERED;
+import static android.net.NetworkCapabilities.NET_CAPABILITY_VALIDATED;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
@@ -10,10 +13,13 @@ import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
@@ -46,18 +52,22 @@ import org.robolectric.annotation.Config;
 
 import java.io.IOException;
 import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Calendar;
 import java.util.Collections;
 import java.util.Locale;
+import java.util.Map;
 import java.util.concurrent.ExecutorService;
 
 import io.reactivex.Observable;
 import it.niedermann.owncloud.notes.persistence.entity.Account;
 import it.niedermann.owncloud.notes.persistence.entity.Note;
+import it.niedermann.owncloud.notes.persistence.sync.AdaptiveRequestScheduler;
 import it.niedermann.owncloud.notes.persistence.sync.NotesAPI;
 import it.niedermann.owncloud.notes.shared.model.Capabilities;
 import it.niedermann.owncloud.notes.shared.model.IResponseCallback;
+import it.niedermann.owncloud.notes.shared.model.ISyncCallback;
 
 @RunWith(RobolectricTestRunner.class)
 public class NotesRepositoryTest {
@@ -69,24 +79,30 @@ public class NotesRepositoryTest {
     private Account account = null;
     private Account secondAccount = null;
     private NotesDatabase db;
+    private NotesAPI notesApiSpy;
 
     @Before
     public void setupDB() throws NoSuchMethodException, IllegalAccessException, InvocationTargetException, InstantiationException, IOException {
         final var context = ApplicationProvider.getApplicationContext();
         db = Room
                 .inMemoryDatabaseBuilder(ApplicationProvider.getApplicationContext(), NotesDatabase.class)
+                .addCallback(NotesDatabase.CALLBACK)
                 .allowMainThreadQueries()
                 .build();
 
-        final var constructor = NotesRepository.class.getDeclaredConstructor(Context.class, NotesDatabase.class, ExecutorService.class, ExecutorService.class, ExecutorService.class, ApiProvider.class);
+        NotesTestingUtil.mockActiveNetwork(NET_CAPABILITY_INTERNET, NET_CAPABILITY_NOT_METERED, NET_CAPABILITY_VALIDATED);
+
+        final var constructor = NotesRepository.class.getDeclaredConstructor(Context.class, NotesDatabase.class, ExecutorService.class, ExecutorService.class, ExecutorService.class, ExecutorService.class, ApiProvider.class);
         constructor.setAccessible(true);
         final var executor = MoreExecutors.newDirectExecutorService();
         final var apiProviderSpy = mock(ApiProvider.class);
-        final var notesApiSpy = mock(NotesAPI.class);
-        repo = constructor.newInstance(context, db, executor, executor, executor, apiProviderSpy);
+        notesApiSpy = mock(NotesAPI.class);
+        repo = constructor.newInstance(context, db, executor, executor, executor, executor, apiProviderSpy);
 
         doReturn(notesApiSpy).when(apiProviderSpy).getNotesAPI(any(), any(), any());
+        when(notesApiSpy.getScheduler()).thenReturn(new AdaptiveRequestScheduler());
         when(notesApiSpy.getNotesIDs()).thenReturn(Observable.just(Collections.emptyList()));
+        when(notesApiSpy.streamNotes(any(), any(), anyInt(), anyBoolean(), any())).thenReturn(Collections.emptyMap());
         when(notesApiSpy.getNote(anyLong())).thenReturn(Observable.just(ParsedResponse.of(new Note())));
 
         NotesTestingUtil.mockSingleSignOn(new SingleSignOnAccount("彼得@äöüß.example.com", "彼得", "1337", "https://äöüß.example.com", ""));
@@ -142,6 +158,31 @@ public class NotesRepositoryTest {
         assertSame("Result of NotesRepository.getInstance() must always return the same instance", repo, NotesRepository.getInstance(ApplicationProvider.getApplicationContext()));
     }
 
+    @Test
+    public void testAddNotesCompressesLargeContentsAndIndexesThem() throws InterruptedException {
+        final var notes = new ArrayList<Note>();
+        for (int i = 0; i < 20; i++) {
+            final var content = new StringBuilder();
+            for (int line = 0; line < 3_000; line++) {
+                content.append("Line ").append(line).append(" of note ").append(i).append(": the quick brown fox jumps over the lazy dog\n");
+            }
+            notes.add(new Note(null, Calendar.getInstance(), "Large " + i, content.toString(), "", false, null));
+        }
+        repo.addNotes(secondAccount.getId(), notes);
+
+        final var stored = db.getNoteDao().searchRecentByModified(secondAccount.getId(), "\"Large*\"");
+        assertEquals("Titles of compressed contents are indexed", 20, stored.size());
+        assertEquals("Compressed contents are indexed", 20, db.getNoteDao().searchRecentByModified(secondAccount.getId(), "\"fox*\"").size());
+        final var ranked = getOrAwaitValue(repo.searchRecentByRelevance$(secondAccount.getId(), "large fox"));
+        assertEquals("Compressed contents are ranked", 20, ranked.size());
+        assertTrue(ranked.get(0).getExcerpt().contains("fox"));
+        for (final var note : stored) {
+            assertNotNull(db.getNoteDao().getNoteContent(note.getId()).getCompressedContent());
+        }
+        final var firstNote = stored.stream().filter(note -> "Large 0".equals(note.getTitle())).findFirst().get();
+        assertEquals(notes.get(0).getContent(), db.getNoteDao().getNoteById(firstNote.getId()).getContent());
+    }
+
     @Test
     public void testGetIdMap() {
         final var idMapOfFirstAccount = repo.getIdMap(account.getId());
@@ -184,6 +225,44 @@ public class NotesRepositoryTest {
         assertNull(repo.getAccountById(account.getId()));
     }
 
+    @Test
+    public void testRefreshNote() throws IOException {
+        NotesTestingUtil.mockSingleSignOn(new SingleSignOnAccount(account.getAccountName(), account.getUserName(), "1337", account.getUrl(), ""));
+        final var remoteNote = new Note(1001L, Calendar.getInstance(), "Refreshed", "Refreshed content", "Movies", true, "new-etag");
+        when(notesApiSpy.getNote(anyLong(), any())).thenReturn(Observable.just(ParsedResponse.of(remoteNote)));
+        final var callback = mock(ISyncCallback.class);
+
+        repo.refreshNote(account, 1, callback);
+        verify(callback).onFinish();
+        final var refreshedNote = repo.getNoteById(1);
+        assertEquals("Refreshed content", refreshedNote.getContent());
+        assertEquals("new-etag", refreshedNote.getETag());
+        assertTrue(refreshedNote.getFavorite());
+
+        repo.refreshNote(account, 3, callback);
+        verify(callback, times(2)).onFinish();
+        assertEquals("Local changes must not be overwritten", "C", repo.getNoteById(3).getContent());
+
+        repo.refreshNote(account, 2, callback);
+        verify(callback, times(3)).onFinish();
+        verify(notesApiSpy, times(2)).getNote(anyLong(), any());
+    }
+
+    @Test
+    public void testUpdateNoteAndSyncRenamesSyncedNote() {
+        final var note = repo.getNoteById(1);
+        // The editor changes its own instance before handing it over
+        note.setTitle("Renamed");
+
+        repo.updateNoteAndSync(account, note, note.getContent(), "Renamed", null);
+
+        assertEquals("Renamed", repo.getNoteById(1).getTitle());
+        assertEquals(Note.DIRTY_TITLE, db.getNoteDao().getDirtyFields(1));
+
+        repo.updateNoteAndSync(account, repo.getNoteById(1), "New content", null, null);
+        assertEquals(Note.DIRTY_TITLE | Note.DIRTY_CONTENT, db.getNoteDao().getDirtyFields(1));
+    }
+
     @Test
     public void testAddNote() {
         final var localNote = new Note(null, Calendar.getInstance(), "Fancy Title", "MyContent", "Samples", false, "123");
@@ -248,6 +327,37 @@ public class NotesRepositoryTest {
         verify(repoSpy, times(1)).addNoteAndSync(any(), any());
     }
 
+    @Test
+    public void saveNoteAndSync() {
+        final var repoSpy = spy(repo);
+        doNothing().when(repoSpy).scheduleSync(any(), anyBoolean());
+        doNothing().when(repoSpy).schedulePush(any(), anyLong());
+
+        final var oldNote = repoSpy.getNoteById(4);
+        final var savedNotes = new ArrayList<Note>();
+        final var syncCallback = mock(ISyncCallback.class);
+        repoSpy.saveNoteAndSync(account, oldNote, "New content", null, syncCallback, new IResponseCallback<>() {
+            @Override
+            public void onSuccess(Note result) {
+                savedNotes.add(result);
+            }
+
+            @Override
+            public void onError(@NonNull Throwable t) {
+                fail(t.getMessage());
+            }
+        });
+
+        assertEquals(1, savedNotes.size());
+        assertEquals("New content", savedNotes.get(0).getContent());
+        assertEquals(LOCAL_EDITED, savedNotes.get(0).getStatus());
+        assertEquals("New content", repoSpy.getNoteById(4).getContent());
+        assertEquals(LOCAL_EDITED, repoSpy.getNoteById(4).getStatus());
+        verify(repoSpy, times(1)).schedulePush(any(), eq(4L));
+        verify(repoSpy, never()).scheduleSync(any(), anyBoolean());
+        verify(syncCallback).onScheduled();
+    }
+
     @Test
     public void testSyncStatusLiveData() throws InterruptedException, IOException {
         NotesTestingUtil.mockSingleSignOn(new SingleSignOnAccount(account.getAccountName(), account.getUserName(), "1337", account.getUrl(), ""));
@@ -289,6 +399,53 @@ public class NotesRepositoryTest {
         assertEquals("Should read userName in favor of displayName if displayName is NULL", "彼得", db.getAccountDao().getAccountById(account.getId()).getDisplayName());
     }
 
+    @Test
+    public void applyRemoteChanges() {
+        final var modified = Calendar.getInstance();
+        modified.add(Calendar.MINUTE, 1);
+        repo.applyRemoteChanges(account.getId(),
+                Map.of(
+                        1L, new Note(1001L, modified, "Remote", "Remotely updated", "Movies", false, "1"),
+                        3L, new Note(1003L, modified, "Remote", "Must not overwrite local changes", "Movies", false, "1")
+                ),
+                Arrays.asList(
+                        new Note(2001L, modified, "First", "Remotely created", "", false, "1"),
+                        new Note(2002L, modified, "Second", "Remotely created", "", true, "1")
+                ),
+                Arrays.asList(2L, 4L));
+
+        assertEquals("Remotely updated", db.getNoteDao().getNoteById(1).getContent());
+        assertEquals("C", db.getNoteDao().getNoteById(3).getContent());
+        assertNotNull("Local changes must not be deleted", db.getNoteDao().getNoteById(2));
+        assertNull(db.getNoteDao().getNoteById(4));
+
+        final var idMap = repo.getIdMap(account.getId());
+        assertTrue(idMap.containsKey(2001L));
+        assertTrue(idMap.containsKey(2002L));
+        final var created = db.getNoteDao().getNoteById(idMap.get(2001L));
+        assertEquals("Remotely created", created.getContent());
+        assertEquals(account.getId(), created.getAccountId());
+        assertEquals(VOID, created.getStatus());
+    }
+
+    @Test
+    public void searchCategoryByRelevance() throws InterruptedException {
+        for (int i = 0; i < NotesRepository.RELEVANCE_LIMIT + 10; i++) {
+            db.getNoteDao().addNote(new Note(0, null, Calendar.getInstance(), "Note " + i, "A haystack with a needle", "Relevance", false, null, VOID, account.getId(), "", 0));
+        }
+        final long titleHit = db.getNoteDao().addNote(new Note(0, null, Calendar.getInstance(), "Needle", "A haystack", "Relevance", false, null, VOID, account.getId(), "", 0));
+        db.getNoteDao().addNote(new Note(0, null, Calendar.getInstance(), "Needle", "Another category", "Movies", false, null, VOID, account.getId(), "", 0));
+
+        final var ranked = getOrAwaitValue(repo.searchCategoryByRelevance$(account.getId(), "needle", "Relevance"));
+        assertEquals("Only the most relevant notes are loaded", NotesRepository.RELEVANCE_LIMIT, ranked.size());
+        assertEquals("Hits in the title are the most relevant", titleHit, ranked.get(0).getId());
+        assertTrue(ranked.stream().allMatch(note -> "Relevance".equals(note.getCategory())));
+        assertEquals("A haystack with a needle", ranked.get(1).getExcerpt());
+
+        assertEquals("Without search term the notes are ordered by modification date", NotesRepository.RELEVANCE_LIMIT + 11,
+                getOrAwaitValue(repo.searchCategoryByRelevance$(account.getId(), "", "Relevance")).size());
+    }
+
     @Config(qualifiers = "de")
     @Test
     @Ignore("Language is properly set to DE, but LOCALIZED SQL query does not work")
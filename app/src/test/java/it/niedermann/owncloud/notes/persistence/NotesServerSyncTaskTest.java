@@ -2,6 +2,7 @@ package it.niedermann.owncloud.notes.persistence;
 
 import android.content.Context;
 
+import androidx.annotation.NonNull;
 import androidx.arch.core.executor.testing.InstantTaskExecutorRule;
 
 import com.nextcloud.android.sso.api.ParsedResponse;
@@ -12,27 +13,38 @@ import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.stubbing.Answer;
 import org.robolectric.RobolectricTestRunner;
 
 import java.io.IOException;
 import java.util.Arrays;
 import java.util.Calendar;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
+import java.util.function.Consumer;
 
 import io.reactivex.Observable;
 import it.niedermann.owncloud.notes.persistence.entity.Account;
 import it.niedermann.owncloud.notes.persistence.entity.Note;
+import it.niedermann.owncloud.notes.persistence.sync.AdaptiveRequestScheduler;
 import it.niedermann.owncloud.notes.persistence.sync.NotesAPI;
 import it.niedermann.owncloud.notes.shared.model.SyncResultStatus;
+import retrofit2.Call;
+import retrofit2.Response;
 
 import static it.niedermann.owncloud.notes.shared.model.DBStatus.LOCAL_EDITED;
 import static it.niedermann.owncloud.notes.shared.model.DBStatus.VOID;
+import static org.junit.Assert.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyLong;
-import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -53,6 +65,7 @@ public class NotesServerSyncTaskTest {
     @Before
     public void setup() throws NextcloudFilesAppAccountNotFoundException, IOException {
         when(apiProvider.getNotesAPI(any(), any(), any())).thenReturn(notesAPI);
+        when(notesAPI.getScheduler()).thenReturn(new AdaptiveRequestScheduler());
         NotesTestingUtil.mockSingleSignOn(new SingleSignOnAccount(account.getAccountName(), account.getUserName(), "", account.getUrl(), ""));
         this.task = new NotesServerSyncTask(mock(Context.class), repo, account, false, apiProvider) {
             @Override
@@ -80,19 +93,127 @@ public class NotesServerSyncTaskTest {
         verify(notesAPI).editNote(argThat(argument -> "This note should be updated on the server".equals(argument.getContent())));
     }
 
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testPushLocalChangesRecreatesRemotelyDeletedNotes() throws IOException {
+        final var note = new Note(1, 2L, Calendar.getInstance(), "Has been deleted remotely, therefore", "This note should be recreated on the server", "", false, "1", LOCAL_EDITED, 0, "", 0);
+        final var failingNote = new Note(3, 4L, Calendar.getInstance(), "Can not be edited, therefore", "This note should fail", "", false, "1", LOCAL_EDITED, 0, "", 0);
+        when(repo.getLocalModifiedNotes(anyLong())).thenReturn(Arrays.asList(note, failingNote));
+        final Call<Note> editCall = mock(Call.class);
+        final Response<Note> notFoundResponse = mock(Response.class);
+        when(notFoundResponse.code()).thenReturn(404);
+        when(editCall.execute()).thenReturn(notFoundResponse);
+        when(notesAPI.editNote(argThat(argument -> argument.getId() == 1))).thenReturn(editCall);
+        final Call<Note> failingEditCall = mock(Call.class);
+        final Response<Note> errorResponse = mock(Response.class);
+        when(errorResponse.code()).thenReturn(500);
+        when(failingEditCall.execute()).thenReturn(errorResponse);
+        when(notesAPI.editNote(argThat(argument -> argument.getId() == 3))).thenReturn(failingEditCall);
+        final Call<Note> createCall = mock(Call.class);
+        when(createCall.execute()).thenReturn(Response.success(new Note(0, 5L, Calendar.getInstance(), "Has been deleted remotely, therefore", "This note should be recreated on the server", "", false, "2", VOID, 0, "", 0)));
+        when(notesAPI.createNote(any())).thenReturn(createCall);
+
+        this.task.run();
+
+        verify(repo).updateRemoteId(1, 5L);
+        verify(repo).updateIfNotModifiedLocallyDuringSync(eq(1L), anyLong(), any(), anyBoolean(), eq("2"), eq("This note should be recreated on the server"), anyLong(), any(), anyLong(), any(), anyBoolean());
+        verify(repo, never()).updateIfNotModifiedLocallyDuringSync(eq(3L), anyLong(), any(), anyBoolean(), any(), any(), anyLong(), any(), anyLong(), any(), anyBoolean());
+        assertEquals(1, this.task.exceptions.size());
+    }
+
     @Test
     public void testPullRemoteChanges() {
         when(repo.getAccountById(anyLong())).thenReturn(account);
         when(repo.getIdMap(anyLong())).thenReturn(Map.of(1000L, 1L, 2000L, 2L));
-        when(repo.updateIfNotModifiedLocallyAndAnyRemoteColumnHasChanged(anyLong(), anyLong(), anyString(), anyBoolean(), anyString(), anyString(), anyString(), anyString())).thenReturn(1);
-        when(notesAPI.getNotes(any(), any())).thenReturn(Observable.just(ParsedResponse.of(Arrays.asList(
+        when(notesAPI.streamNotes(any(), any(), anyInt(), anyBoolean(), any())).thenAnswer(stream(Collections.emptyMap(),
                 new Note(0, 1000L, Calendar.getInstance(), "RemoteId is in the idMap, therefore", "This note should be updated locally", "", false, "1", VOID, 0, "", 0),
                 new Note(0, 3000L, Calendar.getInstance(), "Is a new RemoteId, therefore", "This note should be created locally", "", false, "1", VOID, 0, "", 0)
-        ))));
+        ));
 
         this.task.run();
 
-        verify(repo).addNote(anyLong(), argThat(argument -> "This note should be created locally".equals(argument.getContent())));
-        verify(repo).updateIfNotModifiedLocallyAndAnyRemoteColumnHasChanged(anyLong(), anyLong(), anyString(), anyBoolean(), anyString(), anyString(), argThat("This note should be updated locally"::equals), anyString());
+        verify(repo).applyRemoteChanges(anyLong(),
+                argThat(notesToUpdate -> notesToUpdate.size() == 1 && "This note should be updated locally".equals(notesToUpdate.get(1L).getContent())),
+                argThat(notesToAdd -> notesToAdd.size() == 1 && "This note should be created locally".equals(notesToAdd.get(0).getContent())),
+                argThat(idsToDelete -> idsToDelete.size() == 1 && idsToDelete.contains(2L)));
+    }
+
+    @Test
+    public void testPullRemoteChangesInChunks() {
+        when(repo.getAccountById(anyLong())).thenReturn(account);
+        when(repo.getIdMap(anyLong())).thenReturn(Map.of(1000L, 1L, 2000L, 2L));
+        when(notesAPI.streamNotes(any(), any(), anyInt(), anyBoolean(), any())).thenAnswer(stream(Map.of("X-Notes-Chunk-Cursor", "next", "ETag", "chunk"),
+                new Note(0, 1000L, Calendar.getInstance(), "RemoteId is in the idMap, therefore", "This note should be updated locally", "", false, "1", VOID, 0, "", 0)
+        ));
+        when(notesAPI.streamNotesChunk(anyInt(), eq("next"), any())).thenAnswer(stream(Collections.emptyMap(),
+                new Note(0, 3000L, Calendar.getInstance(), "Is a new RemoteId, therefore", "This note should be created locally", "", false, "1", VOID, 0, "", 0)
+        ));
+
+        this.task.run();
+
+        verify(repo).applyRemoteChanges(anyLong(),
+                argThat(notesToUpdate -> notesToUpdate.size() == 1 && "This note should be updated locally".equals(notesToUpdate.get(1L).getContent())),
+                argThat(List::isEmpty),
+                argThat(List::isEmpty));
+        verify(repo).updateChunkCursor(anyLong(), eq("next"));
+        verify(repo).applyRemoteChanges(anyLong(),
+                argThat(Map::isEmpty),
+                argThat(notesToAdd -> notesToAdd.size() == 1 && "This note should be created locally".equals(notesToAdd.get(0).getContent())),
+                argThat(idsToDelete -> idsToDelete.size() == 1 && idsToDelete.contains(2L)));
+        verify(repo).updateChunkCursor(anyLong(), isNull());
+        verify(repo).updateETag(anyLong(), isNull());
+    }
+
+    @Test
+    public void testPullRemoteChangesMetadataFirst() {
+        final var lastSync = Calendar.getInstance();
+        final var modified = Calendar.getInstance();
+        modified.setTimeInMillis(1_000_000L);
+        final var modifiedRemotely = Calendar.getInstance();
+        modifiedRemotely.setTimeInMillis(2_000_000L);
+        when(account.getModified()).thenReturn(lastSync);
+        when(repo.getAccountById(anyLong())).thenReturn(account);
+        when(repo.getIdMap(anyLong())).thenReturn(Map.of(1000L, 1L, 2000L, 2L, 4000L, 4L));
+        when(repo.getRemoteMetadataMap(anyLong())).thenReturn(Map.of(
+                1L, new Note(1, 1000L, modified, "Unchanged", "", "", false, "etag-1", VOID, 0, "", 0),
+                2L, new Note(2, 2000L, modified, "Favorite", "", "", false, "etag-2", VOID, 0, "", 0),
+                4L, new Note(4, 4000L, modified, "Content", "", "", false, "etag-4", VOID, 0, "", 0)
+        ));
+        when(notesAPI.streamNotes(any(), any(), anyInt(), eq(true), any())).thenAnswer(stream(Collections.emptyMap(),
+                new Note(0, 1000L, modified, "Unchanged", "", "", false, "etag-1", VOID, 0, "", 0),
+                new Note(0, 2000L, modified, "Favorite", "", "", true, "etag-2-new", VOID, 0, "", 0),
+                new Note(0, 4000L, modifiedRemotely, "Content", "", "", false, "etag-4-new", VOID, 0, "", 0),
+                new Note(0, 3000L, modifiedRemotely, "New", "", "", false, "etag-3", VOID, 0, "", 0)
+        ));
+        when(notesAPI.getNote(2000L)).thenReturn(Observable.just(ParsedResponse.of(
+                new Note(0, 2000L, modified, "Favorite", "Content changed within the same second", "", true, "etag-2-new", VOID, 0, "", 0))));
+        when(notesAPI.getNote(4000L)).thenReturn(Observable.just(ParsedResponse.of(
+                new Note(0, 4000L, modifiedRemotely, "Content", "This note should be updated locally", "", false, "etag-4-new", VOID, 0, "", 0))));
+        when(notesAPI.getNote(3000L)).thenReturn(Observable.just(ParsedResponse.of(
+                new Note(0, 3000L, modifiedRemotely, "New", "This note should be created locally", "", false, "etag-3", VOID, 0, "", 0))));
+
+        this.task.run();
+
+        verify(notesAPI, never()).streamNotes(any(), any(), anyInt(), eq(false), any());
+        verify(notesAPI, never()).getNote(1000L);
+        verify(repo).applyRemoteChanges(anyLong(),
+                argThat(notesToUpdate -> notesToUpdate.size() == 2
+                        && "This note should be updated locally".equals(notesToUpdate.get(4L).getContent())
+                        && "Content changed within the same second".equals(notesToUpdate.get(2L).getContent())),
+                argThat(notesToAdd -> notesToAdd.size() == 1 && "This note should be created locally".equals(notesToAdd.get(0).getContent())),
+                argThat(List::isEmpty));
+    }
+
+    /**
+     * Passes the given {@param notes} to the consumer of a streaming request like they would have been read from the response.
+     */
+    private static Answer<Map<String, String>> stream(@NonNull Map<String, String> headers, @NonNull Note... notes) {
+        return invocation -> {
+            final Consumer<Note> consumer = invocation.getArgument(invocation.getArguments().length - 1);
+            for (final var note : notes) {
+                consumer.accept(note);
+            }
+            return headers;
+        };
     }
-}
\ No newline at end of file
+}
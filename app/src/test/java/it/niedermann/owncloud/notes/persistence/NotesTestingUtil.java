@@ -1,7 +1,11 @@
 package it.niedermann.owncloud.notes.persistence;
 
+import static org.robolectric.Shadows.shadowOf;
+
 import android.content.Context;
 import android.content.SharedPreferences;
+import android.net.ConnectivityManager;
+import android.net.NetworkCapabilities;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
@@ -12,6 +16,8 @@ import androidx.test.core.app.ApplicationProvider;
 import com.nextcloud.android.sso.AccountImporter;
 import com.nextcloud.android.sso.model.SingleSignOnAccount;
 
+import org.robolectric.shadows.ShadowNetworkCapabilities;
+
 import java.io.IOException;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
@@ -57,4 +63,23 @@ public class NotesTestingUtil {
         sharedPrefs.edit().putString("PREF_ACCOUNT_STRING" + ssoAccount.name, SingleSignOnAccount.toString(ssoAccount)).commit();
         AccountImporter.setSharedPreferences(sharedPrefs);
     }
+
+    /**
+     * @return {@link NetworkCapabilities} which additionally have the given {@param capabilities}
+     */
+    public static NetworkCapabilities networkCapabilities(int... capabilities) {
+        final var networkCapabilities = ShadowNetworkCapabilities.newInstance();
+        for (final int capability : capabilities) {
+            shadowOf(networkCapabilities).addCapability(capability);
+        }
+        return networkCapabilities;
+    }
+
+    /**
+     * Pretends that the active network has the given {@param capabilities}.
+     */
+    public static void mockActiveNetwork(int... capabilities) {
+        final var connectivityManager = ApplicationProvider.getApplicationContext().getSystemService(ConnectivityManager.class);
+        shadowOf(connectivityManager).setNetworkCapabilities(connectivityManager.getActiveNetwork(), networkCapabilities(capabilities));
+    }
 }
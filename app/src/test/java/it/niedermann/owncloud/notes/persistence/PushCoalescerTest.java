@@ -0,0 +1,96 @@
+package it.niedermann.owncloud.notes.persistence;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.atomic.AtomicLong;
+
+import it.niedermann.owncloud.notes.persistence.entity.Account;
+
+@RunWith(RobolectricTestRunner.class)
+public class PushCoalescerTest {
+
+    private final ScheduledExecutorService scheduler = mock(ScheduledExecutorService.class);
+    private final List<Runnable> scheduledFlushes = new ArrayList<>();
+    private final List<Long> scheduledDelays = new ArrayList<>();
+    private final List<ScheduledFuture<?>> scheduledFutures = new ArrayList<>();
+    private final List<Account> pushedAccounts = new ArrayList<>();
+    private final AtomicLong now = new AtomicLong(0);
+    private final Account account = new Account();
+
+    private PushCoalescer coalescer;
+
+    @Before
+    public void setup() {
+        account.setId(1);
+        when(scheduler.schedule(any(Runnable.class), anyLong(), any())).thenAnswer(invocation -> {
+            scheduledFlushes.add(invocation.getArgument(0));
+            scheduledDelays.add(invocation.getArgument(1));
+            final var future = mock(ScheduledFuture.class);
+            scheduledFutures.add(future);
+            return future;
+        });
+        coalescer = new PushCoalescer(scheduler, pushedAccounts::add, now::get, 5_000, 30_000);
+    }
+
+    @Test
+    public void mergesBurstOfChangesIntoSinglePush() {
+        coalescer.noteChanged(account, 1);
+        now.set(2_000);
+        coalescer.noteChanged(account, 1);
+        now.set(3_000);
+        coalescer.noteChanged(account, 2);
+
+        assertEquals(List.of(5_000L, 5_000L, 5_000L), scheduledDelays);
+        verify(scheduledFutures.get(0)).cancel(false);
+        verify(scheduledFutures.get(1)).cancel(false);
+        assertEquals(0, pushedAccounts.size());
+
+        scheduledFlushes.get(2).run();
+        assertEquals(List.of(account), pushedAccounts);
+
+        // The pending push has already been started
+        scheduledFlushes.get(1).run();
+        assertEquals(1, pushedAccounts.size());
+    }
+
+    @Test
+    public void respectsMaxLatency() {
+        coalescer.noteChanged(account, 1);
+        now.set(28_000);
+        coalescer.noteChanged(account, 1);
+        now.set(31_000);
+        coalescer.noteChanged(account, 1);
+
+        assertEquals(List.of(5_000L, 2_000L, 0L), scheduledDelays);
+    }
+
+    @Test
+    public void flushAllPushesImmediately() {
+        coalescer.noteChanged(account, 1);
+        coalescer.flushAll();
+
+        assertEquals(List.of(account), pushedAccounts);
+        verify(scheduledFutures.get(0)).cancel(false);
+
+        coalescer.flushAll();
+        assertEquals("Nothing pending anymore", 1, pushedAccounts.size());
+
+        now.set(60_000);
+        coalescer.noteChanged(account, 1);
+        assertEquals("A new burst starts a new latency bound", Long.valueOf(5_000L), scheduledDelays.get(1));
+    }
+}
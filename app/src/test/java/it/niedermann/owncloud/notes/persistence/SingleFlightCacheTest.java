@@ -0,0 +1,103 @@
+package it.niedermann.owncloud.notes.persistence;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+@RunWith(RobolectricTestRunner.class)
+public class SingleFlightCacheTest {
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(2);
+    private final AtomicLong now = new AtomicLong(0);
+    private final AtomicInteger requests = new AtomicInteger(0);
+    private final SingleFlightCache cache = new SingleFlightCache(now::get, 1_000);
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void concurrentCallersShareOneRequest() throws Exception {
+        final var requestStarted = new CountDownLatch(1);
+        final var response = new CountDownLatch(1);
+        final var leader = executor.submit(() -> cache.get("capabilities", () -> {
+            requestStarted.countDown();
+            response.await();
+            return requests.incrementAndGet();
+        }));
+        assertTrue(requestStarted.await(5, TimeUnit.SECONDS));
+        final var follower = executor.submit(() -> cache.get("capabilities", requests::incrementAndGet));
+        response.countDown();
+
+        assertEquals(Integer.valueOf(1), leader.get(5, TimeUnit.SECONDS));
+        assertEquals(Integer.valueOf(1), follower.get(5, TimeUnit.SECONDS));
+        assertEquals(1, requests.get());
+    }
+
+    @Test
+    public void keepsResultsForTimeToLive() throws Exception {
+        assertEquals(Integer.valueOf(1), cache.get("capabilities", requests::incrementAndGet));
+        now.set(999);
+        assertEquals(Integer.valueOf(1), cache.get("capabilities", requests::incrementAndGet));
+        assertEquals("Other keys are requested separately", Integer.valueOf(2), cache.get("settings", requests::incrementAndGet));
+        now.set(1_000);
+        assertEquals(Integer.valueOf(3), cache.get("capabilities", requests::incrementAndGet));
+
+        cache.invalidate("capabilities");
+        assertEquals(Integer.valueOf(4), cache.get("capabilities", requests::incrementAndGet));
+    }
+
+    @Test
+    public void doesNotKeepResultsOfRequestsStartedBeforeInvalidation() throws Exception {
+        final var requestStarted = new CountDownLatch(1);
+        final var response = new CountDownLatch(1);
+        final var staleRequest = executor.submit(() -> cache.get("settings", () -> {
+            requestStarted.countDown();
+            response.await();
+            return "old";
+        }));
+        assertTrue(requestStarted.await(5, TimeUnit.SECONDS));
+        cache.invalidate("settings");
+        response.countDown();
+
+        assertEquals("Callers of the stale request still receive its result", "old", staleRequest.get(5, TimeUnit.SECONDS));
+        assertEquals("new", cache.get("settings", () -> "new"));
+        assertEquals("new", cache.get("settings", () -> "newer"));
+    }
+
+    @Test
+    public void doesNotKeepFailures() throws Exception {
+        assertThrows(IOException.class, () -> cache.get("capabilities", () -> {
+            throw new IOException();
+        }));
+        assertNull(cache.get("capabilities", () -> null));
+        assertEquals("capabilities", cache.get("capabilities", () -> "capabilities"));
+    }
+
+    @Test
+    public void completesFlightsWhichFailWithAnError() throws Exception {
+        final var failing = executor.submit(() -> cache.get("capabilities", () -> {
+            throw new OutOfMemoryError();
+        }));
+        assertTrue(assertThrows(ExecutionException.class, () -> failing.get(5, TimeUnit.SECONDS)).getCause() instanceof OutOfMemoryError);
+
+        final var next = executor.submit(() -> cache.get("capabilities", requests::incrementAndGet));
+        assertEquals("Later callers do not wait for the failed flight", Integer.valueOf(1), next.get(5, TimeUnit.SECONDS));
+    }
+}
@@ -0,0 +1,58 @@
+package it.niedermann.owncloud.notes.persistence;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+public class SyncLanesTest {
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(2);
+    private final SyncLanes lanes = new SyncLanes(executor);
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void tasksOfOneAccountRunOneAfterTheOther() throws InterruptedException {
+        final List<Integer> order = Collections.synchronizedList(new ArrayList<>());
+        final var finished = new CountDownLatch(10);
+        for (int i = 0; i < 10; i++) {
+            final int index = i;
+            lanes.submit(1, () -> {
+                order.add(index);
+                finished.countDown();
+            });
+        }
+        assertTrue(finished.await(5, TimeUnit.SECONDS));
+        assertEquals(List.of(0, 1, 2, 3, 4, 5, 6, 7, 8, 9), order);
+    }
+
+    @Test
+    public void blockedAccountDoesNotHoldUpOtherAccounts() throws InterruptedException {
+        final var blocker = new CountDownLatch(1);
+        final var otherAccountFinished = new CountDownLatch(2);
+        lanes.submit(1, () -> {
+            try {
+                blocker.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        lanes.submit(2, otherAccountFinished::countDown);
+        lanes.submit(2, otherAccountFinished::countDown);
+        assertTrue("Account 2 must be synchronized while account 1 is blocked", otherAccountFinished.await(5, TimeUnit.SECONDS));
+        blocker.countDown();
+    }
+}
@@ -0,0 +1,114 @@
+package it.niedermann.owncloud.notes.persistence.sync;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.nextcloud.android.sso.exceptions.NextcloudHttpRequestFailedException;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+@RunWith(RobolectricTestRunner.class)
+public class AdaptiveRequestSchedulerTest {
+
+    private final AtomicLong now = new AtomicLong(0);
+    private final AdaptiveRequestScheduler scheduler = new AdaptiveRequestScheduler(now::get);
+
+    @Test
+    public void growsOnlyWhileTheLimitIsUsed() throws Exception {
+        for (int i = 0; i < 20; i++) {
+            request(100);
+        }
+        assertEquals("Sequential requests do not prove that the server copes with more", 4, scheduler.getLimit());
+
+        // Nested requests keep the limit fully used
+        for (int i = 0; i < 4; i++) {
+            nestedRequests(scheduler.getLimit(), 100);
+        }
+        assertEquals(5, scheduler.getLimit());
+    }
+
+    @Test
+    public void halvesOnOverload() throws Exception {
+        assertThrows(RuntimeException.class, () -> failingRequest(503));
+        assertEquals(2, scheduler.getLimit());
+        assertThrows(RuntimeException.class, () -> failingRequest(429));
+        assertEquals(1, scheduler.getLimit());
+        assertThrows(RuntimeException.class, () -> failingRequest(503));
+        assertEquals("Never drops below one request", 1, scheduler.getLimit());
+    }
+
+    @Test
+    public void ignoresOtherErrors() {
+        assertThrows(RuntimeException.class, () -> failingRequest(404));
+        assertThrows(RuntimeException.class, () -> failingRequest(500));
+        assertEquals(4, scheduler.getLimit());
+    }
+
+    @Test
+    public void decreasesOnlyOncePerRoundTrip() {
+        assertThrows(RuntimeException.class, () -> scheduler.execute(() -> {
+            assertThrows(RuntimeException.class, () -> failingRequest(503));
+            now.addAndGet(100);
+            throw new RuntimeException(overload(503));
+        }));
+        assertEquals("Both requests have been started before the first decrease", 2, scheduler.getLimit());
+    }
+
+    @Test
+    public void halvesOnRisingLatency() throws Exception {
+        for (int i = 0; i < 20; i++) {
+            request(100);
+        }
+        request(1_000);
+        assertEquals(2, scheduler.getLimit());
+    }
+
+    @Test
+    public void ignoresLatencyOfStreamingRequests() throws Exception {
+        for (int i = 0; i < 20; i++) {
+            request(100);
+        }
+        scheduler.executeStreaming(() -> now.addAndGet(60_000));
+        request(100);
+        assertEquals("Long streaming requests do not indicate an overloaded server", 4, scheduler.getLimit());
+
+        assertThrows(RuntimeException.class, () -> scheduler.executeStreaming(() -> {
+            throw new RuntimeException(overload(503));
+        }));
+        assertEquals("Overloads are still respected", 2, scheduler.getLimit());
+    }
+
+    private void request(long latency) throws Exception {
+        scheduler.execute(() -> now.addAndGet(latency));
+    }
+
+    private void nestedRequests(int depth, long latency) throws Exception {
+        scheduler.execute(() -> {
+            if (depth > 1) {
+                nestedRequests(depth - 1, latency);
+            } else {
+                now.addAndGet(latency);
+            }
+            return null;
+        });
+    }
+
+    private void failingRequest(int statusCode) throws Exception {
+        scheduler.execute(() -> {
+            now.addAndGet(100);
+            throw new RuntimeException(overload(statusCode));
+        });
+    }
+
+    private static NextcloudHttpRequestFailedException overload(int statusCode) {
+        final var exception = mock(NextcloudHttpRequestFailedException.class);
+        when(exception.getStatusCode()).thenReturn(statusCode);
+        return exception;
+    }
+}
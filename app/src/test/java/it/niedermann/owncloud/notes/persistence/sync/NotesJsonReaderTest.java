@@ -0,0 +1,75 @@
+package it.niedermann.owncloud.notes.persistence.sync;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.google.gson.stream.JsonReader;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+
+import it.niedermann.owncloud.notes.persistence.entity.Note;
+
+@RunWith(RobolectricTestRunner.class)
+public class NotesJsonReaderTest {
+
+    @Test
+    public void testReadNotes() throws IOException {
+        //language=json
+        final String response = "" +
+                "[" +
+                "    {" +
+                "        \"id\":1337," +
+                "        \"etag\":\"abc\"," +
+                "        \"readonly\":false," +
+                "        \"content\":\"# Foo\\nBar\"," +
+                "        \"title\":\"Foo\"," +
+                "        \"category\":\"Work\"," +
+                "        \"favorite\":true," +
+                "        \"modified\":1600000000" +
+                "    }," +
+                "    {" +
+                "        \"id\":4711" +
+                "    }," +
+                "    {" +
+                "        \"id\":815," +
+                "        \"etag\":null," +
+                "        \"title\":\"Without content\"," +
+                "        \"modified\":1600000001," +
+                "        \"unknown\":{\"nested\":[1,2,3]}" +
+                "    }" +
+                "]";
+        final var notes = new ArrayList<Note>();
+        assertEquals(3, NotesJsonReader.readNotes(new JsonReader(new StringReader(response)), notes::add));
+        assertEquals(3, notes.size());
+
+        final var full = notes.get(0);
+        assertEquals(Long.valueOf(1337), full.getRemoteId());
+        assertEquals("abc", full.getETag());
+        assertEquals("# Foo\nBar", full.getContent());
+        assertEquals("Foo", full.getTitle());
+        assertEquals("Work", full.getCategory());
+        assertTrue(full.getFavorite());
+        assertEquals(1_600_000_000_000L, full.getModified().getTimeInMillis());
+
+        final var pruned = notes.get(1);
+        assertEquals(Long.valueOf(4711), pruned.getRemoteId());
+        assertNull(pruned.getModified());
+        assertNull(pruned.getETag());
+
+        final var metadata = notes.get(2);
+        assertEquals(Long.valueOf(815), metadata.getRemoteId());
+        assertNull(metadata.getETag());
+        assertEquals("", metadata.getContent());
+        assertEquals("Without content", metadata.getTitle());
+        assertFalse(metadata.getFavorite());
+        assertEquals(1_600_000_001_000L, metadata.getModified().getTimeInMillis());
+    }
+}
@@ -0,0 +1,24 @@
+package it.niedermann.owncloud.notes.shared.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class CompressionUtilTest {
+
+    @Test
+    public void compress_roundTrip() {
+        assertEquals("", CompressionUtil.decompress(CompressionUtil.compress("")));
+        assertEquals("Foo Bar", CompressionUtil.decompress(CompressionUtil.compress("Foo Bar")));
+        assertEquals("Ünïcödé ✓ 😀", CompressionUtil.decompress(CompressionUtil.compress("Ünïcödé ✓ 😀")));
+    }
+
+    @Test
+    public void compress_reducesSizeOfLargeTexts() {
+        final var text = "- [ ] Milk, eggs and bread\n".repeat(5_000);
+        final var compressed = CompressionUtil.compress(text);
+        assertTrue(compressed.length < text.length() / 10);
+        assertEquals(text, CompressionUtil.decompress(compressed));
+    }
+}
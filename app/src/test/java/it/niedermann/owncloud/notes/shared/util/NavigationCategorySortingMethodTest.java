@@ -14,6 +14,8 @@ public class NavigationCategorySortingMethodTest {
         assertEquals(0, csm0.getId());
         final var csm1 = CategorySortingMethod.SORT_LEXICOGRAPHICAL_ASC;
         assertEquals(1, csm1.getId());
+        final var csm2 = CategorySortingMethod.SORT_RELEVANCE;
+        assertEquals(2, csm2.getId());
     }
 
     @Test
@@ -30,5 +32,7 @@ public class NavigationCategorySortingMethodTest {
         assertEquals(csm0, CategorySortingMethod.findById(0));
         final var csm1 = CategorySortingMethod.SORT_LEXICOGRAPHICAL_ASC;
         assertEquals(csm1, CategorySortingMethod.findById(1));
+        final var csm2 = CategorySortingMethod.SORT_RELEVANCE;
+        assertEquals(csm2, CategorySortingMethod.findById(2));
     }
 }
\ No newline at end of file
@@ -30,6 +30,18 @@ public class NoteUtilTest extends TestCase {
         assertFalse(NoteUtil.isEmptyLine("a \n "));
     }
 
+    @Test
+    public void testGenerateFullTextQuery() {
+        assertNull(NoteUtil.generateFullTextQuery(null));
+        assertNull(NoteUtil.generateFullTextQuery(""));
+        assertNull(NoteUtil.generateFullTextQuery("  "));
+        assertNull(NoteUtil.generateFullTextQuery("\"*\""));
+        assertEquals("\"foo*\"", NoteUtil.generateFullTextQuery("foo"));
+        assertEquals("\"Foo*\" \"bar*\"", NoteUtil.generateFullTextQuery(" Foo  bar "));
+        assertEquals("\"foo*\" \"bar*\"", NoteUtil.generateFullTextQuery("\"foo\" bar*"));
+        assertEquals("\"美好的一天*\"", NoteUtil.generateFullTextQuery("美好的一天"));
+    }
+
     @Test
     public void testGetLineWithoutMarkdown() {
         assertEquals("Test", NoteUtil.getLineWithoutMarkdown("Test", 0));
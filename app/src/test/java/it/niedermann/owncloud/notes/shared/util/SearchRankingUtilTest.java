@@ -0,0 +1,90 @@
+package it.niedermann.owncloud.notes.shared.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.List;
+
+import it.niedermann.owncloud.notes.persistence.entity.NoteSearchResult;
+
+public class SearchRankingUtilTest {
+
+    @Test
+    public void bm25_invalid() {
+        assertEquals(0, SearchRankingUtil.bm25(null), 0);
+        assertEquals(0, SearchRankingUtil.bm25(new byte[0]), 0);
+        assertEquals("Missing hits must not throw", 0, SearchRankingUtil.bm25(matchInfo(1, 2, 10, 5, 5, 5, 5)), 0);
+    }
+
+    @Test
+    public void bm25_noHits() {
+        assertEquals(0, SearchRankingUtil.bm25(matchInfo(1, 2, 10, 5, 50, 5, 50, 0, 1, 1, 0, 3, 2)), 0);
+    }
+
+    @Test
+    public void bm25_titleHitsAreWeightedHigher() {
+        final double titleHit = SearchRankingUtil.bm25(matchInfo(1, 2, 10, 5, 50, 5, 50, 1, 2, 2, 0, 4, 3));
+        final double contentHit = SearchRankingUtil.bm25(matchInfo(1, 2, 10, 5, 50, 5, 50, 0, 2, 2, 1, 4, 3));
+        assertTrue(titleHit > contentHit);
+        assertTrue(contentHit > 0);
+    }
+
+    @Test
+    public void bm25_rareTermsAreWeightedHigher() {
+        final double rare = SearchRankingUtil.bm25(matchInfo(1, 2, 100, 5, 50, 5, 50, 0, 1, 1, 1, 1, 1));
+        final double common = SearchRankingUtil.bm25(matchInfo(1, 2, 100, 5, 50, 5, 50, 0, 1, 1, 1, 90, 90));
+        assertTrue(rare > common);
+    }
+
+    @Test
+    public void mostRelevant() {
+        final var contentHit = result(1, false, matchInfo(1, 2, 10, 5, 50, 5, 50, 0, 1, 1, 1, 2, 2));
+        final var titleHit = result(2, false, matchInfo(1, 2, 10, 5, 50, 5, 50, 1, 1, 1, 0, 2, 2));
+        final var favoriteContentHit = result(3, true, matchInfo(1, 2, 10, 5, 50, 5, 50, 0, 1, 1, 1, 2, 2));
+
+        final List<Long> ranked = SearchRankingUtil.mostRelevant(Arrays.asList(contentHit, titleHit, favoriteContentHit), 10);
+        assertEquals(3, ranked.size());
+        assertEquals(2, (long) ranked.get(0));
+        assertEquals("Favorites come first for equal scores", 3, (long) ranked.get(1));
+        assertEquals(1, (long) ranked.get(2));
+    }
+
+    @Test
+    public void mostRelevant_keepsOnlyTheBestResults() {
+        final var results = new ArrayList<NoteSearchResult>();
+        for (int i = 1; i <= 50; i++) {
+            // The more hits in the content, the more relevant
+            results.add(result(i, false, matchInfo(1, 2, 100, 5, 50, 5, 50, 0, 1, 1, i, 60, 50)));
+        }
+        Collections.shuffle(results);
+
+        assertEquals(Arrays.asList(50L, 49L, 48L), SearchRankingUtil.mostRelevant(results, 3));
+        assertEquals(50, SearchRankingUtil.mostRelevant(results, 100).size());
+        assertTrue(SearchRankingUtil.mostRelevant(results, 0).isEmpty());
+    }
+
+    private static NoteSearchResult result(long id, boolean favorite, byte[] matchInfo) {
+        final var result = new NoteSearchResult();
+        result.setId(id);
+        result.setFavorite(favorite);
+        result.setModified(Calendar.getInstance());
+        result.setMatchInfo(matchInfo);
+        return result;
+    }
+
+    private static byte[] matchInfo(int... values) {
+        final var buffer = ByteBuffer.allocate(values.length * 4).order(ByteOrder.nativeOrder());
+        for (final int value : values) {
+            buffer.putInt(value);
+        }
+        return buffer.array();
+    }
+}